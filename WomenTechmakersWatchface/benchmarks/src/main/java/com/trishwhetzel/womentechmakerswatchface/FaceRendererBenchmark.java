@@ -0,0 +1,89 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame and static layer drawing through {@link FaceRenderer} into a
+ * {@link RecordingRenderTarget}: hand rotation math, tick geometry and battery/date text
+ * selection, without any actual rasterization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FaceRendererBenchmark {
+
+    /* Common round screens, a round screen with a chin, and square screens. */
+    @Param({"320x320", "360x360", "400x400", "454x454", "320x290", "280x280"})
+    public String size;
+
+    private TimeEngine mTime;
+    private FaceRenderer mRenderer;
+    private RecordingRenderTarget mTarget;
+    private long mTimeMs;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        mTime = new TimeEngine(TimeZone.getTimeZone("America/New_York"), Locale.US);
+        BatteryStatus battery = new BatteryStatus() {
+            @Override
+            public int getLevel() {
+                return 87;
+            }
+
+            @Override
+            public boolean isCharging() {
+                return false;
+            }
+        };
+        mRenderer = new FaceRenderer(mTime, battery);
+        mRenderer.setSurfaceSize(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        mTarget = new RecordingRenderTarget();
+        mTimeMs = 1460000000000L;
+    }
+
+    @Benchmark
+    public int interactiveFrame() {
+        mRenderer.setAmbient(false);
+        return drawFrame();
+    }
+
+    @Benchmark
+    public int ambientFrame() {
+        mRenderer.setAmbient(true);
+        return drawFrame();
+    }
+
+    @Benchmark
+    public int staticLayer() {
+        mTarget.reset();
+        mTime.setTime(mTimeMs);
+        mRenderer.drawStaticLayer(mTarget);
+        return mTarget.getCount();
+    }
+
+    private int drawFrame() {
+        mTimeMs += 1000;
+        mTarget.reset();
+        mTime.setTime(mTimeMs);
+        mRenderer.drawFrame(mTarget);
+        return mTarget.getCount();
+    }
+}
@@ -0,0 +1,457 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders the watch face offscreen with {@link Java2DRenderTarget} for every combination of
+ * screen, face state and timestamp, writes each frame as a PNG and a timing report per
+ * screen and state, and optionally compares the frames against a directory of goldens.
+ *
+ * <pre>
+ * ./gradlew :benchmarks:goldens
+ * ./gradlew :benchmarks:goldens -Pgoldens='--compare path/to/goldens --frames 500'
+ * ./gradlew :benchmarks:goldens -Pgoldens='--sizes 320 --frames 0 --out src/test/goldens'
+ * </pre>
+ *
+ * Options: {@code --drawables DIR} (wear drawables), {@code --out DIR}, {@code --compare DIR},
+ * {@code --sizes N,...} (screen sizes), {@code --times MILLIS,...}, {@code --frames N} (timed
+ * frames per configuration, 0 for no timing report), {@code --zone ID}. Exits with 1 if any
+ * frame differs from its golden. The last command above regenerates the goldens that
+ * {@code HeadlessRendererTest} compares against.
+ */
+public final class HeadlessRenderer {
+
+    /* Every screen size both square and round. */
+    static final int[] SIZES = {320, 360, 400, 454};
+
+    static final FaceState[] STATES = {
+            new FaceState("interactive", false, false, false, false),
+            new FaceState("interactive-mute", false, false, false, true),
+            new FaceState("ambient", true, false, false, false),
+            new FaceState("ambient-lowbit", true, true, false, false),
+            new FaceState("ambient-burnin", true, false, true, false),
+            new FaceState("ambient-lowbit-burnin", true, true, true, false),
+    };
+
+    /* 10:10 for the hands, a minute before midnight and the turn of a month. */
+    private static final String[] DEFAULT_TIMES = {
+            "2016-03-08T10:10:31.500", "2016-03-08T23:59:07.250", "2016-05-01T00:00:00.000",
+    };
+
+    private static final int BATTERY_LEVEL = 87;
+
+    /* Channel difference and share of pixels beyond it that still count as a match. */
+    private static final int PIXEL_TOLERANCE = 8;
+    static final double MAX_DIFFERING_PIXELS = 0.001;
+
+    private static final long MINUTE_MS = 60 * 1000;
+
+    /** Screen to render for; round screens only show the inscribed circle. */
+    static final class Screen {
+        final int width;
+        final int height;
+        final boolean round;
+
+        Screen(int width, int height, boolean round) {
+            this.width = width;
+            this.height = height;
+            this.round = round;
+        }
+
+        String getName() {
+            return width + "x" + height + (round ? "-round" : "-square");
+        }
+    }
+
+    /** Mode and device properties the frame is drawn for. */
+    static final class FaceState {
+        final String name;
+        final boolean ambient;
+        final boolean lowBit;
+        final boolean burnIn;
+        final boolean mute;
+
+        FaceState(String name, boolean ambient, boolean lowBit, boolean burnIn, boolean mute) {
+            this.name = name;
+            this.ambient = ambient;
+            this.lowBit = lowBit;
+            this.burnIn = burnIn;
+            this.mute = mute;
+        }
+    }
+
+    private final BufferedImage mBackground;
+    private final BufferedImage mAmbientBackground;
+    private final TimeZone mTimeZone;
+
+    HeadlessRenderer(File drawables, TimeZone timeZone) throws IOException {
+        mBackground = read(new File(drawables, "logo_v2.png"));
+        mAmbientBackground = read(new File(drawables, "ambient_logo_2.png"));
+        mTimeZone = timeZone;
+    }
+
+    static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Not an image: " + file);
+        }
+        return image;
+    }
+
+    /** Everything needed to draw one screen and state, set up like the engine would. */
+    private final class Face {
+        final Screen screen;
+        final FaceState state;
+        final TimeEngine time;
+        final FaceRenderer renderer;
+        final Java2DRenderTarget target;
+        final BufferedImage staticLayer;
+        long staticLayerDay = Long.MIN_VALUE;
+
+        Face(Screen screen, FaceState state) {
+            this.screen = screen;
+            this.state = state;
+            time = new TimeEngine(mTimeZone, Locale.US);
+            BatteryStatus battery = new BatteryStatus() {
+                @Override
+                public int getLevel() {
+                    return BATTERY_LEVEL;
+                }
+
+                @Override
+                public boolean isCharging() {
+                    return false;
+                }
+            };
+            renderer = new FaceRenderer(time, battery);
+            renderer.setSurfaceSize(screen.width, screen.height);
+            renderer.setAmbient(state.ambient);
+
+            /* Same rules as the engine: no ambient background on low-bit or burn-in screens. */
+            BufferedImage ambientMask = state.lowBit || state.burnIn
+                    ? null : luminanceMask(scale(mAmbientBackground, screen));
+            /* 14dp text; watch screens from 400px up are xhdpi, smaller ones hdpi. */
+            float density = screen.width >= 400 ? 2f : 1.5f;
+            target = new Java2DRenderTarget(state, scale(mBackground, screen), ambientMask,
+                    14 * density, 12 * density);
+            renderer.setTextSizes(14 * density, 14 * density, 12 * density);
+            staticLayer = new BufferedImage(screen.width, screen.height,
+                    BufferedImage.TYPE_INT_ARGB);
+            target.setStaticLayer(staticLayer);
+        }
+
+        /** Draws a frame into {@code frame} the way the engine draws it for this mode. */
+        void draw(BufferedImage frame, long timeMs) {
+            time.setTime(timeMs);
+            Graphics2D graphics = frame.createGraphics();
+            if (state.ambient) {
+                /* Ambient frames are composed whole, static layer first. */
+                target.setGraphics(graphics);
+                renderer.drawStaticLayer(target);
+            } else if (staticLayerDay != time.getLocalDay()) {
+                Graphics2D layer = staticLayer.createGraphics();
+                target.setGraphics(layer);
+                renderer.drawStaticLayer(target);
+                layer.dispose();
+                staticLayerDay = time.getLocalDay();
+            }
+            target.setGraphics(graphics);
+            renderer.drawFrame(target);
+            graphics.dispose();
+        }
+
+        /**
+         * Brings {@code frame} from the last frame drawn to {@code timeMs} the way the engine
+         * does: nothing if the renderer finds no damage, only the damage if it is partial and
+         * the face interactive, a whole frame otherwise. Returns the pixels redrawn.
+         */
+        long update(BufferedImage frame, long timeMs) {
+            time.setTime(timeMs);
+            int damage = renderer.computeDamage();
+            if (damage == FaceRenderer.DAMAGE_NONE) {
+                return 0;
+            }
+            if (damage == FaceRenderer.DAMAGE_FULL || state.ambient
+                    || staticLayerDay != time.getLocalDay()) {
+                draw(frame, timeMs);
+                return (long) screen.width * screen.height;
+            }
+            int left = renderer.getDamageLeft();
+            int top = renderer.getDamageTop();
+            int right = renderer.getDamageRight();
+            int bottom = renderer.getDamageBottom();
+            Graphics2D graphics = frame.createGraphics();
+            /* Like the canvas of a surface locked for a dirty rectangle. */
+            graphics.clipRect(left, top, right - left, bottom - top);
+            target.setGraphics(graphics);
+            renderer.drawDamage(target, left, top, right, bottom);
+            graphics.dispose();
+            return (long) (right - left) * (bottom - top);
+        }
+    }
+
+    /**
+     * Renders one frame as it would appear on the screen, burn-in shift and round mask
+     * included.
+     */
+    BufferedImage render(Screen screen, FaceState state, long timeMs) {
+        BufferedImage frame = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_INT_RGB);
+        new Face(screen, state).draw(frame, timeMs);
+        return present(screen, state, frame, timeMs);
+    }
+
+    /**
+     * Renders {@code times} in order into one frame, each drawn as an update of the one before
+     * with {@link Face#update}, and returns the last as it would appear on the screen.
+     * {@code redrawn}, if not null, receives the pixels each update redrew.
+     */
+    BufferedImage renderUpdates(Screen screen, FaceState state, long[] times, long[] redrawn) {
+        BufferedImage frame = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_INT_RGB);
+        Face face = new Face(screen, state);
+        for (int i = 0; i < times.length; i++) {
+            long pixels = face.update(frame, times[i]);
+            if (redrawn != null) {
+                redrawn[i] = pixels;
+            }
+        }
+        return present(screen, state, frame, times[times.length - 1]);
+    }
+
+    /* The frame as the screen shows it: round mask and burn-in shift applied. */
+    private static BufferedImage present(Screen screen, FaceState state, BufferedImage frame,
+            long timeMs) {
+        BufferedImage visible = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = visible.createGraphics();
+        if (screen.round) {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_OFF);
+            graphics.setClip(new Ellipse2D.Float(0, 0, screen.width, screen.height));
+        }
+        int shiftX = 0;
+        int shiftY = 0;
+        if (state.ambient && state.burnIn) {
+            long minute = timeMs / MINUTE_MS;
+            shiftX = BurnInShift.getOffsetX(minute);
+            shiftY = BurnInShift.getOffsetY(minute);
+        }
+        graphics.drawImage(frame, shiftX, shiftY, null);
+        graphics.dispose();
+        return visible;
+    }
+
+    /**
+     * Times {@code frames} draws cycling through {@code times}, after as many warm-up draws.
+     * Interactive draws blit the cached static layer; ambient draws are full compositions, the
+     * cost of the once-a-minute ambient wake.
+     */
+    LatencyHistogram time(Screen screen, FaceState state, long[] times, int frames) {
+        Face face = new Face(screen, state);
+        BufferedImage frame = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < frames; i++) {
+            face.draw(frame, times[i % times.length]);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < frames; i++) {
+            long startNs = System.nanoTime();
+            face.draw(frame, times[i % times.length]);
+            histogram.record((System.nanoTime() - startNs) / 1000);
+        }
+        return histogram;
+    }
+
+    static List<Screen> screens(int[] sizes) {
+        List<Screen> screens = new ArrayList<Screen>();
+        for (int size : sizes) {
+            screens.add(new Screen(size, size, false));
+            screens.add(new Screen(size, size, true));
+        }
+        return screens;
+    }
+
+    /** The default timestamps, read as local times in {@code timeZone}. */
+    static long[] defaultTimes(TimeZone timeZone) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+        format.setTimeZone(timeZone);
+        long[] times = new long[DEFAULT_TIMES.length];
+        for (int t = 0; t < times.length; t++) {
+            times[t] = format.parse(DEFAULT_TIMES[t]).getTime();
+        }
+        return times;
+    }
+
+    static String frameName(Screen screen, FaceState state, long timeMs) {
+        return screen.getName() + "-" + state.name + "-" + timeMs + ".png";
+    }
+
+    private static BufferedImage scale(BufferedImage source, Screen screen) {
+        BufferedImage scaled = new BufferedImage(screen.width, screen.height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, screen.width, screen.height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    /* White with the source's luminance as alpha, like BitmapLoader.decodeLuminanceMask. */
+    private static BufferedImage luminanceMask(BufferedImage source) {
+        BufferedImage mask = new BufferedImage(source.getWidth(), source.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                int argb = source.getRGB(x, y);
+                int luminance = (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150
+                        + (argb & 0xFF) * 29) >> 8;
+                int alpha = (luminance * (argb >>> 24)) / 255;
+                mask.setRGB(x, y, (alpha << 24) | 0xFFFFFF);
+            }
+        }
+        return mask;
+    }
+
+    /** Share of pixels differing by more than the tolerance in any channel, 1 if sizes differ. */
+    static double difference(BufferedImage expected, BufferedImage actual) {
+        if (expected.getWidth() != actual.getWidth()
+                || expected.getHeight() != actual.getHeight()) {
+            return 1;
+        }
+        int differing = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    if (Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF))
+                            > PIXEL_TOLERANCE) {
+                        differing++;
+                        break;
+                    }
+                }
+            }
+        }
+        return differing / (double) (expected.getWidth() * expected.getHeight());
+    }
+
+    public static void main(String[] args) throws IOException, ParseException {
+        File drawables = new File("../wear/src/main/res/drawable");
+        File out = new File("build/goldens");
+        File compare = null;
+        int[] sizes = SIZES;
+        long[] times = null;
+        int frames = 200;
+        TimeZone timeZone = TimeZone.getTimeZone("UTC");
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            if (arg.equals("--drawables")) {
+                drawables = new File(value);
+            } else if (arg.equals("--out")) {
+                out = new File(value);
+            } else if (arg.equals("--compare")) {
+                compare = new File(value);
+            } else if (arg.equals("--sizes")) {
+                String[] values = value.split(",");
+                sizes = new int[values.length];
+                for (int s = 0; s < values.length; s++) {
+                    sizes[s] = Integer.parseInt(values[s].trim());
+                }
+            } else if (arg.equals("--times")) {
+                String[] values = value.split(",");
+                times = new long[values.length];
+                for (int t = 0; t < values.length; t++) {
+                    times[t] = Long.parseLong(values[t].trim());
+                }
+            } else if (arg.equals("--frames")) {
+                frames = Integer.parseInt(value);
+            } else if (arg.equals("--zone")) {
+                timeZone = TimeZone.getTimeZone(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (times == null) {
+            times = defaultTimes(timeZone);
+        }
+        if (!out.isDirectory() && !out.mkdirs()) {
+            throw new IOException("Cannot create " + out);
+        }
+
+        HeadlessRenderer headless = new HeadlessRenderer(drawables, timeZone);
+        List<String> mismatches = new ArrayList<String>();
+        PrintWriter report = frames > 0
+                ? new PrintWriter(new FileWriter(new File(out, "timings.txt"))) : null;
+        try {
+            if (report != null) {
+                report.println(String.format(Locale.US, "%-40s %8s %8s %8s %8s %8s",
+                        "configuration", "frames", "mean_us", "p50_us", "p99_us", "max_us"));
+            }
+            for (Screen screen : screens(sizes)) {
+                for (FaceState state : STATES) {
+                    for (long timeMs : times) {
+                        String name = frameName(screen, state, timeMs);
+                        BufferedImage image = headless.render(screen, state, timeMs);
+                        ImageIO.write(image, "png", new File(out, name));
+                        if (compare != null) {
+                            File golden = new File(compare, name);
+                            if (!golden.isFile()) {
+                                mismatches.add(name + ": no golden");
+                            } else {
+                                double difference = difference(read(golden), image);
+                                if (difference > MAX_DIFFERING_PIXELS) {
+                                    mismatches.add(String.format(Locale.US,
+                                            "%s: %.2f%% of pixels differ", name,
+                                            difference * 100));
+                                }
+                            }
+                        }
+                    }
+                    if (report == null) {
+                        continue;
+                    }
+                    LatencyHistogram histogram = headless.time(screen, state, times, frames);
+                    report.println(String.format(Locale.US, "%-40s %8d %8d %8d %8d %8d",
+                            screen.getName() + "-" + state.name, histogram.getCount(),
+                            histogram.getMeanUs(), histogram.getPercentileUs(50),
+                            histogram.getPercentileUs(99), histogram.getMaxUs()));
+                }
+            }
+        } finally {
+            if (report != null) {
+                report.close();
+            }
+        }
+        System.out.println((report != null ? "Frames and timings.txt" : "Frames")
+                + " written to " + out);
+
+        if (!mismatches.isEmpty()) {
+            for (String mismatch : mismatches) {
+                System.err.println(mismatch);
+            }
+            System.err.println(mismatches.size() + " frames differ from " + compare);
+            System.exit(1);
+        }
+    }
+}
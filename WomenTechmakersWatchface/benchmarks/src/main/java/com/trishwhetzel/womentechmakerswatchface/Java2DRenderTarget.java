@@ -0,0 +1,150 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link RenderTarget} that rasterizes with Java2D, so frames can be rendered on a build host
+ * without a device or emulator. Paints are styled from the same {@link PaintStyle} table as the
+ * engine's, for the default (non palette) colors, minus the hand shadows, which Java2D has no
+ * cheap equivalent for.
+ */
+final class Java2DRenderTarget implements RenderTarget {
+
+    private static final int PAINT_COUNT = PaintStyle.PAINT_COUNT;
+
+    private final Color[] mColors = new Color[PAINT_COUNT];
+    private final BasicStroke[] mStrokes = new BasicStroke[PAINT_COUNT];
+    private final boolean[] mAntiAlias = new boolean[PAINT_COUNT];
+    private final boolean[] mFill = new boolean[PAINT_COUNT];
+    private final Font mFont;
+    private final Font mFieldFont;
+
+    private final BufferedImage mBackground;
+    private final BufferedImage mAmbientMask;
+    private BufferedImage mStaticLayer;
+    private Graphics2D mGraphics;
+
+    /**
+     * @param background interactive background at surface size, or null for black
+     * @param ambientMask ambient background as white with luminance alpha, or null for none
+     */
+    Java2DRenderTarget(HeadlessRenderer.FaceState state, BufferedImage background,
+            BufferedImage ambientMask, float textSize, float fieldTextSize) {
+        mBackground = background;
+        mAmbientMask = ambientMask;
+        mFont = new Font(Font.SANS_SERIF, Font.PLAIN, Math.round(textSize));
+        mFieldFont = new Font(Font.SANS_SERIF, Font.PLAIN, Math.round(fieldTextSize));
+
+        PaintStyle style = new PaintStyle(state.ambient, state.lowBit, state.mute,
+                PaintStyle.DEFAULT_HAND_COLOR, PaintStyle.DEFAULT_HIGHLIGHT_COLOR);
+        for (int paint = 0; paint < PAINT_COUNT; paint++) {
+            mColors[paint] = new Color(style.getColor(paint), true);
+            mStrokes[paint] = new BasicStroke(PaintStyle.getStrokeWidth(paint),
+                    PaintStyle.hasRoundCap(paint) ? BasicStroke.CAP_ROUND : BasicStroke.CAP_BUTT,
+                    BasicStroke.JOIN_MITER);
+            mAntiAlias[paint] = style.isAntiAlias(paint);
+            mFill[paint] = PaintStyle.isFilled(paint);
+        }
+    }
+
+    /** Directs drawing to {@code graphics} until the next call. */
+    void setGraphics(Graphics2D graphics) {
+        mGraphics = graphics;
+    }
+
+    /** Sets the pre-composited layer that {@link #drawStaticLayer} blits in interactive mode. */
+    void setStaticLayer(BufferedImage staticLayer) {
+        mStaticLayer = staticLayer;
+    }
+
+    private Graphics2D use(int paint) {
+        mGraphics.setColor(mColors[paint]);
+        mGraphics.setStroke(mStrokes[paint]);
+        Object antiAlias = mAntiAlias[paint]
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+        mGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antiAlias);
+        mGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, mAntiAlias[paint]
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        return mGraphics;
+    }
+
+    @Override
+    public void drawBackground(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        mGraphics.setComposite(AlphaComposite.Src);
+        mGraphics.setColor(Color.BLACK);
+        mGraphics.fillRect(0, 0, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2);
+        mGraphics.setComposite(AlphaComposite.SrcOver);
+        BufferedImage image = ambient ? mAmbientMask : mBackground;
+        if (image != null) {
+            blit(image, visibleLeft, visibleTop, visibleRight, visibleBottom);
+        }
+    }
+
+    @Override
+    public void drawStaticLayer(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        /* Ambient frames are composed whole, like on the watch, so there is no layer to blit. */
+        if (!ambient) {
+            blit(mStaticLayer, visibleLeft, visibleTop, visibleRight, visibleBottom);
+        }
+    }
+
+    /* Copies one rectangle of a surface-sized image to the same place. */
+    private void blit(BufferedImage image, int left, int top, int right, int bottom) {
+        mGraphics.drawImage(image, left, top, right, bottom, left, top, right, bottom, null);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int paint) {
+        use(paint).draw(new Line2D.Float(startX, startY, stopX, stopY));
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int paint) {
+        /* Canvas sorts inverted rectangles, the date box is given bottom-up. */
+        Rectangle2D.Float rect = new Rectangle2D.Float(Math.min(left, right),
+                Math.min(top, bottom), Math.abs(right - left), Math.abs(bottom - top));
+        if (mFill[paint]) {
+            use(paint).fill(rect);
+        } else {
+            use(paint).draw(rect);
+        }
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, int paint) {
+        Ellipse2D.Float circle = new Ellipse2D.Float(centerX - radius, centerY - radius,
+                2 * radius, 2 * radius);
+        if (mFill[paint]) {
+            use(paint).fill(circle);
+        } else {
+            use(paint).draw(circle);
+        }
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, int paint) {
+        Graphics2D graphics = use(paint);
+        graphics.setFont(paint == PAINT_FIELD ? mFieldFont : mFont);
+        graphics.drawString(text, x, y);
+    }
+
+    @Override
+    public void drawHand(int paint, int step, float centerX, float centerY,
+            float startRadius, float endRadius) {
+        float sin = DialGeometry.sin(step);
+        float cos = DialGeometry.cos(step);
+        use(paint).draw(new Line2D.Float(centerX + sin * startRadius, centerY - cos * startRadius,
+                centerX + sin * endRadius, centerY - cos * endRadius));
+    }
+}
@@ -0,0 +1,104 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * {@link RenderTarget} that records every call into preallocated arrays, standing in for a
+ * canvas off-device. Recording keeps the arguments alive so the JIT can't drop the geometry
+ * math that produced them; {@link #reset()} rewinds for the next frame.
+ */
+final class RecordingRenderTarget implements RenderTarget {
+    static final int OP_BACKGROUND = 0;
+    static final int OP_STATIC_LAYER = 1;
+    static final int OP_LINE = 2;
+    static final int OP_RECT = 3;
+    static final int OP_CIRCLE = 4;
+    static final int OP_TEXT = 5;
+    static final int OP_HAND = 6;
+
+    private static final int MAX_OPS = 256;
+    private static final int ARGS_PER_OP = 5;
+
+    private final int[] mOps = new int[MAX_OPS];
+    private final int[] mPaints = new int[MAX_OPS];
+    private final float[] mArgs = new float[MAX_OPS * ARGS_PER_OP];
+    private final String[] mTexts = new String[MAX_OPS];
+    private int mCount;
+
+    void reset() {
+        mCount = 0;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getOp(int index) {
+        return mOps[index];
+    }
+
+    int getPaint(int index) {
+        return mPaints[index];
+    }
+
+    float getArg(int index, int arg) {
+        return mArgs[index * ARGS_PER_OP + arg];
+    }
+
+    String getText(int index) {
+        return mTexts[index];
+    }
+
+    private void record(int op, float a, float b, float c, float d, int paint) {
+        record(op, a, b, c, d, 0, paint);
+    }
+
+    private void record(int op, float a, float b, float c, float d, float e, int paint) {
+        int index = mCount++;
+        mOps[index] = op;
+        mPaints[index] = paint;
+        int base = index * ARGS_PER_OP;
+        mArgs[base] = a;
+        mArgs[base + 1] = b;
+        mArgs[base + 2] = c;
+        mArgs[base + 3] = d;
+        mArgs[base + 4] = e;
+    }
+
+    @Override
+    public void drawBackground(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        record(OP_BACKGROUND, ambient ? 1 : 0, visibleTop, visibleBottom, 0, -1);
+    }
+
+    @Override
+    public void drawStaticLayer(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        record(OP_STATIC_LAYER, ambient ? 1 : 0, visibleTop, visibleBottom, 0, -1);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int paint) {
+        record(OP_LINE, startX, startY, stopX, stopY, paint);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int paint) {
+        record(OP_RECT, left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, int paint) {
+        record(OP_CIRCLE, centerX, centerY, radius, 0, paint);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, int paint) {
+        mTexts[mCount] = text;
+        record(OP_TEXT, x, y, 0, 0, paint);
+    }
+
+    @Override
+    public void drawHand(int paint, int step, float centerX, float centerY,
+            float startRadius, float endRadius) {
+        record(OP_HAND, step, centerX, centerY, startRadius, endRadius, paint);
+    }
+}
@@ -0,0 +1,68 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame time decomposition with {@link TimeEngine}, against the {@link Calendar} and
+ * {@link SimpleDateFormat} code it replaced in onDraw.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeDecompositionBenchmark {
+    private static final TimeZone ZONE = TimeZone.getTimeZone("America/New_York");
+
+    private TimeEngine mTime;
+    private Calendar mCalendar;
+    private long mTimeMs;
+
+    @Setup
+    public void setUp() {
+        mTime = new TimeEngine(ZONE, Locale.US);
+        mCalendar = Calendar.getInstance(ZONE, Locale.US);
+        mTimeMs = 1460000000000L;
+    }
+
+    @Benchmark
+    public void timeEngine(Blackhole blackhole) {
+        mTimeMs += 1000;
+        mTime.setTime(mTimeMs);
+        blackhole.consume(mTime.getHour());
+        blackhole.consume(mTime.getMinute());
+        blackhole.consume(mTime.getSecond());
+        blackhole.consume(mTime.getMillisecond());
+        blackhole.consume(mTime.getDayName());
+        blackhole.consume(mTime.getDayOfMonthText());
+    }
+
+    @Benchmark
+    public void calendar(Blackhole blackhole) {
+        mTimeMs += 1000;
+        mCalendar.setTimeInMillis(mTimeMs);
+        blackhole.consume(mCalendar.get(Calendar.HOUR));
+        blackhole.consume(mCalendar.get(Calendar.MINUTE));
+        blackhole.consume(mCalendar.get(Calendar.SECOND));
+        blackhole.consume(mCalendar.get(Calendar.MILLISECOND));
+        blackhole.consume(new SimpleDateFormat("EEE").format(mCalendar.getTime()));
+        blackhole.consume(new SimpleDateFormat("dd").format(mCalendar.getTime()));
+    }
+}
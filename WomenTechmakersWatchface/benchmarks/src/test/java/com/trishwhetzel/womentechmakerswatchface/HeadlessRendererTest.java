@@ -0,0 +1,131 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class HeadlessRendererTest {
+    /* 2016-03-08 10:10:31.500 UTC */
+    private static final long TIME_MS = 1457431831500L;
+
+    /* Regenerate with the command in the HeadlessRenderer docs after changing how frames look. */
+    private static final File GOLDENS = new File("src/test/goldens");
+    private static final int[] GOLDEN_SIZES = {320};
+
+    private static HeadlessRenderer sRenderer;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        File drawables = new File("../wear/src/main/res/drawable");
+        sRenderer = new HeadlessRenderer(drawables, TimeZone.getTimeZone("UTC"));
+    }
+
+    @Test
+    public void rendersEveryStateDeterministically() {
+        HeadlessRenderer.Screen screen = new HeadlessRenderer.Screen(320, 320, true);
+        for (HeadlessRenderer.FaceState state : HeadlessRenderer.STATES) {
+            BufferedImage first = sRenderer.render(screen, state, TIME_MS);
+            BufferedImage second = sRenderer.render(screen, state, TIME_MS);
+            assertEquals(state.name, 0.0, HeadlessRenderer.difference(first, second), 0.0);
+            assertTrue(state.name, countLit(first) > 0);
+        }
+    }
+
+    @Test
+    public void framesMatchTheGoldens() throws IOException, ParseException {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        for (HeadlessRenderer.Screen screen : HeadlessRenderer.screens(GOLDEN_SIZES)) {
+            for (HeadlessRenderer.FaceState state : HeadlessRenderer.STATES) {
+                for (long timeMs : HeadlessRenderer.defaultTimes(utc)) {
+                    String name = HeadlessRenderer.frameName(screen, state, timeMs);
+                    File golden = new File(GOLDENS, name);
+                    assertTrue(name + " has no golden", golden.isFile());
+                    double difference = HeadlessRenderer.difference(
+                            HeadlessRenderer.read(golden), sRenderer.render(screen, state, timeMs));
+                    assertTrue(name + " differs in " + difference * 100 + "% of pixels",
+                            difference <= HeadlessRenderer.MAX_DIFFERING_PIXELS);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundScreensAreBlackOutsideTheCircle() {
+        BufferedImage image = sRenderer.render(new HeadlessRenderer.Screen(360, 360, true),
+                HeadlessRenderer.STATES[0], TIME_MS);
+        assertEquals(0, image.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0, image.getRGB(359, 359) & 0xFFFFFF);
+    }
+
+    @Test
+    public void lowBitAmbientIsBlackAndWhite() {
+        HeadlessRenderer.FaceState lowBit = HeadlessRenderer.STATES[3];
+        assertTrue(lowBit.lowBit && lowBit.ambient);
+        BufferedImage image = sRenderer.render(new HeadlessRenderer.Screen(400, 400, false),
+                lowBit, TIME_MS);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y) & 0xFFFFFF;
+                assertTrue("pixel " + x + "," + y, rgb == 0 || rgb == 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void burnInShiftMovesTheFrame() {
+        HeadlessRenderer.Screen screen = new HeadlessRenderer.Screen(320, 320, false);
+        long minute = TIME_MS / 60000;
+        int x = BurnInShift.getOffsetX(minute);
+        int y = BurnInShift.getOffsetY(minute);
+        assertFalse(x == 0 && y == 0);
+        BufferedImage shifted = sRenderer.render(screen, HeadlessRenderer.STATES[5], TIME_MS);
+        BufferedImage plain = sRenderer.render(screen, HeadlessRenderer.STATES[3], TIME_MS);
+        assertTrue(HeadlessRenderer.difference(plain, shifted) > 0);
+    }
+
+    @Test
+    public void partialUpdatesMatchFullFrames() {
+        HeadlessRenderer.Screen screen = new HeadlessRenderer.Screen(320, 320, true);
+        /* A second, the turn of the minute, and a repeat of the same time. */
+        long[] times = {TIME_MS, TIME_MS + 1000, TIME_MS + 29000, TIME_MS + 29000};
+        long[] redrawn = new long[times.length];
+        BufferedImage updated = sRenderer.renderUpdates(screen, HeadlessRenderer.STATES[0],
+                times, redrawn);
+        BufferedImage full = sRenderer.render(screen, HeadlessRenderer.STATES[0],
+                times[times.length - 1]);
+        assertEquals(0.0, HeadlessRenderer.difference(full, updated), 0.0);
+
+        assertEquals(320 * 320, redrawn[0]);
+        /* One step of the second hand redraws a fraction of the screen. */
+        assertTrue(redrawn[1] > 0 && redrawn[1] < 320 * 320 / 4);
+        assertTrue(redrawn[2] > redrawn[1]);
+        assertEquals(0, redrawn[3]);
+    }
+
+    @Test
+    public void timesEveryFrame() {
+        LatencyHistogram histogram = sRenderer.time(new HeadlessRenderer.Screen(454, 454, false),
+                HeadlessRenderer.STATES[0], new long[] {TIME_MS, TIME_MS + 1000}, 20);
+        assertEquals(20, histogram.getCount());
+    }
+
+    private static int countLit(BufferedImage image) {
+        int lit = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFFFFFF) != 0) {
+                    lit++;
+                }
+            }
+        }
+        return lit;
+    }
+}
@@ -0,0 +1,141 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Phone side of the settings sync. Setters only record the new value; changes are batched and
+ * sent {@link #DEBOUNCE_MS} after the last one (at most {@link #MAX_BATCH_DELAY_MS} after the
+ * first), and only keys whose value differs from what was last sent are written. Dragging a
+ * color picker therefore ends up as one Data Layer item, not a stream of them, each of which
+ * would wake the watch's radio and redraw the face.
+ */
+public final class ConfigSync {
+
+    public static final long DEBOUNCE_MS = 500;
+    public static final long MAX_BATCH_DELAY_MS = 2000;
+
+    /** Where settings are written; the Wearable Data Layer on the phone. */
+    public interface DataLayer {
+        void putDataItem(String path, byte[] data);
+    }
+
+    /** Runs the delayed flush; a Handler on the phone. */
+    public interface Scheduler {
+        long uptimeMillis();
+
+        void schedule(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    private final DataLayer mDataLayer;
+    private final Scheduler mScheduler;
+
+    private final int[] mPending = new int[FaceConfig.KEY_COUNT];
+    private final boolean[] mHasPending = new boolean[FaceConfig.KEY_COUNT];
+    private final int[] mSent = new int[FaceConfig.KEY_COUNT];
+    private final boolean[] mHasSent = new boolean[FaceConfig.KEY_COUNT];
+
+    private boolean mBatchOpen;
+    private long mBatchStartMs;
+    private int mItemsSent;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public ConfigSync(DataLayer dataLayer, Scheduler scheduler) {
+        mDataLayer = dataLayer;
+        mScheduler = scheduler;
+    }
+
+    /** Hand color as ARGB, or {@link FaceConfig#COLOR_FROM_PALETTE}. */
+    public void setHandColor(int color) {
+        set(FaceConfig.KEY_HAND_COLOR, color);
+    }
+
+    /** Second hand, date and battery color as ARGB, or {@link FaceConfig#COLOR_FROM_PALETTE}. */
+    public void setHighlightColor(int color) {
+        set(FaceConfig.KEY_HIGHLIGHT_COLOR, color);
+    }
+
+    /** One of the {@code FaceConfig.UPDATE_MODE_*} values. */
+    public void setUpdateMode(int mode) {
+        set(FaceConfig.KEY_UPDATE_MODE, mode);
+    }
+
+    /** Frame rate of {@link FaceConfig#UPDATE_MODE_SWEEP}: 15, 30 or 60. */
+    public void setSweepFps(int fps) {
+        set(FaceConfig.KEY_SWEEP_FPS, fps);
+    }
+
+    /** Index of the second time zone, see {@link FaceConfig#getSecondTimeZoneId}. */
+    public void setSecondTimeZone(int index) {
+        set(FaceConfig.KEY_SECOND_TIME_ZONE, index);
+    }
+
+    public void setShowBattery(boolean show) {
+        set(FaceConfig.KEY_SHOW_BATTERY, show ? 1 : 0);
+    }
+
+    public void setShowDate(boolean show) {
+        set(FaceConfig.KEY_SHOW_DATE, show ? 1 : 0);
+    }
+
+    private void set(int key, int value) {
+        if (!FaceConfig.isValid(key, value)) {
+            throw new IllegalArgumentException("Invalid value " + value + " for key " + key);
+        }
+        mPending[key] = value;
+        mHasPending[key] = true;
+
+        long now = mScheduler.uptimeMillis();
+        if (!mBatchOpen) {
+            mBatchOpen = true;
+            mBatchStartMs = now;
+        }
+        long delayMs = Math.min(DEBOUNCE_MS, mBatchStartMs + MAX_BATCH_DELAY_MS - now);
+        mScheduler.cancel(mFlush);
+        mScheduler.schedule(mFlush, Math.max(0, delayMs));
+    }
+
+    /**
+     * Sends pending changes now, e.g. when the settings screen closes. Returns the number of
+     * items written, which is zero if every pending value matches what was last sent.
+     */
+    public int flush() {
+        mScheduler.cancel(mFlush);
+        mBatchOpen = false;
+        int written = 0;
+        for (int key = 0; key < FaceConfig.KEY_COUNT; key++) {
+            if (!mHasPending[key]) {
+                continue;
+            }
+            mHasPending[key] = false;
+            int value = mPending[key];
+            if (mHasSent[key] && mSent[key] == value) {
+                continue;
+            }
+            mDataLayer.putDataItem(FaceConfig.pathFor(key), FaceConfig.encode(value));
+            mSent[key] = value;
+            mHasSent[key] = true;
+            written++;
+        }
+        mItemsSent += written;
+        return written;
+    }
+
+    /**
+     * Records a value already on the Data Layer, e.g. read back at startup, so setting it
+     * again doesn't send anything.
+     */
+    public void setSent(int key, int value) {
+        mSent[key] = value;
+        mHasSent[key] = true;
+    }
+
+    public int getItemsSent() {
+        return mItemsSent;
+    }
+}
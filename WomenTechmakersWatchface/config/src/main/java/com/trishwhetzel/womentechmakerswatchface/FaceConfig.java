@@ -0,0 +1,120 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Settings the phone syncs to the watch and their wire format. Every setting is an int and is
+ * sent as its own Data Layer item under {@link #PATH_PREFIX}, holding just the 4 bytes of the
+ * value, so a change only ever transfers and notifies the keys that actually changed.
+ */
+public final class FaceConfig {
+
+    public static final String PATH_PREFIX = "/wtm_config/";
+
+    public static final int KEY_HAND_COLOR = 0;
+    public static final int KEY_HIGHLIGHT_COLOR = 1;
+    public static final int KEY_UPDATE_MODE = 2;
+    public static final int KEY_SHOW_BATTERY = 3;
+    public static final int KEY_SHOW_DATE = 4;
+    public static final int KEY_SWEEP_FPS = 5;
+    public static final int KEY_SECOND_TIME_ZONE = 6;
+    public static final int KEY_COUNT = 7;
+
+    /** Hand color value meaning "use the colors extracted from the background". */
+    public static final int COLOR_FROM_PALETTE = 0;
+
+    /* Update rate modes; part of the wire format, so never renumber them. */
+    public static final int UPDATE_MODE_SWEEP = 0;
+    public static final int UPDATE_MODE_TICK = 1;
+    public static final int UPDATE_MODE_POWER_SAVER = 2;
+
+    /*
+     * Time zones the second time zone field can show, by the index that is synced. Only ever
+     * append to this list: the phone and the watch may run different versions.
+     */
+    private static final String[] SECOND_TIME_ZONE_IDS = {
+            "UTC", "America/Los_Angeles", "America/Denver", "America/Chicago",
+            "America/New_York", "America/Sao_Paulo", "Europe/London", "Europe/Paris",
+            "Africa/Lagos", "Africa/Nairobi", "Europe/Moscow", "Asia/Dubai", "Asia/Kolkata",
+            "Asia/Shanghai", "Asia/Tokyo", "Australia/Sydney", "Pacific/Auckland",
+    };
+
+    private static final String[] NAMES = {
+            "hand_color", "highlight_color", "update_mode", "show_battery", "show_date",
+            "sweep_fps", "second_time_zone",
+    };
+
+    private static final String[] PATHS = new String[KEY_COUNT];
+
+    private static final int[] DEFAULTS = {
+            COLOR_FROM_PALETTE, COLOR_FROM_PALETTE, UPDATE_MODE_TICK, 1, 1, 60, 0,
+    };
+
+    static {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            PATHS[key] = PATH_PREFIX + NAMES[key];
+        }
+    }
+
+    private FaceConfig() {
+    }
+
+    public static String pathFor(int key) {
+        return PATHS[key];
+    }
+
+    /** Returns the key stored at {@code path}, or -1 if it isn't one of ours. */
+    public static int keyForPath(String path) {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            if (PATHS[key].equals(path)) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    public static int defaultValue(int key) {
+        return DEFAULTS[key];
+    }
+
+    /** Whether {@code value} is acceptable for {@code key}; anything else is ignored. */
+    public static boolean isValid(int key, int value) {
+        switch (key) {
+            case KEY_UPDATE_MODE:
+                return value == UPDATE_MODE_SWEEP || value == UPDATE_MODE_TICK
+                        || value == UPDATE_MODE_POWER_SAVER;
+            case KEY_SHOW_BATTERY:
+            case KEY_SHOW_DATE:
+                return value == 0 || value == 1;
+            case KEY_SWEEP_FPS:
+                return value == 15 || value == 30 || value == 60;
+            case KEY_SECOND_TIME_ZONE:
+                return value >= 0 && value < SECOND_TIME_ZONE_IDS.length;
+            default:
+                return true;
+        }
+    }
+
+    /** Number of time zones {@link #KEY_SECOND_TIME_ZONE} can pick from. */
+    public static int getSecondTimeZoneCount() {
+        return SECOND_TIME_ZONE_IDS.length;
+    }
+
+    /** The {@link java.util.TimeZone} id of a {@link #KEY_SECOND_TIME_ZONE} value. */
+    public static String getSecondTimeZoneId(int index) {
+        return SECOND_TIME_ZONE_IDS[index];
+    }
+
+    public static byte[] encode(int value) {
+        return new byte[] {
+                (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value,
+        };
+    }
+
+    /** Decodes a value written by {@link #encode}; throws if {@code data} is malformed. */
+    public static int decode(byte[] data) {
+        if (data == null || data.length != 4) {
+            throw new IllegalArgumentException("Expected 4 bytes of config data");
+        }
+        return (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8
+                | (data[3] & 0xFF);
+    }
+}
@@ -0,0 +1,109 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Watch side of the settings sync. Data Layer changes are staged with {@link #update} or
+ * {@link #remove} and then applied together by {@link #commit}, which tells the listener once
+ * which groups of settings changed, so the face only restyles what it has to and redraws once
+ * per batch.
+ */
+public final class WatchConfig {
+
+    public static final int CHANGED_COLORS = 1;
+    public static final int CHANGED_UPDATE_MODE = 1 << 1;
+    public static final int CHANGED_FIELDS = 1 << 2;
+
+    public interface Listener {
+        /** {@code changes} is a combination of the {@code CHANGED_*} flags, never 0. */
+        void onConfigChanged(WatchConfig config, int changes);
+    }
+
+    private final Listener mListener;
+    private final int[] mValues = new int[FaceConfig.KEY_COUNT];
+    private int mChanges;
+
+    public WatchConfig(Listener listener) {
+        mListener = listener;
+        for (int key = 0; key < FaceConfig.KEY_COUNT; key++) {
+            mValues[key] = FaceConfig.defaultValue(key);
+        }
+    }
+
+    /**
+     * Stages the item at {@code path}. Returns whether it changed a setting; items of other
+     * paths, malformed or invalid values and unchanged values are ignored.
+     */
+    public boolean update(String path, byte[] data) {
+        int key = FaceConfig.keyForPath(path);
+        if (key < 0 || data == null || data.length != 4) {
+            return false;
+        }
+        int value = FaceConfig.decode(data);
+        return FaceConfig.isValid(key, value) && set(key, value);
+    }
+
+    /** Stages the deletion of the item at {@code path}, which restores the default. */
+    public boolean remove(String path) {
+        int key = FaceConfig.keyForPath(path);
+        return key >= 0 && set(key, FaceConfig.defaultValue(key));
+    }
+
+    private boolean set(int key, int value) {
+        if (mValues[key] == value) {
+            return false;
+        }
+        mValues[key] = value;
+        mChanges |= groupOf(key);
+        return true;
+    }
+
+    private static int groupOf(int key) {
+        switch (key) {
+            case FaceConfig.KEY_HAND_COLOR:
+            case FaceConfig.KEY_HIGHLIGHT_COLOR:
+                return CHANGED_COLORS;
+            case FaceConfig.KEY_UPDATE_MODE:
+            case FaceConfig.KEY_SWEEP_FPS:
+                return CHANGED_UPDATE_MODE;
+            default:
+                return CHANGED_FIELDS;
+        }
+    }
+
+    /** Notifies the listener of everything staged since the last commit, if anything. */
+    public void commit() {
+        int changes = mChanges;
+        if (changes != 0) {
+            mChanges = 0;
+            mListener.onConfigChanged(this, changes);
+        }
+    }
+
+    public int getHandColor() {
+        return mValues[FaceConfig.KEY_HAND_COLOR];
+    }
+
+    public int getHighlightColor() {
+        return mValues[FaceConfig.KEY_HIGHLIGHT_COLOR];
+    }
+
+    public int getUpdateMode() {
+        return mValues[FaceConfig.KEY_UPDATE_MODE];
+    }
+
+    public int getSweepFps() {
+        return mValues[FaceConfig.KEY_SWEEP_FPS];
+    }
+
+    public boolean isBatteryShown() {
+        return mValues[FaceConfig.KEY_SHOW_BATTERY] != 0;
+    }
+
+    public boolean isDateShown() {
+        return mValues[FaceConfig.KEY_SHOW_DATE] != 0;
+    }
+
+    /** The {@link java.util.TimeZone} id of the second time zone field. */
+    public String getSecondTimeZoneId() {
+        return FaceConfig.getSecondTimeZoneId(mValues[FaceConfig.KEY_SECOND_TIME_ZONE]);
+    }
+}
@@ -0,0 +1,209 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class ConfigSyncTest {
+
+    /** Scheduler driven by hand: time only moves in {@link #advance}. */
+    private static final class FakeScheduler implements ConfigSync.Scheduler {
+        long mNow;
+        Runnable mTask;
+        long mDueMs;
+
+        @Override
+        public long uptimeMillis() {
+            return mNow;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            mTask = task;
+            mDueMs = mNow + delayMs;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (mTask == task) {
+                mTask = null;
+            }
+        }
+
+        void advance(long ms) {
+            long end = mNow + ms;
+            while (mTask != null && mDueMs <= end) {
+                mNow = mDueMs;
+                Runnable task = mTask;
+                mTask = null;
+                task.run();
+            }
+            mNow = end;
+        }
+    }
+
+    private FakeScheduler mScheduler;
+    private InMemoryDataLayer mDataLayer;
+    private ConfigSync mSync;
+    private List<Integer> mChanges;
+    private WatchConfig mWatch;
+
+    @Before
+    public void setUp() {
+        mScheduler = new FakeScheduler();
+        mDataLayer = new InMemoryDataLayer();
+        mSync = new ConfigSync(mDataLayer, mScheduler);
+        mChanges = new ArrayList<Integer>();
+        mWatch = new WatchConfig(new WatchConfig.Listener() {
+            @Override
+            public void onConfigChanged(WatchConfig config, int changes) {
+                mChanges.add(changes);
+            }
+        });
+    }
+
+    @Test
+    public void burstOfChangesIsSentOnceAfterDebounce() {
+        for (int i = 0; i < 50; i++) {
+            mSync.setHandColor(0xFF000000 | i);
+            mScheduler.advance(20);
+        }
+        assertEquals(0, mDataLayer.getPutCount());
+
+        mScheduler.advance(ConfigSync.DEBOUNCE_MS);
+        assertEquals(1, mDataLayer.getPutCount());
+        assertEquals(0xFF000031,
+                FaceConfig.decode(mDataLayer.get(FaceConfig.pathFor(FaceConfig.KEY_HAND_COLOR))));
+    }
+
+    @Test
+    public void onlyChangedKeysAreSent() {
+        mSync.setHandColor(0xFFFF0000);
+        mSync.setShowDate(false);
+        assertEquals(2, mSync.flush());
+
+        /* Same values again, plus one real change. */
+        mSync.setHandColor(0xFFFF0000);
+        mSync.setShowDate(false);
+        mSync.setUpdateMode(FaceConfig.UPDATE_MODE_SWEEP);
+        assertEquals(1, mSync.flush());
+        assertEquals(3, mSync.getItemsSent());
+
+        /* A change that is reverted within the batch sends nothing. */
+        mSync.setShowDate(true);
+        mSync.setShowDate(false);
+        assertEquals(0, mSync.flush());
+    }
+
+    @Test
+    public void continuousChangesStillFlushWithinMaxDelay() {
+        long elapsed = 0;
+        while (mDataLayer.getPutCount() == 0) {
+            mSync.setHighlightColor((int) elapsed);
+            mScheduler.advance(100);
+            elapsed += 100;
+            assertTrue(elapsed <= ConfigSync.MAX_BATCH_DELAY_MS + 100);
+        }
+        assertEquals(1, mDataLayer.getPutCount());
+    }
+
+    @Test
+    public void watchAppliesBatchWithOneNotification() {
+        mSync.setHandColor(0xFF00FF00);
+        mSync.setHighlightColor(0xFFFF00FF);
+        mSync.setShowBattery(false);
+        mScheduler.advance(ConfigSync.DEBOUNCE_MS);
+
+        assertEquals(3, mDataLayer.sync(mWatch));
+        assertEquals(1, mDataLayer.getDeliveryCount());
+        assertEquals(1, mChanges.size());
+        assertEquals(WatchConfig.CHANGED_COLORS | WatchConfig.CHANGED_FIELDS,
+                (int) mChanges.get(0));
+        assertEquals(0xFF00FF00, mWatch.getHandColor());
+        assertEquals(0xFFFF00FF, mWatch.getHighlightColor());
+        assertFalse(mWatch.isBatteryShown());
+        assertTrue(mWatch.isDateShown());
+        assertEquals(FaceConfig.UPDATE_MODE_TICK, mWatch.getUpdateMode());
+
+        /* Nothing new to deliver, so the watch isn't woken. */
+        assertEquals(0, mDataLayer.sync(mWatch));
+        assertEquals(1, mDataLayer.getDeliveryCount());
+    }
+
+    @Test
+    public void watchOnlyReportsGroupsThatChanged() {
+        mSync.setUpdateMode(FaceConfig.UPDATE_MODE_POWER_SAVER);
+        mSync.flush();
+        mDataLayer.sync(mWatch);
+        assertEquals(WatchConfig.CHANGED_UPDATE_MODE, (int) mChanges.get(0));
+        assertEquals(FaceConfig.UPDATE_MODE_POWER_SAVER, mWatch.getUpdateMode());
+
+        /* Deleting the item restores the default. */
+        mDataLayer.deleteDataItem(FaceConfig.pathFor(FaceConfig.KEY_UPDATE_MODE));
+        mDataLayer.sync(mWatch);
+        assertEquals(WatchConfig.CHANGED_UPDATE_MODE, (int) mChanges.get(1));
+        assertEquals(FaceConfig.UPDATE_MODE_TICK, mWatch.getUpdateMode());
+    }
+
+    @Test
+    public void sweepRateIsPartOfTheUpdateMode() {
+        assertEquals(60, mWatch.getSweepFps());
+        mSync.setSweepFps(15);
+        mSync.flush();
+        mDataLayer.sync(mWatch);
+        assertEquals(WatchConfig.CHANGED_UPDATE_MODE, (int) mChanges.get(0));
+        assertEquals(15, mWatch.getSweepFps());
+
+        assertFalse(mWatch.update(FaceConfig.pathFor(FaceConfig.KEY_SWEEP_FPS),
+                FaceConfig.encode(24)));
+        try {
+            mSync.setSweepFps(24);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void secondTimeZoneIsSyncedByIndex() {
+        assertEquals("UTC", mWatch.getSecondTimeZoneId());
+        mSync.setSecondTimeZone(4);
+        mSync.flush();
+        mDataLayer.sync(mWatch);
+        assertEquals(WatchConfig.CHANGED_FIELDS, (int) mChanges.get(0));
+        assertEquals("America/New_York", mWatch.getSecondTimeZoneId());
+
+        assertFalse(mWatch.update(FaceConfig.pathFor(FaceConfig.KEY_SECOND_TIME_ZONE),
+                FaceConfig.encode(FaceConfig.getSecondTimeZoneCount())));
+        for (int i = 0; i < FaceConfig.getSecondTimeZoneCount(); i++) {
+            String id = FaceConfig.getSecondTimeZoneId(i);
+            assertEquals(id, TimeZone.getTimeZone(id).getID());
+        }
+    }
+
+    @Test
+    public void watchIgnoresForeignAndInvalidItems() {
+        assertFalse(mWatch.update("/other/path", FaceConfig.encode(1)));
+        assertFalse(mWatch.update(FaceConfig.pathFor(FaceConfig.KEY_UPDATE_MODE),
+                FaceConfig.encode(7)));
+        assertFalse(mWatch.update(FaceConfig.pathFor(FaceConfig.KEY_SHOW_DATE), new byte[2]));
+        mWatch.commit();
+        assertTrue(mChanges.isEmpty());
+    }
+
+    @Test
+    public void encodingRoundTrips() {
+        int[] values = {0, 1, -1, 0xFF336699, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (int value : values) {
+            assertEquals(value, FaceConfig.decode(FaceConfig.encode(value)));
+        }
+        for (int key = 0; key < FaceConfig.KEY_COUNT; key++) {
+            assertEquals(key, FaceConfig.keyForPath(FaceConfig.pathFor(key)));
+        }
+        assertEquals(-1, FaceConfig.keyForPath(FaceConfig.PATH_PREFIX));
+    }
+}
@@ -0,0 +1,70 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stand-in for the Wearable Data Layer: items are stored by path, and {@link #sync} delivers
+ * everything written since the previous sync to the watch as one batch of changes, the way
+ * the Data Layer hands a DataEventBuffer to a listener. Items rewritten with the same bytes
+ * don't produce an event, like on the real Data Layer.
+ */
+final class InMemoryDataLayer implements ConfigSync.DataLayer {
+    private final Map<String, byte[]> mItems = new LinkedHashMap<String, byte[]>();
+    private final Set<String> mChanged = new LinkedHashSet<String>();
+    private final Set<String> mDeleted = new LinkedHashSet<String>();
+    private int mPuts;
+    private int mDeliveries;
+
+    @Override
+    public void putDataItem(String path, byte[] data) {
+        mPuts++;
+        byte[] old = mItems.put(path, data.clone());
+        if (old == null || !Arrays.equals(old, data)) {
+            mChanged.add(path);
+            mDeleted.remove(path);
+        }
+    }
+
+    void deleteDataItem(String path) {
+        if (mItems.remove(path) != null) {
+            mChanged.remove(path);
+            mDeleted.add(path);
+        }
+    }
+
+    byte[] get(String path) {
+        return mItems.get(path);
+    }
+
+    /** Delivers pending changes to {@code watch} as one batch; returns the number of events. */
+    int sync(WatchConfig watch) {
+        int events = mChanged.size() + mDeleted.size();
+        if (events == 0) {
+            return 0;
+        }
+        for (String path : mChanged) {
+            watch.update(path, mItems.get(path));
+        }
+        for (String path : mDeleted) {
+            watch.remove(path);
+        }
+        watch.commit();
+        mChanged.clear();
+        mDeleted.clear();
+        mDeliveries++;
+        return events;
+    }
+
+    int getPutCount() {
+        return mPuts;
+    }
+
+    /** Batches delivered to the watch, each of which wakes it up. */
+    int getDeliveryCount() {
+        return mDeliveries;
+    }
+}
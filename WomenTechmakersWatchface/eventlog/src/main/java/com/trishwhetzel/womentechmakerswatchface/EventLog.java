@@ -0,0 +1,181 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wakeups, frames and mode changes of the watch face, written as fixed-size records to a ring
+ * buffer, normally a file mapped into memory so the records survive the process. Wakeups and
+ * frames are counted in memory and written as one record per source or mode and minute, so an
+ * interactive face drawing every frame still only adds a handful of records a minute.
+ *
+ * <p>There is a single writer: every method must be called from the same thread. Writing
+ * takes no locks and allocates nothing. {@link EventLogReader} reads the buffer back.
+ *
+ * <p>Layout, big endian: a {@link #HEADER_SIZE} byte header (magic, version, record size,
+ * capacity, total records ever written), then {@code capacity} records of {@link #RECORD_SIZE}
+ * bytes. Record {@code n} is stored in slot {@code n % capacity}. A record holds its time in
+ * milliseconds (long), type (byte), source or mode (byte), count (unsigned short) and value
+ * (int).
+ */
+public final class EventLog {
+
+    public static final int SOURCE_UPDATE_TIMER = 0;
+    public static final int SOURCE_TIME_TICK = 1;
+    public static final int SOURCE_TIME_ZONE = 2;
+    public static final int SOURCE_BATTERY = 3;
+    public static final int SOURCE_COUNT = 4;
+
+    public static final int MODE_HIDDEN = 0;
+    public static final int MODE_INTERACTIVE = 1;
+    public static final int MODE_AMBIENT = 2;
+    public static final int MODE_COUNT = 3;
+
+    /* Record types. */
+    static final int TYPE_WAKEUPS = 1;
+    static final int TYPE_DRAWS = 2;
+    static final int TYPE_MODE = 3;
+
+    /* "WTME" */
+    static final int MAGIC = 0x57544D45;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 16;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_RECORD_SIZE = 8;
+    static final int OFFSET_CAPACITY = 12;
+    static final int OFFSET_WRITE_COUNT = 16;
+
+    static final int RECORD_TIME = 0;
+    static final int RECORD_TYPE = 8;
+    static final int RECORD_ARG = 9;
+    static final int RECORD_COUNT = 10;
+    static final int RECORD_VALUE = 12;
+
+    /** Counts and frame times are written out at least this often. */
+    public static final long WINDOW_MS = 60 * 1000;
+
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+
+    /* Counters for the current window, not yet written. */
+    private long mWindow = Long.MIN_VALUE;
+    private final int[] mWakeups = new int[SOURCE_COUNT];
+    private final int[] mDraws = new int[MODE_COUNT];
+    private final long[] mDrawMicros = new long[MODE_COUNT];
+    private int mMode = MODE_HIDDEN;
+
+    /**
+     * Writes to {@code buffer}, which must hold {@link #bytesFor} records or more. Records
+     * already in it are kept if it was written by a log with the same format and capacity;
+     * otherwise it is cleared.
+     */
+    public EventLog(ByteBuffer buffer) {
+        mBuffer = buffer;
+        mCapacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        if (mCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer too small for an event log");
+        }
+        if (buffer.getInt(OFFSET_MAGIC) != MAGIC
+                || buffer.getInt(OFFSET_VERSION) != VERSION
+                || buffer.getInt(OFFSET_RECORD_SIZE) != RECORD_SIZE
+                || buffer.getInt(OFFSET_CAPACITY) != mCapacity) {
+            buffer.putInt(OFFSET_MAGIC, MAGIC);
+            buffer.putInt(OFFSET_VERSION, VERSION);
+            buffer.putInt(OFFSET_RECORD_SIZE, RECORD_SIZE);
+            buffer.putInt(OFFSET_CAPACITY, mCapacity);
+            buffer.putLong(OFFSET_WRITE_COUNT, 0);
+        }
+    }
+
+    /** Size of a buffer holding {@code capacity} records. */
+    public static int bytesFor(int capacity) {
+        return HEADER_SIZE + capacity * RECORD_SIZE;
+    }
+
+    /** Counts a wakeup of the CPU by {@code source}. */
+    public void wakeup(int source, long timeMs) {
+        advance(timeMs);
+        if (++mWakeups[source] == MAX_COUNT) {
+            flush(timeMs);
+        }
+    }
+
+    /** Counts a frame drawn in {@code ambient} or interactive mode, and its draw time. */
+    public void draw(boolean ambient, long timeMs, long micros) {
+        advance(timeMs);
+        int mode = ambient ? MODE_AMBIENT : MODE_INTERACTIVE;
+        mDrawMicros[mode] += micros;
+        if (++mDraws[mode] == MAX_COUNT) {
+            flush(timeMs);
+        }
+    }
+
+    /**
+     * Records that the face is now hidden, interactive or ambient. Time between mode records
+     * is what the reader adds up per mode; repeating the current mode writes nothing.
+     */
+    public void setMode(int mode, long timeMs) {
+        advance(timeMs);
+        if (mode != mMode) {
+            flush(timeMs);
+            mMode = mode;
+            write(timeMs, TYPE_MODE, mode, 0, 0);
+        }
+    }
+
+    /** Writes the counters of the current window now, for example before the process dies. */
+    public void flush(long timeMs) {
+        for (int source = 0; source < SOURCE_COUNT; source++) {
+            if (mWakeups[source] > 0) {
+                write(timeMs, TYPE_WAKEUPS, source, mWakeups[source], 0);
+                mWakeups[source] = 0;
+            }
+        }
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            if (mDraws[mode] > 0) {
+                write(timeMs, TYPE_DRAWS, mode, mDraws[mode],
+                        (int) Math.min(Integer.MAX_VALUE, mDrawMicros[mode]));
+                mDraws[mode] = 0;
+                mDrawMicros[mode] = 0;
+            }
+        }
+    }
+
+    /** Total records written since the buffer was formatted, including overwritten ones. */
+    public long getWriteCount() {
+        return mBuffer.getLong(OFFSET_WRITE_COUNT);
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /** Flushes the previous window's counters when {@code timeMs} is in a new one. */
+    private void advance(long timeMs) {
+        long window = timeMs / WINDOW_MS;
+        if (window != mWindow) {
+            if (mWindow != Long.MIN_VALUE) {
+                /* Stamped with the end of the window they were counted in. */
+                flush(Math.min(timeMs, (mWindow + 1) * WINDOW_MS - 1));
+            }
+            mWindow = window;
+        }
+    }
+
+    private void write(long timeMs, int type, int arg, int count, int value) {
+        /* Read back every time, so a log reopened on the same buffer carries on from it. */
+        long writeCount = mBuffer.getLong(OFFSET_WRITE_COUNT);
+        int offset = HEADER_SIZE + (int) (writeCount % mCapacity) * RECORD_SIZE;
+        mBuffer.putLong(offset + RECORD_TIME, timeMs);
+        mBuffer.put(offset + RECORD_TYPE, (byte) type);
+        mBuffer.put(offset + RECORD_ARG, (byte) arg);
+        mBuffer.putShort(offset + RECORD_COUNT, (short) count);
+        mBuffer.putInt(offset + RECORD_VALUE, value);
+        /* The count goes last, so a record is complete before it is counted. */
+        mBuffer.putLong(OFFSET_WRITE_COUNT, writeCount + 1);
+    }
+}
@@ -0,0 +1,206 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads an {@link EventLog} buffer back, oldest record first, and adds it up per hour: wakeups
+ * per source, frames and draw time per mode, and time spent in each mode. Works on a copy of
+ * the file pulled off the watch as well as on the live buffer.
+ */
+public final class EventLogReader {
+
+    public static final long HOUR_MS = 60 * 60 * 1000;
+
+    private static final String[] SOURCE_NAMES = {"timer", "tick", "timeZone", "battery"};
+    private static final String[] MODE_NAMES = {"hidden", "interactive", "ambient"};
+
+    /** Totals for one hour, starting at {@link #getStartMs} (UTC). */
+    public static final class HourSummary {
+        private final long mStartMs;
+        private final int[] mWakeups = new int[EventLog.SOURCE_COUNT];
+        private final int[] mDraws = new int[EventLog.MODE_COUNT];
+        private final long[] mDrawMicros = new long[EventLog.MODE_COUNT];
+        private final long[] mModeMs = new long[EventLog.MODE_COUNT];
+
+        HourSummary(long startMs) {
+            mStartMs = startMs;
+        }
+
+        public long getStartMs() {
+            return mStartMs;
+        }
+
+        public int getWakeups(int source) {
+            return mWakeups[source];
+        }
+
+        public int getTotalWakeups() {
+            int total = 0;
+            for (int wakeups : mWakeups) {
+                total += wakeups;
+            }
+            return total;
+        }
+
+        public int getDraws(int mode) {
+            return mDraws[mode];
+        }
+
+        public long getDrawMicros(int mode) {
+            return mDrawMicros[mode];
+        }
+
+        /** Milliseconds of this hour spent in {@code mode}, as far as mode records tell. */
+        public long getModeMs(int mode) {
+            return mModeMs[mode];
+        }
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+    private final long mWriteCount;
+
+    /** Reads {@code buffer}; throws if it doesn't hold an event log. */
+    public EventLogReader(ByteBuffer buffer) {
+        if (buffer.capacity() < EventLog.HEADER_SIZE
+                || buffer.getInt(EventLog.OFFSET_MAGIC) != EventLog.MAGIC) {
+            throw new IllegalArgumentException("Not an event log");
+        }
+        if (buffer.getInt(EventLog.OFFSET_VERSION) != EventLog.VERSION
+                || buffer.getInt(EventLog.OFFSET_RECORD_SIZE) != EventLog.RECORD_SIZE) {
+            throw new IllegalArgumentException("Unsupported event log version");
+        }
+        mCapacity = buffer.getInt(EventLog.OFFSET_CAPACITY);
+        if (mCapacity <= 0 || buffer.capacity() < EventLog.bytesFor(mCapacity)) {
+            throw new IllegalArgumentException("Truncated event log");
+        }
+        mBuffer = buffer;
+        mWriteCount = buffer.getLong(EventLog.OFFSET_WRITE_COUNT);
+    }
+
+    /** Reads an event log file, for example one pulled off the watch with adb. */
+    public static EventLogReader open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) input.length()];
+            input.readFully(bytes);
+            return new EventLogReader(ByteBuffer.wrap(bytes));
+        } finally {
+            input.close();
+        }
+    }
+
+    /** Records still in the buffer. */
+    public int getRecordCount() {
+        return (int) Math.min(mWriteCount, mCapacity);
+    }
+
+    /** Records that were overwritten by newer ones. */
+    public long getOverwrittenCount() {
+        return Math.max(0, mWriteCount - mCapacity);
+    }
+
+    /** Per hour totals of the records in the buffer, oldest hour first, skipping empty hours. */
+    public List<HourSummary> summarize() {
+        List<HourSummary> hours = new ArrayList<HourSummary>();
+        long modeStartMs = 0;
+        int mode = -1;
+        long lastTimeMs = 0;
+
+        int count = getRecordCount();
+        for (long n = mWriteCount - count; n < mWriteCount; n++) {
+            int offset = EventLog.HEADER_SIZE + (int) (n % mCapacity) * EventLog.RECORD_SIZE;
+            long timeMs = mBuffer.getLong(offset + EventLog.RECORD_TIME);
+            int type = mBuffer.get(offset + EventLog.RECORD_TYPE);
+            int arg = mBuffer.get(offset + EventLog.RECORD_ARG);
+            int recordCount = mBuffer.getShort(offset + EventLog.RECORD_COUNT) & 0xFFFF;
+            int value = mBuffer.getInt(offset + EventLog.RECORD_VALUE);
+            lastTimeMs = timeMs;
+
+            switch (type) {
+                case EventLog.TYPE_WAKEUPS:
+                    if (arg >= 0 && arg < EventLog.SOURCE_COUNT) {
+                        hourOf(hours, timeMs).mWakeups[arg] += recordCount;
+                    }
+                    break;
+                case EventLog.TYPE_DRAWS:
+                    if (arg >= 0 && arg < EventLog.MODE_COUNT) {
+                        HourSummary hour = hourOf(hours, timeMs);
+                        hour.mDraws[arg] += recordCount;
+                        hour.mDrawMicros[arg] += value;
+                    }
+                    break;
+                case EventLog.TYPE_MODE:
+                    if (mode >= 0) {
+                        addModeTime(hours, mode, modeStartMs, timeMs);
+                    }
+                    mode = arg >= 0 && arg < EventLog.MODE_COUNT ? arg : -1;
+                    modeStartMs = timeMs;
+                    break;
+                default:
+                    break;
+            }
+        }
+        /* The current mode lasts at least until the newest record. */
+        if (mode >= 0) {
+            addModeTime(hours, mode, modeStartMs, lastTimeMs);
+        }
+        return hours;
+    }
+
+    /** Prints one line per hour: wakeups per source, then frames and mean draw time per mode. */
+    public void print(PrintWriter writer, String prefix) {
+        writer.println(prefix + "records=" + getRecordCount()
+                + " overwritten=" + getOverwrittenCount());
+        for (HourSummary hour : summarize()) {
+            StringBuilder line = new StringBuilder(prefix);
+            line.append("hour=").append(hour.getStartMs() / HOUR_MS)
+                    .append(" wakeups=").append(hour.getTotalWakeups());
+            for (int source = 0; source < EventLog.SOURCE_COUNT; source++) {
+                line.append(' ').append(SOURCE_NAMES[source]).append('=')
+                        .append(hour.getWakeups(source));
+            }
+            for (int mode = EventLog.MODE_INTERACTIVE; mode < EventLog.MODE_COUNT; mode++) {
+                int draws = hour.getDraws(mode);
+                line.append(' ').append(MODE_NAMES[mode]).append(": frames=").append(draws)
+                        .append(" meanUs=").append(draws > 0 ? hour.getDrawMicros(mode) / draws : 0)
+                        .append(String.format(Locale.US, " minutes=%.1f",
+                                hour.getModeMs(mode) / 60000f));
+            }
+            writer.println(line);
+        }
+    }
+
+    /** Splits {@code [startMs, endMs)} in {@code mode} across the hours it covers. */
+    private static void addModeTime(List<HourSummary> hours, int mode, long startMs, long endMs) {
+        long timeMs = startMs;
+        while (timeMs < endMs) {
+            long hourEndMs = (timeMs / HOUR_MS + 1) * HOUR_MS;
+            long sliceEndMs = Math.min(endMs, hourEndMs);
+            hourOf(hours, timeMs).mModeMs[mode] += sliceEndMs - timeMs;
+            timeMs = sliceEndMs;
+        }
+    }
+
+    /** The summary of the hour holding {@code timeMs}, added in order if it is new. */
+    private static HourSummary hourOf(List<HourSummary> hours, long timeMs) {
+        long startMs = timeMs / HOUR_MS * HOUR_MS;
+        int index = hours.size();
+        while (index > 0 && hours.get(index - 1).mStartMs > startMs) {
+            index--;
+        }
+        if (index > 0 && hours.get(index - 1).mStartMs == startMs) {
+            return hours.get(index - 1);
+        }
+        HourSummary hour = new HourSummary(startMs);
+        hours.add(index, hour);
+        return hour;
+    }
+}
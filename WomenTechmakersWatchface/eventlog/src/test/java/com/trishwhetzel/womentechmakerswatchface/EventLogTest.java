@@ -0,0 +1,134 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+    private static final long HOUR_MS = EventLogReader.HOUR_MS;
+    private static final long MINUTE_MS = EventLog.WINDOW_MS;
+
+    /* 10:00 UTC on some day. */
+    private static final long T0 = 400000 * HOUR_MS + 10 * HOUR_MS;
+
+    private ByteBuffer mBuffer;
+    private EventLog mLog;
+
+    @Before
+    public void setUp() {
+        mBuffer = ByteBuffer.allocate(EventLog.bytesFor(256));
+        mLog = new EventLog(mBuffer);
+    }
+
+    @Test
+    public void countsAreBatchedPerMinute() {
+        for (int i = 0; i < 600; i++) {
+            mLog.wakeup(EventLog.SOURCE_UPDATE_TIMER, T0 + i * 100);
+            mLog.draw(false, T0 + i * 100, 2000);
+        }
+        assertEquals(0, mLog.getWriteCount());
+
+        mLog.wakeup(EventLog.SOURCE_TIME_TICK, T0 + MINUTE_MS);
+        /* One wakeup record and one draw record for the first minute. */
+        assertEquals(2, mLog.getWriteCount());
+    }
+
+    @Test
+    public void summarizesWakeupsAndDrawsPerHour() {
+        mLog.setMode(EventLog.MODE_INTERACTIVE, T0);
+        for (int i = 0; i < 100; i++) {
+            mLog.wakeup(EventLog.SOURCE_UPDATE_TIMER, T0 + i * 1000);
+            mLog.draw(false, T0 + i * 1000, 3000);
+        }
+        mLog.setMode(EventLog.MODE_AMBIENT, T0 + 30 * MINUTE_MS);
+        for (int minute = 31; minute < 90; minute++) {
+            mLog.wakeup(EventLog.SOURCE_TIME_TICK, T0 + minute * MINUTE_MS);
+            mLog.draw(true, T0 + minute * MINUTE_MS, 500);
+        }
+        mLog.wakeup(EventLog.SOURCE_BATTERY, T0 + 89 * MINUTE_MS);
+        mLog.setMode(EventLog.MODE_HIDDEN, T0 + 90 * MINUTE_MS);
+
+        List<EventLogReader.HourSummary> hours = new EventLogReader(mBuffer).summarize();
+        assertEquals(2, hours.size());
+
+        EventLogReader.HourSummary first = hours.get(0);
+        assertEquals(T0, first.getStartMs());
+        assertEquals(100, first.getWakeups(EventLog.SOURCE_UPDATE_TIMER));
+        assertEquals(29, first.getWakeups(EventLog.SOURCE_TIME_TICK));
+        assertEquals(100, first.getDraws(EventLog.MODE_INTERACTIVE));
+        assertEquals(300000, first.getDrawMicros(EventLog.MODE_INTERACTIVE));
+        assertEquals(29, first.getDraws(EventLog.MODE_AMBIENT));
+        assertEquals(30 * MINUTE_MS, first.getModeMs(EventLog.MODE_INTERACTIVE));
+        assertEquals(30 * MINUTE_MS, first.getModeMs(EventLog.MODE_AMBIENT));
+
+        EventLogReader.HourSummary second = hours.get(1);
+        assertEquals(T0 + HOUR_MS, second.getStartMs());
+        assertEquals(30, second.getWakeups(EventLog.SOURCE_TIME_TICK));
+        assertEquals(1, second.getWakeups(EventLog.SOURCE_BATTERY));
+        assertEquals(31, second.getTotalWakeups());
+        assertEquals(30, second.getDraws(EventLog.MODE_AMBIENT));
+        assertEquals(30 * MINUTE_MS, second.getModeMs(EventLog.MODE_AMBIENT));
+        assertEquals(0, second.getModeMs(EventLog.MODE_INTERACTIVE));
+    }
+
+    @Test
+    public void ringKeepsNewestRecords() {
+        for (int minute = 0; minute < 1000; minute++) {
+            mLog.wakeup(EventLog.SOURCE_TIME_TICK, T0 + minute * MINUTE_MS);
+        }
+        mLog.flush(T0 + 1000 * MINUTE_MS);
+
+        EventLogReader reader = new EventLogReader(mBuffer);
+        assertEquals(256, reader.getRecordCount());
+        assertEquals(1000 - 256, reader.getOverwrittenCount());
+        int wakeups = 0;
+        for (EventLogReader.HourSummary hour : reader.summarize()) {
+            wakeups += hour.getWakeups(EventLog.SOURCE_TIME_TICK);
+        }
+        assertEquals(256, wakeups);
+    }
+
+    @Test
+    public void reopenedLogAppendsToExistingRecords() {
+        mLog.setMode(EventLog.MODE_AMBIENT, T0);
+        mLog.setMode(EventLog.MODE_HIDDEN, T0 + MINUTE_MS);
+
+        EventLog reopened = new EventLog(mBuffer);
+        assertEquals(2, reopened.getWriteCount());
+        reopened.setMode(EventLog.MODE_INTERACTIVE, T0 + 2 * MINUTE_MS);
+        assertEquals(3, reopened.getWriteCount());
+    }
+
+    @Test
+    public void formatsForeignBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(EventLog.bytesFor(16));
+        buffer.putLong(0, -1L);
+        EventLog log = new EventLog(buffer);
+        assertEquals(0, log.getWriteCount());
+        assertEquals(0, new EventLogReader(buffer).getRecordCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readerRejectsOtherData() {
+        new EventLogReader(ByteBuffer.allocate(EventLog.bytesFor(16)));
+    }
+
+    @Test
+    public void printsOneLinePerHour() {
+        mLog.setMode(EventLog.MODE_INTERACTIVE, T0);
+        mLog.draw(false, T0, 1000);
+        mLog.setMode(EventLog.MODE_HIDDEN, T0 + 2 * HOUR_MS);
+
+        StringWriter out = new StringWriter();
+        new EventLogReader(mBuffer).print(new PrintWriter(out, true), "");
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("interactive: frames=1 meanUs=1000 minutes=60.0"));
+    }
+}
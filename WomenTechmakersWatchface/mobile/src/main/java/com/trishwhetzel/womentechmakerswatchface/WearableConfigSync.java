@@ -0,0 +1,63 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * {@link ConfigSync} writing to the Wearable Data Layer, for a settings screen on the phone.
+ * Connect while the screen is shown and call {@link #disconnect} when it closes, which sends
+ * whatever is still waiting for the debounce.
+ */
+public final class WearableConfigSync implements ConfigSync.DataLayer, ConfigSync.Scheduler {
+
+    private final GoogleApiClient mClient;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ConfigSync mSync;
+
+    public WearableConfigSync(Context context) {
+        mClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .build();
+        mSync = new ConfigSync(this, this);
+    }
+
+    /** The settings to change; call from the main thread. */
+    public ConfigSync getConfig() {
+        return mSync;
+    }
+
+    public void connect() {
+        mClient.connect();
+    }
+
+    public void disconnect() {
+        mSync.flush();
+        mClient.disconnect();
+    }
+
+    @Override
+    public void putDataItem(String path, byte[] data) {
+        Wearable.DataApi.putDataItem(mClient, PutDataRequest.create(path).setData(data));
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        mHandler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        mHandler.removeCallbacks(task);
+    }
+}
@@ -0,0 +1,164 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that {@link BitmapCache} decodes off the calling thread, once per key, and stays
+ * within its byte budget by evicting the least recently used bitmap.
+ */
+public class BitmapCacheTest extends AndroidTestCase {
+    private static final int SIZE = 32;
+    /* One SIZE x SIZE RGB_565 bitmap. */
+    private static final int BITMAP_BYTES = SIZE * SIZE * 2;
+
+    private HandlerThread mWorkerThread;
+    private HandlerThread mMainThread;
+    private Handler mMain;
+    private BitmapCache mCache;
+    private final AtomicInteger mDecodes = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mWorkerThread = new HandlerThread("worker");
+        mWorkerThread.start();
+        mMainThread = new HandlerThread("main");
+        mMainThread.start();
+        mMain = new Handler(mMainThread.getLooper());
+        mCache = new BitmapCache(2 * BITMAP_BYTES, new Handler(mWorkerThread.getLooper()), mMain);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mWorkerThread.quit();
+        mMainThread.quit();
+        super.tearDown();
+    }
+
+    public void testDecodesOnWorkerAndDeliversOnMain() throws Exception {
+        final Thread[] threads = new Thread[2];
+        final CountDownLatch loaded = new CountDownLatch(1);
+        load("a", new BitmapCache.Decoder() {
+            @Override
+            public Bitmap decode() {
+                threads[0] = Thread.currentThread();
+                return createBitmap();
+            }
+        }, new BitmapCache.Callback() {
+            @Override
+            public void onBitmapLoaded(String key, Bitmap bitmap) {
+                threads[1] = Thread.currentThread();
+                loaded.countDown();
+            }
+        });
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertSame(mWorkerThread, threads[0]);
+        assertSame(mMainThread, threads[1]);
+    }
+
+    public void testRepeatedLoadsDecodeOnce() throws Exception {
+        load("a", countingDecoder(), null);
+        load("a", countingDecoder(), null);
+        awaitMain();
+        load("a", countingDecoder(), null);
+        awaitMain();
+        assertEquals(1, mDecodes.get());
+        assertEquals(1, mCache.getDecodeCount());
+    }
+
+    public void testEvictsLeastRecentlyUsedOverBudget() throws Exception {
+        load("a", countingDecoder(), null);
+        load("b", countingDecoder(), null);
+        awaitMain();
+        /* Touch "a", so that "b" is the least recently used. */
+        assertNotNull(get("a"));
+        load("c", countingDecoder(), null);
+        awaitMain();
+
+        assertNotNull(get("a"));
+        assertNull(get("b"));
+        assertNotNull(get("c"));
+        assertTrue(mCache.getByteCount() <= mCache.getMaxBytes());
+        assertEquals(1, mCache.getEvictionCount());
+    }
+
+    public void testShrinkingBudgetEvicts() throws Exception {
+        load("a", countingDecoder(), null);
+        load("b", countingDecoder(), null);
+        awaitMain();
+        mCache.setMaxBytes(BITMAP_BYTES);
+        assertEquals(BITMAP_BYTES, mCache.getByteCount());
+    }
+
+    private BitmapCache.Decoder countingDecoder() {
+        return new BitmapCache.Decoder() {
+            @Override
+            public Bitmap decode() {
+                mDecodes.incrementAndGet();
+                return createBitmap();
+            }
+        };
+    }
+
+    private static Bitmap createBitmap() {
+        return Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.RGB_565);
+    }
+
+    /* The cache is only used from its main handler's thread. */
+    private void load(final String key, final BitmapCache.Decoder decoder,
+            final BitmapCache.Callback callback) throws InterruptedException {
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                mCache.load(key, decoder, callback);
+            }
+        });
+    }
+
+    private Bitmap get(final String key) throws InterruptedException {
+        final Bitmap[] result = new Bitmap[1];
+        runOnMain(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = mCache.get(key);
+            }
+        });
+        return result[0];
+    }
+
+    /** Waits until pending decodes have finished and their results reached the main thread. */
+    private void awaitMain() throws InterruptedException {
+        final CountDownLatch drained = new CountDownLatch(1);
+        new Handler(mWorkerThread.getLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                mMain.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        drained.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+    }
+
+    private void runOnMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        mMain.post(new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
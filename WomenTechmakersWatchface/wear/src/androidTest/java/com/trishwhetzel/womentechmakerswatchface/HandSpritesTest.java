@@ -0,0 +1,92 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.test.AndroidTestCase;
+
+/**
+ * Compares hands drawn from {@link HandSprites} with the vector hands they replace, pixel by
+ * pixel. Rotating a filtered bitmap is not bit exact, so a few pixels along the edges may
+ * differ slightly.
+ */
+public class HandSpritesTest extends AndroidTestCase {
+    private static final int SIZE = 320;
+    private static final int SHADOW_RADIUS = 6;
+    /* Largest difference in any channel for two pixels to count as the same. */
+    private static final int CHANNEL_TOLERANCE = 48;
+    /* Share of the hand's pixels allowed to differ by more than that. */
+    private static final float MISMATCH_TOLERANCE = 0.02f;
+
+    private static final float[] ANGLES = {0f, 6f, 37.5f, 90f, 143f, 225.25f, 354f};
+
+    public void testHourHandMatchesVector() {
+        assertSpritesMatchVector(RenderTarget.PAINT_HOUR, 9f, SIZE / 2f * 0.52f);
+    }
+
+    public void testMinuteHandMatchesVector() {
+        assertSpritesMatchVector(RenderTarget.PAINT_MINUTE, 7f, SIZE / 2f * 0.75f);
+    }
+
+    public void testSecondHandMatchesVector() {
+        assertSpritesMatchVector(RenderTarget.PAINT_SECOND, 2f, SIZE / 2f * 0.825f);
+    }
+
+    private void assertSpritesMatchVector(int hand, float strokeWidth, float length) {
+        Paint paint = new Paint();
+        paint.setColor(Color.WHITE);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setAntiAlias(true);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setShadowLayer(SHADOW_RADIUS, 0, 0, Color.RED);
+
+        HandSprites sprites = new HandSprites(SHADOW_RADIUS);
+        Bitmap expected = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Bitmap actual = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        float center = SIZE / 2f;
+
+        for (float angle : ANGLES) {
+            expected.eraseColor(Color.BLACK);
+            Canvas canvas = new Canvas(expected);
+            canvas.rotate(angle, center, center);
+            canvas.drawLine(center, center - 4f, center, center - length, paint);
+
+            actual.eraseColor(Color.BLACK);
+            double radians = Math.toRadians(angle);
+            sprites.draw(new Canvas(actual), hand, paint, (float) Math.sin(radians),
+                    (float) Math.cos(radians), center, center, 4f, length);
+
+            assertSimilar("angle " + angle, expected, actual);
+        }
+        sprites.release();
+    }
+
+    private static void assertSimilar(String message, Bitmap expected, Bitmap actual) {
+        int[] expectedPixels = new int[SIZE * SIZE];
+        int[] actualPixels = new int[SIZE * SIZE];
+        expected.getPixels(expectedPixels, 0, SIZE, 0, 0, SIZE, SIZE);
+        actual.getPixels(actualPixels, 0, SIZE, 0, 0, SIZE, SIZE);
+
+        int handPixels = 0;
+        int mismatches = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            if (expectedPixels[i] != Color.BLACK) {
+                handPixels++;
+            }
+            if (channelDifference(expectedPixels[i], actualPixels[i]) > CHANNEL_TOLERANCE) {
+                mismatches++;
+            }
+        }
+        assertTrue(message + ": nothing drawn", handPixels > 0);
+        assertTrue(message + ": " + mismatches + " of " + handPixels + " pixels differ",
+                mismatches <= handPixels * MISMATCH_TOLERANCE);
+    }
+
+    private static int channelDifference(int a, int b) {
+        int red = Math.abs(Color.red(a) - Color.red(b));
+        int green = Math.abs(Color.green(a) - Color.green(b));
+        int blue = Math.abs(Color.blue(a) - Color.blue(b));
+        return Math.max(red, Math.max(green, blue));
+    }
+}
@@ -0,0 +1,103 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.test.AndroidTestCase;
+
+/**
+ * Checks that every mode combination in a {@link PaintSet.Table} is styled the same way no
+ * matter which combinations were in use before, and that switching modes reuses sets.
+ */
+public class PaintSetTest extends AndroidTestCase {
+    private static final int HAND = Color.RED;
+    private static final int HIGHLIGHT = Color.BLUE;
+    private static final int SHADOW = Color.LTGRAY;
+    private static final float SHADOW_RADIUS = 6f;
+
+    private static final int[] HANDS = {
+            RenderTarget.PAINT_HOUR, RenderTarget.PAINT_MINUTE, RenderTarget.PAINT_SECOND};
+
+    private Paint[] mTemplates;
+    private PaintSet.Table mTable;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTemplates = new Paint[PaintSet.PAINT_COUNT];
+        for (int paint = 0; paint < mTemplates.length; paint++) {
+            mTemplates[paint] = new Paint();
+            mTemplates[paint].setStrokeWidth(paint + 1);
+        }
+        mTable = new PaintSet.Table(mTemplates, HAND, HIGHLIGHT, SHADOW, SHADOW_RADIUS);
+    }
+
+    public void testLooksAlikeCombinationsShareSets() {
+        assertEquals(6, mTable.getDistinctCount());
+        assertSame(mTable.get(false, false, false, false), mTable.get(false, true, true, false));
+        assertSame(mTable.get(true, false, false, true), mTable.get(true, false, true, true));
+        assertNotSame(mTable.get(true, false, false, false), mTable.get(true, true, false, false));
+        assertNotSame(mTable.get(false, false, false, false),
+                mTable.get(false, false, false, true));
+    }
+
+    public void testInteractiveUsesPaletteColors() {
+        PaintSet paints = mTable.get(false, false, false, false);
+        assertEquals(HAND, paints.get(RenderTarget.PAINT_HOUR).getColor());
+        assertEquals(HIGHLIGHT, paints.get(RenderTarget.PAINT_SECOND).getColor());
+        assertEquals(HIGHLIGHT, paints.get(RenderTarget.PAINT_DATE).getColor());
+        assertEquals(HAND, paints.get(RenderTarget.PAINT_FIELD).getColor());
+        assertEquals(Color.WHITE, paints.get(RenderTarget.PAINT_DATE_BOX).getColor());
+        for (int paint = 0; paint < PaintSet.PAINT_COUNT; paint++) {
+            assertTrue(paints.get(paint).isAntiAlias());
+        }
+    }
+
+    public void testAmbientIsConsistentForEveryPaint() {
+        for (int i = 0; i < 4; i++) {
+            boolean lowBit = (i & 1) != 0;
+            PaintSet paints = mTable.get(true, lowBit, (i & 2) != 0, false);
+            int handColor = lowBit ? Color.WHITE : Color.GRAY;
+            for (int hand : HANDS) {
+                assertEquals(handColor, paints.get(hand).getColor());
+            }
+            assertEquals(handColor, paints.get(RenderTarget.PAINT_TICK_AND_CIRCLE).getColor());
+            assertEquals(Color.WHITE, paints.get(RenderTarget.PAINT_BATTERY).getColor());
+            assertEquals(Color.WHITE, paints.get(RenderTarget.PAINT_FIELD).getColor());
+            for (int paint = 0; paint < PaintSet.PAINT_COUNT; paint++) {
+                assertEquals(!lowBit, paints.get(paint).isAntiAlias());
+            }
+        }
+    }
+
+    public void testMuteDimsOnlyTheHandsInEveryMode() {
+        for (int i = 0; i < 8; i++) {
+            PaintSet paints = mTable.get((i & 1) != 0, (i & 2) != 0, (i & 4) != 0, true);
+            assertEquals(PaintStyle.MUTE_ALPHA, paints.get(RenderTarget.PAINT_HOUR).getAlpha());
+            assertEquals(PaintStyle.MUTE_ALPHA, paints.get(RenderTarget.PAINT_MINUTE).getAlpha());
+            assertEquals(PaintStyle.MUTE_SECOND_ALPHA,
+                    paints.get(RenderTarget.PAINT_SECOND).getAlpha());
+            assertEquals(255, paints.get(RenderTarget.PAINT_TICK_AND_CIRCLE).getAlpha());
+        }
+    }
+
+    public void testKeepsTemplateGeometryAndLeavesTemplatesAlone() {
+        PaintSet paints = mTable.get(true, true, false, true);
+        for (int paint = 0; paint < PaintSet.PAINT_COUNT; paint++) {
+            assertEquals(paint + 1f, paints.get(paint).getStrokeWidth(), 0f);
+            assertNotSame(mTemplates[paint], paints.get(paint));
+        }
+        assertEquals(Color.BLACK, mTemplates[RenderTarget.PAINT_HOUR].getColor());
+        assertEquals(255, mTemplates[RenderTarget.PAINT_HOUR].getAlpha());
+    }
+
+    public void testNewPaletteLeavesOldSetsAlone() {
+        PaintSet old = mTable.get(false, false, false, false);
+        PaintSet.Table table = new PaintSet.Table(mTemplates, Color.GREEN, Color.YELLOW, SHADOW,
+                SHADOW_RADIUS);
+        assertTrue(mTable.hasColors(HAND, HIGHLIGHT, SHADOW));
+        assertFalse(table.hasColors(HAND, HIGHLIGHT, SHADOW));
+        assertEquals(Color.GREEN, table.get(false, false, false, false)
+                .get(RenderTarget.PAINT_HOUR).getColor());
+        assertEquals(HAND, old.get(RenderTarget.PAINT_HOUR).getColor());
+    }
+}
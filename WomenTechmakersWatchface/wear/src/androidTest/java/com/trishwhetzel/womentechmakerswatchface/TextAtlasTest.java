@@ -0,0 +1,102 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.test.AndroidTestCase;
+
+/**
+ * Compares text blitted from a {@link TextAtlas} with the same text from drawText. Atlas
+ * glyphs sit on whole pixels, so edges may be off by up to half a pixel.
+ */
+public class TextAtlasTest extends AndroidTestCase {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 60;
+    private static final int CHANNEL_TOLERANCE = 64;
+    private static final float MISMATCH_TOLERANCE = 0.15f;
+
+    private static final String[] DAY_NAMES = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+
+    public void testAntiAliasedTextMatchesDrawText() {
+        assertAtlasMatchesDrawText(true);
+    }
+
+    public void testAliasedTextMatchesDrawText() {
+        assertAtlasMatchesDrawText(false);
+    }
+
+    public void testRejectsOtherText() {
+        TextAtlas atlas = new TextAtlas(textPaint(true), DAY_NAMES);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        assertFalse(atlas.draw(canvas, "12:30", 10, 40, textPaint(true)));
+        assertFalse(atlas.draw(canvas, "Tuesday", 10, 40, textPaint(true)));
+        atlas.release();
+    }
+
+    public void testMatchesOnlyTheSamePaintConfiguration() {
+        Paint paint = textPaint(true);
+        TextAtlas atlas = new TextAtlas(paint, DAY_NAMES);
+        paint.setColor(Color.RED);
+        assertTrue(atlas.matches(paint));
+        paint.setAntiAlias(false);
+        assertFalse(atlas.matches(paint));
+        paint.setAntiAlias(true);
+        paint.setTextSize(30);
+        assertFalse(atlas.matches(paint));
+        atlas.release();
+    }
+
+    private void assertAtlasMatchesDrawText(boolean antiAlias) {
+        Paint paint = textPaint(antiAlias);
+        TextAtlas atlas = new TextAtlas(paint, DAY_NAMES);
+        Bitmap expected = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        Bitmap actual = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+
+        String[] texts = {"0%", "87%", "100%", "31", "08", "Sun", "Wed", "Sat"};
+        for (String text : texts) {
+            expected.eraseColor(Color.BLACK);
+            new Canvas(expected).drawText(text, 10, 40, paint);
+            actual.eraseColor(Color.BLACK);
+            assertTrue(text, atlas.draw(new Canvas(actual), text, 10, 40, paint));
+            assertSimilar(text, expected, actual);
+        }
+        atlas.release();
+    }
+
+    private static Paint textPaint(boolean antiAlias) {
+        Paint paint = new Paint();
+        paint.setColor(Color.BLUE);
+        paint.setTextSize(21);
+        paint.setAntiAlias(antiAlias);
+        return paint;
+    }
+
+    private static void assertSimilar(String message, Bitmap expected, Bitmap actual) {
+        int[] expectedPixels = new int[WIDTH * HEIGHT];
+        int[] actualPixels = new int[WIDTH * HEIGHT];
+        expected.getPixels(expectedPixels, 0, WIDTH, 0, 0, WIDTH, HEIGHT);
+        actual.getPixels(actualPixels, 0, WIDTH, 0, 0, WIDTH, HEIGHT);
+
+        int textPixels = 0;
+        int mismatches = 0;
+        for (int i = 0; i < expectedPixels.length; i++) {
+            if (expectedPixels[i] != Color.BLACK) {
+                textPixels++;
+            }
+            if (channelDifference(expectedPixels[i], actualPixels[i]) > CHANNEL_TOLERANCE) {
+                mismatches++;
+            }
+        }
+        assertTrue(message + ": nothing drawn", textPixels > 0);
+        assertTrue(message + ": " + mismatches + " of " + textPixels + " pixels differ",
+                mismatches <= textPixels * MISMATCH_TOLERANCE);
+    }
+
+    private static int channelDifference(int a, int b) {
+        int red = Math.abs(Color.red(a) - Color.red(b));
+        int green = Math.abs(Color.green(a) - Color.green(b));
+        int blue = Math.abs(Color.blue(a) - Color.blue(b));
+        return Math.max(red, Math.max(green, blue));
+    }
+}
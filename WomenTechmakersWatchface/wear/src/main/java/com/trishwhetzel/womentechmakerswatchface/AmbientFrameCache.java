@@ -0,0 +1,112 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * The complete ambient frame, composed offscreen at most once per minute. Ambient wakes that
+ * fall in a minute already composed, which is every wake but the minute tick itself, are a
+ * single blit, optionally shifted by a few pixels for burn-in protection.
+ *
+ * <p>Ambient frames are opaque and at most grayscale, so the cache is RGB_565.
+ */
+final class AmbientFrameCache {
+
+    private static final long MINUTE_MS = 60 * 1000;
+
+    /** Draws one complete ambient frame, background included. */
+    interface Composer {
+        void composeAmbientFrame(Canvas canvas);
+    }
+
+    private final Composer mComposer;
+    private Bitmap mFrame;
+    private Canvas mFrameCanvas;
+    private int mWidth;
+    private int mHeight;
+    private long mComposedMinute = Long.MIN_VALUE;
+    private int mComposeCount;
+    /* Offset of the last draw. */
+    private int mShownOffsetX;
+    private int mShownOffsetY;
+
+    AmbientFrameCache(Composer composer) {
+        mComposer = composer;
+    }
+
+    /** Allocates the cache for a surface size, keeping the current bitmap if it fits. */
+    void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        if (mFrame != null && mFrame.getWidth() == width && mFrame.getHeight() == height) {
+            return;
+        }
+        release();
+        allocate();
+    }
+
+    private void allocate() {
+        mFrame = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.RGB_565);
+        mFrameCanvas = new Canvas(mFrame);
+    }
+
+    /** Forces the next {@link #draw} to compose, e.g. after paints or properties changed. */
+    void invalidate() {
+        mComposedMinute = Long.MIN_VALUE;
+    }
+
+    /**
+     * Draws the frame for {@code timeMs} at the given offset, composing it first if the cached
+     * one is from another minute.
+     */
+    void draw(Canvas canvas, long timeMs, int offsetX, int offsetY) {
+        if (mFrame == null) {
+            if (mWidth <= 0 || mHeight <= 0) {
+                return;
+            }
+            /* Released to save memory; composed again below. */
+            allocate();
+        }
+        long minute = timeMs / MINUTE_MS;
+        if (minute != mComposedMinute) {
+            mComposer.composeAmbientFrame(mFrameCanvas);
+            mComposedMinute = minute;
+            mComposeCount++;
+        }
+        if (offsetX != 0 || offsetY != 0) {
+            /* The shifted frame leaves a strip of the surface uncovered. */
+            canvas.drawColor(Color.BLACK);
+        }
+        canvas.drawBitmap(mFrame, offsetX, offsetY, null);
+        mShownOffsetX = offsetX;
+        mShownOffsetY = offsetY;
+    }
+
+    /**
+     * Whether {@link #draw} would draw exactly what the last draw did, so the wake can do
+     * without a frame.
+     */
+    boolean isShowing(long timeMs, int offsetX, int offsetY) {
+        return mFrame != null && timeMs / MINUTE_MS == mComposedMinute
+                && offsetX == mShownOffsetX && offsetY == mShownOffsetY;
+    }
+
+    int getComposeCount() {
+        return mComposeCount;
+    }
+
+    int getByteCount() {
+        return mFrame != null ? mFrame.getByteCount() : 0;
+    }
+
+    /** Frees the bitmap; the next draw allocates and composes it again. */
+    void release() {
+        if (mFrame != null) {
+            mFrame.recycle();
+            mFrame = null;
+            mFrameCanvas = null;
+        }
+        invalidate();
+    }
+}
@@ -0,0 +1,53 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+/**
+ * {@link BatteryState.Source} backed by a real {@link BroadcastReceiver} registered on a
+ * context.
+ */
+final class BatteryReceiverSource extends BroadcastReceiver implements BatteryState.Source {
+    private final Context mContext;
+    private final Runnable mOnUpdate;
+    private BatteryState mState;
+
+    /** {@code onUpdate} runs after each broadcast, on the thread the broadcasts arrive on. */
+    BatteryReceiverSource(Context context, Runnable onUpdate) {
+        mContext = context;
+        mOnUpdate = onUpdate;
+    }
+
+    @Override
+    public void start(BatteryState state) {
+        mState = state;
+        /* The battery broadcast is sticky, so the current state comes back right away. */
+        Intent sticky = mContext.registerReceiver(this,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) {
+            onReceive(mContext, sticky);
+        }
+    }
+
+    @Override
+    public void stop() {
+        mContext.unregisterReceiver(this);
+        mState = null;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (mState != null) {
+            int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            mState.update(intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1),
+                    intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1),
+                    status == BatteryManager.BATTERY_STATUS_CHARGING
+                            || status == BatteryManager.BATTERY_STATUS_FULL,
+                    System.currentTimeMillis());
+            mOnUpdate.run();
+        }
+    }
+}
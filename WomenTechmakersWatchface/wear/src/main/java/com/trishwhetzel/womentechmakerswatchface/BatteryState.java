@@ -0,0 +1,79 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Battery level and charging state, kept up to date by battery broadcasts (see
+ * {@link BatteryReceiverSource}) while the watch face is visible. onDraw only reads the cached
+ * fields, so drawing a frame never goes through the system server.
+ */
+final class BatteryState implements BatteryStatus {
+
+    /** Level reported before the first broadcast has arrived. */
+    static final int UNKNOWN_LEVEL = -1;
+
+    /** Pushes battery updates into a {@link BatteryState} between start and stop. */
+    interface Source {
+        void start(BatteryState state);
+
+        void stop();
+    }
+
+    private final Source mSource;
+    private boolean mStarted;
+
+    private int mLevel = UNKNOWN_LEVEL;
+    private boolean mCharging;
+    private long mLastUpdateMs;
+
+    BatteryState(Source source) {
+        mSource = source;
+    }
+
+    /** Starts listening for battery updates. Does nothing if already started. */
+    void start() {
+        if (!mStarted) {
+            mStarted = true;
+            mSource.start(this);
+        }
+    }
+
+    /** Stops listening for battery updates. The last known values are kept. */
+    void stop() {
+        if (mStarted) {
+            mStarted = false;
+            mSource.stop();
+        }
+    }
+
+    boolean isStarted() {
+        return mStarted;
+    }
+
+    /**
+     * Records a battery update. {@code level} is scaled to a percentage using {@code scale};
+     * updates missing either value are ignored.
+     */
+    void update(int level, int scale, boolean charging, long timeMs) {
+        if (level < 0 || scale <= 0) {
+            return;
+        }
+        mLevel = Math.min(100, level * 100 / scale);
+        mCharging = charging;
+        mLastUpdateMs = timeMs;
+    }
+
+    /** Battery level in percent, or {@link #UNKNOWN_LEVEL} if no update has arrived yet. */
+    @Override
+    public int getLevel() {
+        return mLevel;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return mCharging;
+    }
+
+    /** Wall clock time of the last update, or 0 if no update has arrived yet. */
+    long getLastUpdateMs() {
+        return mLastUpdateMs;
+    }
+}
@@ -0,0 +1,14 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * The battery values a frame depends on. Implemented by {@link BatteryState} for whoever
+ * listens to broadcasts, and by the engine on top of its current frame snapshot for the
+ * renderer and scheduler, which only ever read.
+ */
+interface BatteryStatus {
+
+    /** Battery level in percent, or {@link BatteryState#UNKNOWN_LEVEL} if not known yet. */
+    int getLevel();
+
+    boolean isCharging();
+}
@@ -0,0 +1,154 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.util.LruCache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decoded bitmaps under a hard byte budget, least recently used first out. Decoding always
+ * happens on the worker handler; lookups and callbacks happen on the main handler, so the main
+ * thread never waits on a decode. Evicted bitmaps are not recycled, since the face may still be
+ * drawing one; they are left to the garbage collector once it lets go.
+ */
+final class BitmapCache {
+
+    /** Produces a bitmap on the worker thread. May return null if the image can't be decoded. */
+    interface Decoder {
+        Bitmap decode();
+    }
+
+    /** Receives a bitmap on the main thread. */
+    interface Callback {
+        void onBitmapLoaded(String key, Bitmap bitmap);
+    }
+
+    private final Handler mWorker;
+    private final Handler mMain;
+    private final LruCache<String, Bitmap> mCache;
+
+    /* Keys being decoded, with the callback of the latest request; main thread only. */
+    private final Map<String, Callback> mPending = new HashMap<String, Callback>();
+    private int mDecodeCount;
+
+    BitmapCache(int maxBytes, Handler worker, Handler main) {
+        mWorker = worker;
+        mMain = main;
+        mCache = new LruCache<String, Bitmap>(Math.max(1, maxBytes)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /** Returns the bitmap for {@code key} if it is decoded, marking it as recently used. */
+    Bitmap get(String key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * Hands the bitmap for {@code key} to {@code callback}: right away if it is cached, else
+     * after {@code decoder} ran on the worker. A key already being decoded is not decoded
+     * twice; the later callback replaces the earlier one. {@code callback} may be null to just
+     * prefetch.
+     */
+    void load(final String key, final Decoder decoder, Callback callback) {
+        Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            if (callback != null) {
+                callback.onBitmapLoaded(key, cached);
+            }
+            return;
+        }
+        boolean decoding = mPending.containsKey(key);
+        if (callback != null || !decoding) {
+            mPending.put(key, callback);
+        }
+        if (decoding) {
+            return;
+        }
+        mWorker.post(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decoder.decode();
+                mMain.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDecoded(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onDecoded(String key, Bitmap bitmap) {
+        if (!mPending.containsKey(key)) {
+            /* Cleared while decoding. */
+            return;
+        }
+        Callback callback = mPending.remove(key);
+        if (bitmap == null) {
+            return;
+        }
+        mDecodeCount++;
+        /* A bitmap bigger than the whole budget is evicted again at once, but still delivered. */
+        mCache.put(key, bitmap);
+        if (callback != null) {
+            callback.onBitmapLoaded(key, bitmap);
+        }
+    }
+
+    /** Changes the budget, evicting least recently used bitmaps until the cache fits. */
+    void setMaxBytes(int maxBytes) {
+        mCache.resize(Math.max(1, maxBytes));
+    }
+
+    /** Drops the bitmap for {@code key}, if it is cached. */
+    void remove(String key) {
+        mCache.remove(key);
+    }
+
+    /** Drops every cached bitmap but those for {@code keys}; pending decodes are kept. */
+    void retain(String... keys) {
+        for (String key : mCache.snapshot().keySet()) {
+            if (!Arrays.asList(keys).contains(key)) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+    /** Drops every bitmap and pending callback; decodes already running are discarded. */
+    void clear() {
+        mCache.evictAll();
+        mPending.clear();
+    }
+
+    /** Safe to call from any thread. */
+    int getByteCount() {
+        return mCache.size();
+    }
+
+    int getMaxBytes() {
+        return mCache.maxSize();
+    }
+
+    int getDecodeCount() {
+        return mDecodeCount;
+    }
+
+    int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    int getMissCount() {
+        return mCache.missCount();
+    }
+
+    int getEvictionCount() {
+        return mCache.evictionCount();
+    }
+}
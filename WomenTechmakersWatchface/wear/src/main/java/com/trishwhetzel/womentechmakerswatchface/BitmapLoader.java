@@ -0,0 +1,157 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes drawable resources straight to the size they are drawn at, keeping their aspect
+ * ratio. Image bounds are read first, the decoder subsamples by the largest power of two that
+ * stays above the target and then scales the rest of the way itself, so a full size copy never
+ * sits on the heap. Output is always derived from the resource, never from an earlier scaled
+ * copy.
+ */
+final class BitmapLoader {
+
+    private BitmapLoader() {
+    }
+
+    /**
+     * Decodes {@code resId} to the largest size that fits in {@code width} x {@code height}
+     * without changing its aspect ratio. Use {@link Bitmap.Config#RGB_565} for opaque images;
+     * the decoder falls back to ARGB_8888 for images with transparency. Returns null if the
+     * resource can't be decoded.
+     */
+    static Bitmap decode(Resources resources, int resId, int width, int height,
+            Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int fitWidth = computeFitSize(options.outWidth, options.outHeight, width, height);
+        int fitHeight = computeFitSize(options.outHeight, options.outWidth, height, width);
+        int sampleSize = computeSampleSize(options.outWidth, options.outHeight,
+                fitWidth, fitHeight);
+        int sampledWidth = options.outWidth / sampleSize;
+
+        /*
+         * Resource decoding scales by inTargetDensity / inDensity after subsampling, so these
+         * two values bring the sampled width to the fitted width. They also override the
+         * density of the drawable folder, which would otherwise scale the image up first.
+         */
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = true;
+        options.inDensity = sampledWidth;
+        options.inTargetDensity = fitWidth;
+        options.inPreferredConfig = config;
+        options.inDither = config == Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        /* The density trick scales both axes alike; only rounding is left to fix here. */
+        if (bitmap.getWidth() != fitWidth || bitmap.getHeight() != fitHeight) {
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, fitWidth, fitHeight, true);
+            if (scaled != bitmap) {
+                bitmap.recycle();
+            }
+            bitmap = scaled;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Decodes {@code resId} to {@code width} x {@code height} as {@link Bitmap.Config#RGB_565}:
+     * scaled to fit, centered, and flattened onto {@code backdropColor} where the image is
+     * transparent or doesn't reach. Returns null if the resource can't be decoded.
+     */
+    static Bitmap decodeOpaque(Resources resources, int resId, int width, int height,
+            int backdropColor) {
+        Bitmap bitmap = decode(resources, resId, width, height, Bitmap.Config.RGB_565);
+        if (bitmap == null || (bitmap.getConfig() == Bitmap.Config.RGB_565
+                && bitmap.getWidth() == width && bitmap.getHeight() == height)) {
+            return bitmap;
+        }
+        Bitmap opaque = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(opaque);
+        canvas.drawColor(backdropColor);
+        canvas.drawBitmap(bitmap, (width - bitmap.getWidth()) / 2,
+                (height - bitmap.getHeight()) / 2, new Paint(Paint.DITHER_FLAG));
+        bitmap.recycle();
+        return opaque;
+    }
+
+    /**
+     * Decodes {@code resId} to {@code width} x {@code height} as an {@link Bitmap.Config#ALPHA_8}
+     * luminance mask, a quarter of the memory of ARGB_8888. Drawn with a white paint over black,
+     * it shows the grayscale version of the image, scaled to fit and centered; transparent parts
+     * and the margins stay black. Returns null if the resource can't be decoded.
+     */
+    static Bitmap decodeLuminanceMask(Resources resources, int resId, int width, int height) {
+        Bitmap color = decode(resources, resId, width, height, Bitmap.Config.RGB_565);
+        if (color == null) {
+            return null;
+        }
+        Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        int colorWidth = color.getWidth();
+        int colorHeight = color.getHeight();
+        int left = (width - colorWidth) / 2;
+        int top = (height - colorHeight) / 2;
+
+        /* A fresh buffer is all zeros, so the margins come out black. */
+        int rowBytes = mask.getRowBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(rowBytes * height);
+        int[] row = new int[colorWidth];
+        for (int y = 0; y < colorHeight; y++) {
+            color.getPixels(row, 0, colorWidth, 0, y, colorWidth, 1);
+            buffer.position((top + y) * rowBytes + left);
+            for (int x = 0; x < colorWidth; x++) {
+                int pixel = row[x];
+                /* Rec. 601 luma, in integer math, and black where the image is transparent. */
+                int luma = (Color.red(pixel) * 77 + Color.green(pixel) * 150
+                        + Color.blue(pixel) * 29) >> 8;
+                buffer.put((byte) (luma * Color.alpha(pixel) / 255));
+            }
+        }
+        color.recycle();
+
+        buffer.rewind();
+        mask.copyPixelsFromBuffer(buffer);
+        return mask;
+    }
+
+    /**
+     * Size along one axis of a {@code srcSize} x {@code srcOtherSize} image scaled uniformly to
+     * fit in {@code dstSize} x {@code dstOtherSize}; call with the axes swapped for the other.
+     */
+    static int computeFitSize(int srcSize, int srcOtherSize, int dstSize, int dstOtherSize) {
+        /* Compare dst / src ratios by cross-multiplying, so both axes round the same way. */
+        if ((long) dstSize * srcOtherSize <= (long) dstOtherSize * srcSize) {
+            return dstSize;
+        }
+        return Math.max(1, (int) ((long) srcSize * dstOtherSize / srcOtherSize));
+    }
+
+    /**
+     * Largest power of two that subsamples a {@code srcWidth} x {@code srcHeight} image without
+     * going below {@code dstWidth} x {@code dstHeight}.
+     */
+    static int computeSampleSize(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= dstWidth
+                && srcHeight / (sampleSize * 2) >= dstHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
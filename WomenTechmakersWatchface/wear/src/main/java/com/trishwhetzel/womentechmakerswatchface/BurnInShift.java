@@ -0,0 +1,55 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Schedule of pixel offsets for burn-in protection. Once a minute the ambient frame moves one
+ * pixel along a path that sweeps every offset within {@link #MAX_SHIFT} of the center and then
+ * back, so no pixel stays lit in the same place for long and the face never visibly jumps.
+ */
+final class BurnInShift {
+
+    static final int MAX_SHIFT = 3;
+
+    private static final int SIDE = 2 * MAX_SHIFT + 1;
+
+    /* Snake over the square one row at a time, then the same path backwards. */
+    private static final int CYCLE = 2 * SIDE * SIDE - 2;
+    private static final int[] OFFSETS_X = new int[CYCLE];
+    private static final int[] OFFSETS_Y = new int[CYCLE];
+
+    static {
+        int index = 0;
+        for (int row = 0; row < SIDE; row++) {
+            for (int column = 0; column < SIDE; column++) {
+                OFFSETS_X[index] = (row % 2 == 0 ? column : SIDE - 1 - column) - MAX_SHIFT;
+                OFFSETS_Y[index] = row - MAX_SHIFT;
+                index++;
+            }
+        }
+        for (int back = SIDE * SIDE - 2; back > 0; back--) {
+            OFFSETS_X[index] = OFFSETS_X[back];
+            OFFSETS_Y[index] = OFFSETS_Y[back];
+            index++;
+        }
+    }
+
+    private BurnInShift() {
+    }
+
+    /** Number of minutes before the offsets repeat. */
+    static int getCycleLength() {
+        return CYCLE;
+    }
+
+    static int getOffsetX(long minute) {
+        return OFFSETS_X[index(minute)];
+    }
+
+    static int getOffsetY(long minute) {
+        return OFFSETS_Y[index(minute)];
+    }
+
+    private static int index(long minute) {
+        int index = (int) (minute % CYCLE);
+        return index < 0 ? index + CYCLE : index;
+    }
+}
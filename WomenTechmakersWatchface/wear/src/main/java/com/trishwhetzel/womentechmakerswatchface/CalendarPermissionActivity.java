@@ -0,0 +1,37 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.Manifest;
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Build;
+import android.os.Bundle;
+
+/**
+ * Asks for the calendar permission the next event field needs, then gets out of the way. Started
+ * from a tap on the field while the permission is missing; the face checks for it again once it
+ * is visible. Before M the permission is granted at install, so this just finishes.
+ */
+public final class CalendarPermissionActivity extends Activity {
+    private static final int REQUEST_CALENDAR = 1;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            finish();
+        } else if (savedInstanceState == null) {
+            requestCalendarPermission();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private void requestCalendarPermission() {
+        requestPermissions(new String[] {Manifest.permission.READ_CALENDAR}, REQUEST_CALENDAR);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions,
+            int[] grantResults) {
+        finish();
+    }
+}
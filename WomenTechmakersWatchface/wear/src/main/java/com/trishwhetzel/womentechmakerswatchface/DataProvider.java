@@ -0,0 +1,20 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Source of one text field on the face, e.g. the next calendar event. Fetched by
+ * {@link ProviderRegistry} on its worker thread, never while drawing.
+ */
+interface DataProvider {
+
+    /**
+     * How often the value should be fetched. Refreshes are aligned to multiples of the
+     * interval, so providers with intervals that divide each other share wakeups.
+     */
+    long getRefreshIntervalMs();
+
+    /**
+     * Returns the text to show for {@code timeMs}, or null to show nothing. Runs on the worker
+     * thread and may block; if it throws, the previous value is kept until the next refresh.
+     */
+    String fetch(long timeMs) throws Exception;
+}
@@ -0,0 +1,84 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Precomputed positions on the dial, so drawing needs neither trig nor canvas rotation. Unit
+ * vectors for 60 tick positions and for hand angles in 0.1 degree steps are computed once per
+ * process; tick end points are scaled to the surface once in {@link #setSize}. Hand angles
+ * are turned into table steps with integer math straight from the time fields.
+ *
+ * <p>Angles run clockwise from 12 o'clock, so a point at radius r and step s is
+ * {@code (centerX + sin(s) * r, centerY - cos(s) * r)}.
+ */
+final class DialGeometry {
+
+    static final int TICK_POSITIONS = 60;
+    static final int HAND_STEPS = 3600;
+
+    /* Ticks drawn on the dial: every fifth position, one per hour. */
+    static final int HOUR_TICK_SPACING = TICK_POSITIONS / 12;
+
+    private static final float[] HAND_SIN = new float[HAND_STEPS];
+    private static final float[] HAND_COS = new float[HAND_STEPS];
+
+    static {
+        for (int step = 0; step < HAND_STEPS; step++) {
+            double angle = step * Math.PI * 2 / HAND_STEPS;
+            HAND_SIN[step] = (float) Math.sin(angle);
+            HAND_COS[step] = (float) Math.cos(angle);
+        }
+    }
+
+    /* Inner and outer end point of every tick position: x0, y0, x1, y1. */
+    private final float[] mTickLines = new float[TICK_POSITIONS * 4];
+
+    /** Scales the tick table to a surface; ticks run from the inner to the outer radius. */
+    void setSize(float centerX, float centerY, float innerRadius, float outerRadius) {
+        for (int position = 0; position < TICK_POSITIONS; position++) {
+            int step = position * (HAND_STEPS / TICK_POSITIONS);
+            int base = position * 4;
+            mTickLines[base] = centerX + HAND_SIN[step] * innerRadius;
+            mTickLines[base + 1] = centerY - HAND_COS[step] * innerRadius;
+            mTickLines[base + 2] = centerX + HAND_SIN[step] * outerRadius;
+            mTickLines[base + 3] = centerY - HAND_COS[step] * outerRadius;
+        }
+    }
+
+    float getTickStartX(int position) {
+        return mTickLines[position * 4];
+    }
+
+    float getTickStartY(int position) {
+        return mTickLines[position * 4 + 1];
+    }
+
+    float getTickEndX(int position) {
+        return mTickLines[position * 4 + 2];
+    }
+
+    float getTickEndY(int position) {
+        return mTickLines[position * 4 + 3];
+    }
+
+    static float sin(int step) {
+        return HAND_SIN[step];
+    }
+
+    static float cos(int step) {
+        return HAND_COS[step];
+    }
+
+    /** Second hand step, including the sub-second part for a sweeping hand. */
+    static int secondStep(int second, int millisecond) {
+        return (second * 1000 + millisecond) * HAND_STEPS / 60000;
+    }
+
+    /** Minute hand step: 6 degrees a minute. */
+    static int minuteStep(int minute) {
+        return minute * (HAND_STEPS / 60);
+    }
+
+    /** Hour hand step: 30 degrees an hour plus half a degree a minute. */
+    static int hourStep(int hour, int minute) {
+        return (hour % 12) * (HAND_STEPS / 12) + minute * (HAND_STEPS / 720);
+    }
+}
@@ -0,0 +1,634 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Draws the watch face onto a {@link RenderTarget}. Geometry is computed once per surface size
+ * in {@link #setSurfaceSize}, hand angles come from {@link DialGeometry} tables, and everything
+ * {@link #drawFrame} needs per frame is either a primitive field or a preallocated string, so
+ * drawing a frame neither allocates nor calls into trig.
+ *
+ * <p>While a peek card is showing in ambient mode, elements it covers completely are not drawn,
+ * and the background and static layer are only blitted where the card leaves the screen
+ * visible; the area under the card is cleared to black. Interactive cards may have no background
+ * of their own (see {@code BACKGROUND_VISIBILITY_INTERRUPTIVE}), so there the face shows
+ * through and is drawn whole.
+ *
+ * <p>The renderer remembers what the last frame showed. {@link #computeDamage} compares that
+ * with the next frame and bounds what changed, the old and new boxes of each hand that moved
+ * and of each label whose text changed, so that {@link #drawDamage} only has to restore that
+ * region from the static layer and redraw what lies in it.
+ */
+final class FaceRenderer {
+
+    private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 4f;
+
+    /* Half the widest stroke plus the hand shadow, added around lines when testing overlap. */
+    private static final float OCCLUSION_MARGIN = 12f;
+
+    /* How an element overlaps the peek card. */
+    private static final int CLEAR = 0;
+    private static final int PARTIAL = 1;
+    private static final int COVERED = 2;
+
+    /* What changed between the last frame drawn and the next one. */
+    static final int DAMAGE_NONE = 0;
+    static final int DAMAGE_PARTIAL = 1;
+    static final int DAMAGE_FULL = 2;
+
+    /* Provider fields from top to bottom, and their height as a fraction of the radius. */
+    static final int FIELD_TOP = 0;
+    static final int FIELD_MIDDLE = 1;
+    static final int FIELD_BOTTOM = 2;
+    private static final float[] FIELD_Y_FRACTIONS = {-0.45f, 0.3f, 0.55f};
+
+    /* Hand step of a hand that isn't drawn. */
+    private static final int NO_STEP = -1;
+
+    /* "0%" to "100%", so the battery label never has to be built while drawing. */
+    private static final String[] BATTERY_LABELS = new String[101];
+
+    static {
+        for (int level = 0; level < BATTERY_LABELS.length; level++) {
+            BATTERY_LABELS[level] = level + "%";
+        }
+    }
+
+    private final TimeEngine mTime;
+    private final BatteryStatus mBattery;
+    private final DialGeometry mGeometry = new DialGeometry();
+
+    /* Text fields above and below the center, filled in by data providers. */
+    private ProviderRegistry mProviders;
+    private final int[] mFieldSlots = {-1, -1, -1};
+
+    private boolean mAmbient;
+    private boolean mShowSeconds = true;
+    private boolean mShowBattery = true;
+    private boolean mShowDate = true;
+
+    private int mWidth;
+    private int mHeight;
+    private float mCenterX;
+    private float mCenterY;
+
+    private float mSecondHandLength;
+    private float mMinuteHandLength;
+    private float mHourHandLength;
+
+    private float mDateXOffset;
+    private float mBatteryXOffset;
+    private float mFieldXOffset;
+    private final float[] mFieldYOffsets = new float[FIELD_Y_FRACTIONS.length];
+
+    /* Text sizes of the date and of the battery and field labels, to bound their extent. */
+    private float mDateTextSize;
+    private float mBatteryTextSize;
+    private float mFieldTextSize;
+
+    private int mPeekCardLeft;
+    private int mPeekCardTop;
+    private int mPeekCardRight;
+    private int mPeekCardBottom;
+
+    /* The part of the surface the peek card leaves visible; all of it without a card. */
+    private int mVisibleLeft;
+    private int mVisibleTop;
+    private int mVisibleRight;
+    private int mVisibleBottom;
+
+    /* Whether anything drawn in the static layer or the last frame overlaps the peek card. */
+    private boolean mStaticLayerUnderCard;
+    private boolean mFrameUnderCard;
+
+    /* What the next frame shows, read once by drawFrame or computeDamage. */
+    private int mNextHourStep;
+    private int mNextMinuteStep;
+    private int mNextSecondStep;
+    private String mNextBatteryLabel;
+    private final String[] mNextFields = new String[FIELD_Y_FRACTIONS.length];
+
+    /* What the last frame drawn shows; anything but a frame invalidates it. */
+    private boolean mDrawnValid;
+    private int mDrawnHourStep;
+    private int mDrawnMinuteStep;
+    private int mDrawnSecondStep;
+    private String mDrawnBatteryLabel;
+    private final String[] mDrawnFields = new String[FIELD_Y_FRACTIONS.length];
+
+    /* Bounds of the damage found by computeDamage, and of the region being drawn. */
+    private int mDamageLeft;
+    private int mDamageTop;
+    private int mDamageRight;
+    private int mDamageBottom;
+    private int mRegionLeft;
+    private int mRegionTop;
+    private int mRegionRight;
+    private int mRegionBottom;
+
+    FaceRenderer(TimeEngine time, BatteryStatus battery) {
+        mTime = time;
+        mBattery = battery;
+    }
+
+    void setSurfaceSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+
+        /*
+         * Find the coordinates of the center point on the screen, and ignore the window
+         * insets, so that, on round watches with a "chin", the watch face is centered on the
+         * entire screen, not just the usable portion.
+         */
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+
+        /*
+         * Calculate lengths of different hands based on watch screen size.
+         */
+        mSecondHandLength = (float) (mCenterX * 0.825);
+        mMinuteHandLength = (float) (mCenterX * 0.75);
+        mHourHandLength = (float) (mCenterX * 0.52);
+
+        /* Date box sits right of center, battery label left of center. */
+        mDateXOffset = mCenterX + (mCenterX * 0.75f);
+        mBatteryXOffset = mCenterX - (mCenterX * 0.9f);
+
+        /* Provider fields sit between the center and the 12 and 6 o'clock ticks. */
+        mFieldXOffset = fieldX(width);
+        for (int field = 0; field < mFieldYOffsets.length; field++) {
+            mFieldYOffsets[field] = fieldY(field, height);
+        }
+
+        mGeometry.setSize(mCenterX, mCenterY, mCenterX - 10, mCenterX);
+        updateVisibleRegion();
+        mDrawnValid = false;
+    }
+
+    private static float fieldX(int width) {
+        float centerX = width / 2f;
+        return centerX - (centerX * 0.3f);
+    }
+
+    private static float fieldY(int field, int height) {
+        float centerY = height / 2f;
+        return centerY + (centerY * FIELD_Y_FRACTIONS[field]);
+    }
+
+    /**
+     * Whether a tap at ({@code x}, {@code y}) on a {@code width} x {@code height} surface hits
+     * {@code field}: the row its text sits on, from a little left of the text to the edge,
+     * with room for a finger above and below. Doesn't touch renderer state, so it is safe to
+     * call from any thread.
+     */
+    static boolean isInField(int field, float x, float y, int width, int height,
+            float textSize) {
+        float baseline = fieldY(field, height);
+        return x >= fieldX(width) - textSize && y >= baseline - 1.5f * textSize
+                && y <= baseline + textSize;
+    }
+
+    /**
+     * Text sizes of the date, the battery label and the provider fields, used to tell whether
+     * the peek card covers them and to bound their damage. Text is never culled while these are
+     * unknown.
+     */
+    void setTextSizes(float dateTextSize, float batteryTextSize, float fieldTextSize) {
+        mDateTextSize = dateTextSize;
+        mBatteryTextSize = batteryTextSize;
+        mFieldTextSize = fieldTextSize;
+        mDrawnValid = false;
+    }
+
+    void setAmbient(boolean ambient) {
+        mAmbient = ambient;
+        updateVisibleRegion();
+        mDrawnValid = false;
+    }
+
+    /**
+     * Hides the second hand when frames come too rarely for it to be meaningful. Its absence
+     * is tracked like a move, so this doesn't force a full frame.
+     */
+    void setShowSeconds(boolean showSeconds) {
+        mShowSeconds = showSeconds;
+    }
+
+    void setShowBattery(boolean showBattery) {
+        mShowBattery = showBattery;
+        mDrawnValid = false;
+    }
+
+    /** The date is part of the static layer, so redraw that after changing this. */
+    void setShowDate(boolean showDate) {
+        mShowDate = showDate;
+        mDrawnValid = false;
+    }
+
+    /** Reads the fields from {@code providers}, whose latest snapshot is read on every frame. */
+    void setProviders(ProviderRegistry providers) {
+        mProviders = providers;
+        mDrawnValid = false;
+    }
+
+    /**
+     * Shows the value of provider slot {@code slot} in {@code field}, one of the FIELD
+     * constants; -1 leaves the field empty.
+     */
+    void setFieldSlot(int field, int slot) {
+        mFieldSlots[field] = slot;
+        mDrawnValid = false;
+    }
+
+    /**
+     * Sets the peek card bounds; an empty rectangle means no card. What the ambient static layer
+     * culls depends on the card, so redraw that after changing this.
+     */
+    void setPeekCardBounds(int left, int top, int right, int bottom) {
+        mPeekCardLeft = left;
+        mPeekCardTop = top;
+        mPeekCardRight = right;
+        mPeekCardBottom = bottom;
+        updateVisibleRegion();
+        mDrawnValid = false;
+    }
+
+    /** Makes the next {@link #computeDamage} report the whole surface, e.g. for new paints. */
+    void invalidateFrame() {
+        mDrawnValid = false;
+    }
+
+    /**
+     * Cards span the width of the screen from its bottom (or top) edge, so what remains visible
+     * is a single band. Any other card shape, and any card in interactive mode, leaves the whole
+     * surface marked visible.
+     */
+    private void updateVisibleRegion() {
+        mVisibleLeft = 0;
+        mVisibleTop = 0;
+        mVisibleRight = mWidth;
+        mVisibleBottom = mHeight;
+        if (cullsUnderCard() && mPeekCardLeft <= 0 && mPeekCardRight >= mWidth) {
+            if (mPeekCardBottom >= mHeight) {
+                mVisibleBottom = Math.max(0, mPeekCardTop);
+            } else if (mPeekCardTop <= 0) {
+                mVisibleTop = Math.min(mHeight, mPeekCardBottom);
+            }
+        }
+    }
+
+    /**
+     * Draws everything that only changes once a day, for the current mode: background, ticks
+     * and the box with day and date. Uses the time last set on the {@link TimeEngine}.
+     */
+    void drawStaticLayer(RenderTarget target) {
+        /* Whatever is on screen no longer matches the layer frames are restored from. */
+        mDrawnValid = false;
+        mStaticLayerUnderCard = false;
+        target.drawBackground(mAmbient, mVisibleLeft, mVisibleTop, mVisibleRight,
+                mVisibleBottom);
+
+        /*
+         * Draw ticks. Usually you will want to bake this directly into the photo, but in
+         * cases where you want to allow users to select their own photos, this dynamically
+         * creates them on top of the photo.
+         */
+        for (int position = 0; position < DialGeometry.TICK_POSITIONS;
+                position += DialGeometry.HOUR_TICK_SPACING) {
+            float startX = mGeometry.getTickStartX(position);
+            float startY = mGeometry.getTickStartY(position);
+            float endX = mGeometry.getTickEndX(position);
+            float endY = mGeometry.getTickEndY(position);
+            int overlap = lineOverlap(startX, startY, endX, endY);
+            if (overlap != COVERED) {
+                mStaticLayerUnderCard |= overlap == PARTIAL;
+                target.drawLine(startX, startY, endX, endY, RenderTarget.PAINT_TICK_AND_CIRCLE);
+            }
+        }
+
+        /* display rectangle to hold day and date */
+        int dateOverlap = overlap(mDateXOffset - 21f,
+                Math.min(mCenterY - 23f, mCenterY - 2f - mDateTextSize),
+                Math.max(mDateXOffset + 28f, mDateXOffset - 15f + 3 * mDateTextSize),
+                mCenterY + 19f + mDateTextSize / 2, mDateTextSize);
+        mStaticLayerUnderCard |= mShowDate && dateOverlap == PARTIAL;
+        if (mShowDate && dateOverlap != COVERED) {
+            target.drawRect(mDateXOffset - 21f, mCenterY + 4f, mDateXOffset + 28f, mCenterY - 23f,
+                    RenderTarget.PAINT_DATE_BOX);
+            target.drawText(mTime.getDayName(), mDateXOffset - 15f, mCenterY - 2f,
+                    RenderTarget.PAINT_DATE);
+            target.drawText(mTime.getDayOfMonthText(), mDateXOffset - 12f, mCenterY + 19f,
+                    RenderTarget.PAINT_DATE);
+        }
+    }
+
+    /** Draws one frame for the time last set on the {@link TimeEngine}. Never allocates. */
+    void drawFrame(RenderTarget target) {
+        readFrame();
+        drawRegion(target, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Compares the frame for the time last set on the {@link TimeEngine} with the last frame
+     * drawn. Returns {@link #DAMAGE_NONE} if it would look the same, {@link #DAMAGE_FULL} if
+     * anything outside the hands and labels may have changed, and otherwise
+     * {@link #DAMAGE_PARTIAL} with the changed region in {@link #getDamageLeft} and friends.
+     * Damage under the peek card doesn't count. Never allocates.
+     */
+    int computeDamage() {
+        readFrame();
+        if (!mDrawnValid) {
+            setDamage(0, 0, mWidth, mHeight);
+            return DAMAGE_FULL;
+        }
+        mDamageLeft = Integer.MAX_VALUE;
+        mDamageTop = Integer.MAX_VALUE;
+        mDamageRight = Integer.MIN_VALUE;
+        mDamageBottom = Integer.MIN_VALUE;
+
+        if (mNextHourStep != mDrawnHourStep) {
+            addHandDamage(mDrawnHourStep, mHourHandLength);
+            addHandDamage(mNextHourStep, mHourHandLength);
+        }
+        if (mNextMinuteStep != mDrawnMinuteStep) {
+            addHandDamage(mDrawnMinuteStep, mMinuteHandLength);
+            addHandDamage(mNextMinuteStep, mMinuteHandLength);
+        }
+        if (mNextSecondStep != mDrawnSecondStep) {
+            addHandDamage(mDrawnSecondStep, mSecondHandLength);
+            addHandDamage(mNextSecondStep, mSecondHandLength);
+        }
+        boolean batteryChanged = !sameText(mNextBatteryLabel, mDrawnBatteryLabel);
+        boolean fieldsChanged = false;
+        for (int field = 0; field < mNextFields.length; field++) {
+            fieldsChanged |= !sameText(mNextFields[field], mDrawnFields[field]);
+        }
+        if ((batteryChanged && mBatteryTextSize <= 0) || (fieldsChanged && mFieldTextSize <= 0)) {
+            /* The old and new text can't be bounded. */
+            setDamage(0, 0, mWidth, mHeight);
+            return DAMAGE_FULL;
+        }
+        if (batteryChanged) {
+            addLabelDamage(mDrawnBatteryLabel, mBatteryXOffset, mCenterY, mBatteryTextSize);
+            addLabelDamage(mNextBatteryLabel, mBatteryXOffset, mCenterY, mBatteryTextSize);
+        }
+        for (int field = 0; fieldsChanged && field < mNextFields.length; field++) {
+            if (!sameText(mNextFields[field], mDrawnFields[field])) {
+                addLabelDamage(mDrawnFields[field], mFieldXOffset, mFieldYOffsets[field],
+                        mFieldTextSize);
+                addLabelDamage(mNextFields[field], mFieldXOffset, mFieldYOffsets[field],
+                        mFieldTextSize);
+            }
+        }
+
+        /* Only what the card leaves visible has to be redrawn. */
+        mDamageLeft = Math.max(mDamageLeft, mVisibleLeft);
+        mDamageTop = Math.max(mDamageTop, mVisibleTop);
+        mDamageRight = Math.min(mDamageRight, mVisibleRight);
+        mDamageBottom = Math.min(mDamageBottom, mVisibleBottom);
+        if (mDamageRight <= mDamageLeft || mDamageBottom <= mDamageTop) {
+            /* Nothing to draw, but the frame counts as shown. */
+            commitFrame();
+            return DAMAGE_NONE;
+        }
+        return DAMAGE_PARTIAL;
+    }
+
+    int getDamageLeft() {
+        return mDamageLeft;
+    }
+
+    int getDamageTop() {
+        return mDamageTop;
+    }
+
+    int getDamageRight() {
+        return mDamageRight;
+    }
+
+    int getDamageBottom() {
+        return mDamageBottom;
+    }
+
+    /**
+     * Draws the frame last passed to {@link #computeDamage} within the given region, normally
+     * its damage or a larger region the surface asked for: restores the region from the
+     * static layer and redraws whatever overlaps it. Never allocates.
+     */
+    void drawDamage(RenderTarget target, int left, int top, int right, int bottom) {
+        drawRegion(target, left, top, right, bottom);
+    }
+
+    /** Reads what the next frame shows: hand angles, battery level and field values. */
+    private void readFrame() {
+        /* Hand angles as steps into the geometry tables, in tenths of a degree. */
+        mNextHourStep = DialGeometry.hourStep(mTime.getHour(), mTime.getMinute());
+        mNextMinuteStep = DialGeometry.minuteStep(mTime.getMinute());
+        /*
+         * Ensure the "seconds" hand is drawn only when we are in interactive mode.
+         * Otherwise, we only update the watch face once a minute.
+         */
+        mNextSecondStep = !mAmbient && mShowSeconds
+                ? DialGeometry.secondStep(mTime.getSecond(), mTime.getMillisecond()) : NO_STEP;
+
+        /* Display Battery Level, cached from the last battery broadcast */
+        int batteryLevel = mBattery.getLevel();
+        mNextBatteryLabel = mShowBattery && batteryLevel != BatteryState.UNKNOWN_LEVEL
+                ? BATTERY_LABELS[batteryLevel] : null;
+
+        /* One snapshot for the frame, so all fields come from the same refresh. */
+        ProviderSnapshot snapshot = mProviders != null ? mProviders.getSnapshot() : null;
+        for (int field = 0; field < mNextFields.length; field++) {
+            mNextFields[field] = snapshot != null ? snapshot.getText(mFieldSlots[field]) : null;
+        }
+    }
+
+    /** Draws the frame last read, leaving out what lies entirely outside the given region. */
+    private void drawRegion(RenderTarget target, int left, int top, int right, int bottom) {
+        mRegionLeft = left;
+        mRegionTop = top;
+        mRegionRight = right;
+        mRegionBottom = bottom;
+        mFrameUnderCard = false;
+        target.drawStaticLayer(mAmbient, Math.max(mVisibleLeft, left),
+                Math.max(mVisibleTop, top), Math.min(mVisibleRight, right),
+                Math.min(mVisibleBottom, bottom));
+
+        drawLabel(target, mNextBatteryLabel, mBatteryXOffset, mCenterY,
+                RenderTarget.PAINT_BATTERY, mBatteryTextSize);
+        for (int field = 0; field < mNextFields.length; field++) {
+            drawLabel(target, mNextFields[field], mFieldXOffset, mFieldYOffsets[field],
+                    RenderTarget.PAINT_FIELD, mFieldTextSize);
+        }
+
+        drawHand(target, RenderTarget.PAINT_HOUR, mNextHourStep, mHourHandLength);
+        drawHand(target, RenderTarget.PAINT_MINUTE, mNextMinuteStep, mMinuteHandLength);
+        drawHand(target, RenderTarget.PAINT_SECOND, mNextSecondStep, mSecondHandLength);
+
+        float circleLeft = mCenterX - CENTER_GAP_AND_CIRCLE_RADIUS;
+        float circleTop = mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS;
+        float circleRight = mCenterX + CENTER_GAP_AND_CIRCLE_RADIUS;
+        float circleBottom = mCenterY + CENTER_GAP_AND_CIRCLE_RADIUS;
+        int circleOverlap = overlap(circleLeft, circleTop, circleRight, circleBottom,
+                OCCLUSION_MARGIN);
+        mFrameUnderCard |= circleOverlap == PARTIAL;
+        if (circleOverlap != COVERED && inRegion(circleLeft - OCCLUSION_MARGIN,
+                circleTop - OCCLUSION_MARGIN, circleRight + OCCLUSION_MARGIN,
+                circleBottom + OCCLUSION_MARGIN)) {
+            target.drawCircle(
+                    mCenterX,
+                    mCenterY,
+                    CENTER_GAP_AND_CIRCLE_RADIUS,
+                    RenderTarget.PAINT_TICK_AND_CIRCLE);
+        }
+
+        /*
+         * Draw rectangle behind peek card in ambient mode to improve readability. Only needed
+         * if something drawn reaches under the card; the background stops at its edge.
+         */
+        if (mAmbient && (mStaticLayerUnderCard || mFrameUnderCard)
+                && inRegion(mPeekCardLeft, mPeekCardTop, mPeekCardRight, mPeekCardBottom)) {
+            target.drawRect(mPeekCardLeft, mPeekCardTop, mPeekCardRight, mPeekCardBottom,
+                    RenderTarget.PAINT_BACKGROUND);
+        }
+        commitFrame();
+    }
+
+    /* The frame last read is now on screen. */
+    private void commitFrame() {
+        mDrawnHourStep = mNextHourStep;
+        mDrawnMinuteStep = mNextMinuteStep;
+        mDrawnSecondStep = mNextSecondStep;
+        mDrawnBatteryLabel = mNextBatteryLabel;
+        System.arraycopy(mNextFields, 0, mDrawnFields, 0, mNextFields.length);
+        mDrawnValid = true;
+    }
+
+    private void drawHand(RenderTarget target, int paint, int step, float length) {
+        if (step == NO_STEP) {
+            return;
+        }
+        float sin = DialGeometry.sin(step);
+        float cos = DialGeometry.cos(step);
+        float startX = mCenterX + sin * CENTER_GAP_AND_CIRCLE_RADIUS;
+        float startY = mCenterY - cos * CENTER_GAP_AND_CIRCLE_RADIUS;
+        float endX = mCenterX + sin * length;
+        float endY = mCenterY - cos * length;
+        int overlap = lineOverlap(startX, startY, endX, endY);
+        mFrameUnderCard |= overlap == PARTIAL;
+        if (overlap != COVERED && inRegion(Math.min(startX, endX) - OCCLUSION_MARGIN,
+                Math.min(startY, endY) - OCCLUSION_MARGIN,
+                Math.max(startX, endX) + OCCLUSION_MARGIN,
+                Math.max(startY, endY) + OCCLUSION_MARGIN)) {
+            target.drawHand(paint, step, mCenterX, mCenterY, CENTER_GAP_AND_CIRCLE_RADIUS,
+                    length);
+        }
+    }
+
+    /* Labels are left aligned; a glyph is never wider than the text size. */
+    private void drawLabel(RenderTarget target, String text, float x, float y, int paint,
+            float textSize) {
+        if (text == null) {
+            return;
+        }
+        float right = x + text.length() * textSize;
+        int overlap = overlap(x, y - textSize, right, y + textSize / 2, textSize);
+        mFrameUnderCard |= overlap == PARTIAL;
+        /* Text of unknown size is drawn whatever the region. */
+        if (overlap != COVERED && (textSize <= 0
+                || inRegion(x, y - textSize, right, y + textSize / 2))) {
+            target.drawText(text, x, y, paint);
+        }
+    }
+
+    /* Adds the box of a hand at {@code step}, shadow included, to the damage. */
+    private void addHandDamage(int step, float length) {
+        if (step == NO_STEP) {
+            return;
+        }
+        float sin = DialGeometry.sin(step);
+        float cos = DialGeometry.cos(step);
+        float startX = mCenterX + sin * CENTER_GAP_AND_CIRCLE_RADIUS;
+        float startY = mCenterY - cos * CENTER_GAP_AND_CIRCLE_RADIUS;
+        float endX = mCenterX + sin * length;
+        float endY = mCenterY - cos * length;
+        addDamage(Math.min(startX, endX) - OCCLUSION_MARGIN,
+                Math.min(startY, endY) - OCCLUSION_MARGIN,
+                Math.max(startX, endX) + OCCLUSION_MARGIN,
+                Math.max(startY, endY) + OCCLUSION_MARGIN);
+    }
+
+    private void addLabelDamage(String text, float x, float y, float textSize) {
+        if (text != null) {
+            addDamage(x, y - textSize, x + text.length() * textSize, y + textSize / 2);
+        }
+    }
+
+    /* Grows the damage to whole pixels covering the given bounds, within the surface. */
+    private void addDamage(float left, float top, float right, float bottom) {
+        mDamageLeft = Math.min(mDamageLeft, Math.max(0, (int) Math.floor(left)));
+        mDamageTop = Math.min(mDamageTop, Math.max(0, (int) Math.floor(top)));
+        mDamageRight = Math.max(mDamageRight, Math.min(mWidth, (int) Math.ceil(right)));
+        mDamageBottom = Math.max(mDamageBottom, Math.min(mHeight, (int) Math.ceil(bottom)));
+    }
+
+    private void setDamage(int left, int top, int right, int bottom) {
+        mDamageLeft = left;
+        mDamageTop = top;
+        mDamageRight = right;
+        mDamageBottom = bottom;
+    }
+
+    /* Whether the given bounds reach into the region being drawn. */
+    private boolean inRegion(float left, float top, float right, float bottom) {
+        return right > mRegionLeft && left < mRegionRight
+                && bottom > mRegionTop && top < mRegionBottom;
+    }
+
+    /* Provider values are fresh strings on every refresh, so compare the text. */
+    private static boolean sameText(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private int lineOverlap(float startX, float startY, float endX, float endY) {
+        return overlap(Math.min(startX, endX) - OCCLUSION_MARGIN,
+                Math.min(startY, endY) - OCCLUSION_MARGIN,
+                Math.max(startX, endX) + OCCLUSION_MARGIN,
+                Math.max(startY, endY) + OCCLUSION_MARGIN, OCCLUSION_MARGIN);
+    }
+
+    /**
+     * Classifies the bounds of an element against the peek card. {@code extent} is how large
+     * the element is drawn; zero means its bounds are unknown, so it counts as overlapping.
+     */
+    private int overlap(float left, float top, float right, float bottom, float extent) {
+        if (!cullsUnderCard()) {
+            return CLEAR;
+        }
+        if (extent <= 0) {
+            return PARTIAL;
+        }
+        /* Whatever lies beyond the surface is as good as covered. */
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, mWidth);
+        bottom = Math.min(bottom, mHeight);
+        if (right <= mPeekCardLeft || left >= mPeekCardRight
+                || bottom <= mPeekCardTop || top >= mPeekCardBottom) {
+            return CLEAR;
+        }
+        if (left >= mPeekCardLeft && right <= mPeekCardRight
+                && top >= mPeekCardTop && bottom <= mPeekCardBottom) {
+            return COVERED;
+        }
+        return PARTIAL;
+    }
+
+    private boolean hasPeekCard() {
+        return mPeekCardRight > mPeekCardLeft && mPeekCardBottom > mPeekCardTop;
+    }
+
+    /* Only ambient frames clear the area under the card, so only they may skip drawing it. */
+    private boolean cullsUnderCard() {
+        return mAmbient && hasPeekCard();
+    }
+}
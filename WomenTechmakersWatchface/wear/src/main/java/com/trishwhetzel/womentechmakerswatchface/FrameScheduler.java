@@ -0,0 +1,176 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Decides when the next interactive frame is due. Ticks are aligned to the boundary of the
+ * current interval, like the original once-a-second timer, and the interval depends on the
+ * mode: a smooth sweep second hand at 15, 30 or 60 fps, a 1 Hz tick, or a power saver that
+ * ticks once a minute while the battery is low. When frames keep overrunning their budget the
+ * sweep rate steps down until they fit, falling back to 1 Hz as a last resort.
+ *
+ * <p>The actual timer and clock are supplied through {@link Host} and {@link Clock}, so the
+ * scheduler can be driven by a fake looper in tests.
+ */
+final class FrameScheduler {
+
+    static final int MODE_SWEEP = 0;
+    static final int MODE_TICK = 1;
+    static final int MODE_POWER_SAVER = 2;
+
+    /** Battery percentage at or below which power saver mode drops to minute ticks. */
+    static final int LOW_BATTERY_LEVEL = 15;
+
+    /* Frame rates the sweep can run at, fastest first; the last one is the 1 Hz tick. */
+    private static final int[] FRAME_RATES = {60, 30, 15, 1};
+
+    private static final long TICK_INTERVAL_MS = 1000;
+    private static final long MINUTE_INTERVAL_MS = 60 * 1000;
+
+    /* A frame overruns when drawing it takes more than this share of its interval. */
+    private static final float FRAME_BUDGET_FRACTION = 0.5f;
+    /* Consecutive overruns that make the sweep step down one rate. */
+    static final int OVERRUN_LIMIT = 5;
+
+    /** Wall clock time source. */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /** The engine side: its timer, redraws and whether the timer should run at all. */
+    interface Host {
+        void scheduleTick(long delayMs);
+
+        void cancelTick();
+
+        void requestFrame();
+
+        boolean shouldTimerBeRunning();
+    }
+
+    private final Clock mClock;
+    private final Host mHost;
+    private final BatteryStatus mBattery;
+    private final FrameStats mFrameStats;
+
+    private int mMode = MODE_TICK;
+    /* Index into FRAME_RATES of the configured sweep rate, and of the rate after step-downs. */
+    private int mSweepRateIndex;
+    private int mRateIndex = FRAME_RATES.length - 1;
+
+    private long mNextTickTargetMs;
+    private int mOverruns;
+    private int mStepDowns;
+
+    FrameScheduler(Clock clock, Host host, BatteryStatus battery, FrameStats frameStats) {
+        mClock = clock;
+        mHost = host;
+        mBattery = battery;
+        mFrameStats = frameStats;
+    }
+
+    /** Sets one of {@link #MODE_SWEEP}, {@link #MODE_TICK} or {@link #MODE_POWER_SAVER}. */
+    void setMode(int mode) {
+        if (mode != MODE_SWEEP && mode != MODE_TICK && mode != MODE_POWER_SAVER) {
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        mMode = mode;
+        resetRate();
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    /** Sets the sweep frame rate, one of 15, 30 or 60. */
+    void setSweepFps(int fps) {
+        for (int i = 0; i < FRAME_RATES.length - 1; i++) {
+            if (FRAME_RATES[i] == fps) {
+                mSweepRateIndex = i;
+                resetRate();
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sweep rate " + fps);
+    }
+
+    /** Stops the timer, and starts it right away if the host says it should be running. */
+    void update() {
+        mHost.cancelTick();
+        mNextTickTargetMs = 0;
+        if (mHost.shouldTimerBeRunning()) {
+            mHost.scheduleTick(0);
+        } else {
+            /* Start from the configured rate again the next time the timer runs. */
+            resetRate();
+        }
+    }
+
+    /** Called by the host's timer: requests a frame and schedules the next tick. */
+    void onTick() {
+        long timeMs = mClock.currentTimeMillis();
+        if (mNextTickTargetMs != 0) {
+            mFrameStats.recordTickLateness(false, timeMs - mNextTickTargetMs);
+            mNextTickTargetMs = 0;
+        }
+
+        mHost.requestFrame();
+        if (mHost.shouldTimerBeRunning()) {
+            long intervalMs = getIntervalMs();
+            long delayMs = intervalMs - (timeMs % intervalMs);
+            mNextTickTargetMs = timeMs + delayMs;
+            mHost.scheduleTick(delayMs);
+        }
+    }
+
+    /**
+     * Reports how long the last interactive frame took to draw. Too many overruns in a row
+     * step the sweep down to the next lower rate.
+     */
+    void onFrameDrawn(long durationNs) {
+        long budgetNs = (long) (getIntervalMs() * 1000000L * FRAME_BUDGET_FRACTION);
+        if (durationNs <= budgetNs) {
+            mOverruns = 0;
+            return;
+        }
+        if (++mOverruns >= OVERRUN_LIMIT && mRateIndex < FRAME_RATES.length - 1) {
+            mRateIndex++;
+            mStepDowns++;
+            mOverruns = 0;
+        }
+    }
+
+    /** Interval between interactive ticks for the current mode, rate and battery state. */
+    long getIntervalMs() {
+        if (mMode == MODE_POWER_SAVER && isBatteryLow()) {
+            return MINUTE_INTERVAL_MS;
+        }
+        if (mMode == MODE_SWEEP) {
+            return TICK_INTERVAL_MS / FRAME_RATES[mRateIndex];
+        }
+        return TICK_INTERVAL_MS;
+    }
+
+    /** Whether ticks come often enough for a second hand to be worth drawing. */
+    boolean showsSeconds() {
+        return getIntervalMs() < MINUTE_INTERVAL_MS;
+    }
+
+    /** Current frame rate of the sweep after any step-downs; 1 when ticking once a second. */
+    int getEffectiveFps() {
+        return mMode == MODE_SWEEP ? FRAME_RATES[mRateIndex] : 1;
+    }
+
+    int getStepDownCount() {
+        return mStepDowns;
+    }
+
+    private boolean isBatteryLow() {
+        int level = mBattery.getLevel();
+        return level != BatteryState.UNKNOWN_LEVEL && level <= LOW_BATTERY_LEVEL
+                && !mBattery.isCharging();
+    }
+
+    private void resetRate() {
+        mRateIndex = mMode == MODE_SWEEP ? mSweepRateIndex : FRAME_RATES.length - 1;
+        mOverruns = 0;
+    }
+}
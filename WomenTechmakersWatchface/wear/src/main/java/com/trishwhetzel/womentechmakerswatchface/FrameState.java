@@ -0,0 +1,257 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+
+import java.util.TimeZone;
+
+/**
+ * Everything the render thread needs to know from the rest of the engine to draw a frame:
+ * mode flags, colors, battery, time zone, layout and the theme's bitmaps. Snapshots are
+ * immutable and built whole by a {@link Builder} on the thread handling events, then passed
+ * to the render thread through a {@link FrameStateHandoff}, so a frame never sees part of one
+ * update and part of another. The clock itself is read by the render thread.
+ *
+ * <p>The bitmaps are never modified once decoded, and the time zone is never modified after
+ * it is handed to the builder.
+ */
+final class FrameState {
+
+    /* What changed between two snapshots, see changesFrom. */
+    static final int CHANGED_MODE = 1;
+    static final int CHANGED_STYLE = 1 << 1;
+    static final int CHANGED_BACKGROUND = 1 << 2;
+    static final int CHANGED_LAYOUT = 1 << 3;
+    static final int CHANGED_FIELDS = 1 << 4;
+    static final int CHANGED_BATTERY = 1 << 5;
+    static final int CHANGED_TIME_ZONE = 1 << 6;
+    static final int CHANGED_UPDATE_MODE = 1 << 7;
+    static final int CHANGED_ALL = (1 << 8) - 1;
+
+    /** Increases with every snapshot a builder builds. */
+    final long sequence;
+
+    final boolean visible;
+    final boolean ambient;
+    final boolean lowBitAmbient;
+    final boolean burnInProtection;
+    final boolean muteMode;
+
+    /* Interactive colors, after phone settings and the palette were resolved. */
+    final int handColor;
+    final int highlightColor;
+    final int shadowColor;
+
+    /* In percent, or BatteryState.UNKNOWN_LEVEL. */
+    final int batteryLevel;
+    final boolean charging;
+
+    final TimeZone timeZone;
+    final boolean showBattery;
+    final boolean showDate;
+    /* A FaceConfig.UPDATE_MODE_* value, and the frame rate of the sweep mode. */
+    final int updateMode;
+    final int sweepFps;
+
+    /* 0 by 0 while there is no surface. */
+    final int surfaceWidth;
+    final int surfaceHeight;
+    final int peekCardLeft;
+    final int peekCardTop;
+    final int peekCardRight;
+    final int peekCardBottom;
+
+    /* The theme shown, and its bitmaps once decoded; null until then or if not needed. */
+    final int themeIndex;
+    final boolean themeApplied;
+    final Bitmap background;
+    final Bitmap ambientBackground;
+
+    private FrameState(Builder builder, long sequence) {
+        this.sequence = sequence;
+        visible = builder.mVisible;
+        ambient = builder.mAmbient;
+        lowBitAmbient = builder.mLowBitAmbient;
+        burnInProtection = builder.mBurnInProtection;
+        muteMode = builder.mMuteMode;
+        handColor = builder.mHandColor;
+        highlightColor = builder.mHighlightColor;
+        shadowColor = builder.mShadowColor;
+        batteryLevel = builder.mBatteryLevel;
+        charging = builder.mCharging;
+        timeZone = builder.mTimeZone;
+        showBattery = builder.mShowBattery;
+        showDate = builder.mShowDate;
+        updateMode = builder.mUpdateMode;
+        sweepFps = builder.mSweepFps;
+        surfaceWidth = builder.mSurfaceWidth;
+        surfaceHeight = builder.mSurfaceHeight;
+        peekCardLeft = builder.mPeekCardLeft;
+        peekCardTop = builder.mPeekCardTop;
+        peekCardRight = builder.mPeekCardRight;
+        peekCardBottom = builder.mPeekCardBottom;
+        themeIndex = builder.mThemeIndex;
+        themeApplied = builder.mThemeApplied;
+        background = builder.mBackground;
+        ambientBackground = builder.mAmbientBackground;
+    }
+
+    boolean hasSurface() {
+        return surfaceWidth > 0 && surfaceHeight > 0;
+    }
+
+    /**
+     * Which groups of fields differ from {@code previous}, as a combination of the
+     * {@code CHANGED_*} flags; {@link #CHANGED_ALL} if there is no previous snapshot.
+     */
+    int changesFrom(FrameState previous) {
+        if (previous == null) {
+            return CHANGED_ALL;
+        }
+        int changes = 0;
+        if (visible != previous.visible || ambient != previous.ambient) {
+            changes |= CHANGED_MODE;
+        }
+        /* The mode is left out: switching restyles the paints, but the layers stay valid. */
+        if (lowBitAmbient != previous.lowBitAmbient || muteMode != previous.muteMode
+                || handColor != previous.handColor
+                || highlightColor != previous.highlightColor
+                || shadowColor != previous.shadowColor) {
+            changes |= CHANGED_STYLE;
+        }
+        if (background != previous.background
+                || ambientBackground != previous.ambientBackground
+                || themeIndex != previous.themeIndex
+                || lowBitAmbient != previous.lowBitAmbient
+                || burnInProtection != previous.burnInProtection) {
+            changes |= CHANGED_BACKGROUND;
+        }
+        if (surfaceWidth != previous.surfaceWidth || surfaceHeight != previous.surfaceHeight
+                || peekCardLeft != previous.peekCardLeft
+                || peekCardTop != previous.peekCardTop
+                || peekCardRight != previous.peekCardRight
+                || peekCardBottom != previous.peekCardBottom) {
+            changes |= CHANGED_LAYOUT;
+        }
+        if (showBattery != previous.showBattery || showDate != previous.showDate) {
+            changes |= CHANGED_FIELDS;
+        }
+        if (batteryLevel != previous.batteryLevel || charging != previous.charging) {
+            changes |= CHANGED_BATTERY;
+        }
+        if (timeZone != previous.timeZone) {
+            changes |= CHANGED_TIME_ZONE;
+        }
+        if (updateMode != previous.updateMode || sweepFps != previous.sweepFps) {
+            changes |= CHANGED_UPDATE_MODE;
+        }
+        return changes;
+    }
+
+    /**
+     * Collects the fields of the next snapshot. Owned by one thread, which keeps it and sets
+     * whatever changed before each {@link #build}; built snapshots don't see later changes.
+     */
+    static final class Builder {
+        private long mSequence;
+
+        private boolean mVisible;
+        private boolean mAmbient;
+        private boolean mLowBitAmbient;
+        private boolean mBurnInProtection;
+        private boolean mMuteMode;
+        private int mHandColor;
+        private int mHighlightColor;
+        private int mShadowColor;
+        private int mBatteryLevel = BatteryState.UNKNOWN_LEVEL;
+        private boolean mCharging;
+        private TimeZone mTimeZone;
+        private boolean mShowBattery = true;
+        private boolean mShowDate = true;
+        private int mUpdateMode;
+        private int mSweepFps = FaceConfig.defaultValue(FaceConfig.KEY_SWEEP_FPS);
+        private int mSurfaceWidth;
+        private int mSurfaceHeight;
+        private int mPeekCardLeft;
+        private int mPeekCardTop;
+        private int mPeekCardRight;
+        private int mPeekCardBottom;
+        private int mThemeIndex;
+        private boolean mThemeApplied;
+        private Bitmap mBackground;
+        private Bitmap mAmbientBackground;
+
+        Builder setMode(boolean visible, boolean ambient) {
+            mVisible = visible;
+            mAmbient = ambient;
+            return this;
+        }
+
+        Builder setDeviceProperties(boolean lowBitAmbient, boolean burnInProtection) {
+            mLowBitAmbient = lowBitAmbient;
+            mBurnInProtection = burnInProtection;
+            return this;
+        }
+
+        Builder setMuteMode(boolean muteMode) {
+            mMuteMode = muteMode;
+            return this;
+        }
+
+        Builder setColors(int handColor, int highlightColor, int shadowColor) {
+            mHandColor = handColor;
+            mHighlightColor = highlightColor;
+            mShadowColor = shadowColor;
+            return this;
+        }
+
+        Builder setBattery(int level, boolean charging) {
+            mBatteryLevel = level;
+            mCharging = charging;
+            return this;
+        }
+
+        Builder setTimeZone(TimeZone timeZone) {
+            mTimeZone = timeZone;
+            return this;
+        }
+
+        Builder setFields(boolean showBattery, boolean showDate) {
+            mShowBattery = showBattery;
+            mShowDate = showDate;
+            return this;
+        }
+
+        Builder setUpdateMode(int updateMode, int sweepFps) {
+            mUpdateMode = updateMode;
+            mSweepFps = sweepFps;
+            return this;
+        }
+
+        Builder setSurfaceSize(int width, int height) {
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+            return this;
+        }
+
+        Builder setPeekCardBounds(int left, int top, int right, int bottom) {
+            mPeekCardLeft = left;
+            mPeekCardTop = top;
+            mPeekCardRight = right;
+            mPeekCardBottom = bottom;
+            return this;
+        }
+
+        Builder setTheme(int themeIndex, boolean applied, Bitmap background,
+                Bitmap ambientBackground) {
+            mThemeIndex = themeIndex;
+            mThemeApplied = applied;
+            mBackground = background;
+            mAmbientBackground = ambientBackground;
+            return this;
+        }
+
+        FrameState build() {
+            return new FrameState(this, ++mSequence);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes {@link FrameState} snapshots from the thread handling events to the render thread
+ * without locks. Only the newest snapshot matters, so publishing replaces one the render
+ * thread hasn't taken yet, and the render thread is woken once per batch of publishes rather
+ * than once per publish.
+ *
+ * <p>Snapshots are immutable, so swapping a single reference is all the buffering needed: the
+ * render thread keeps drawing with the snapshot it took while the next one is being built.
+ */
+final class FrameStateHandoff {
+
+    /** Wakes the render thread; called on the publishing thread. */
+    interface Waker {
+        void wake();
+    }
+
+    private final Waker mWaker;
+    private final AtomicReference<FrameState> mLatest = new AtomicReference<FrameState>();
+    private final AtomicBoolean mWakePending = new AtomicBoolean();
+
+    /* Written by one thread each, read by dump. */
+    private volatile long mPublishCount;
+    private volatile long mWakeCount;
+
+    FrameStateHandoff(Waker waker) {
+        mWaker = waker;
+    }
+
+    /** Makes {@code state} the newest snapshot, waking the render thread if it isn't already. */
+    void publish(FrameState state) {
+        mLatest.set(state);
+        mPublishCount++;
+        if (mWakePending.compareAndSet(false, true)) {
+            mWakeCount++;
+            mWaker.wake();
+        }
+    }
+
+    /**
+     * Returns the newest snapshot, null before the first publish. Called by the render thread;
+     * a publish after this wakes it again.
+     */
+    FrameState take() {
+        /* Cleared first, so that a publish racing with the read below still wakes. */
+        mWakePending.set(false);
+        return mLatest.get();
+    }
+
+    long getPublishCount() {
+        return mPublishCount;
+    }
+
+    long getWakeCount() {
+        return mWakeCount;
+    }
+}
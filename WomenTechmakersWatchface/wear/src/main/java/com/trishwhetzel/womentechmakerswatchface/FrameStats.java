@@ -0,0 +1,157 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.io.PrintWriter;
+
+/**
+ * Draw time and tick lateness for one engine, split by ambient and interactive mode. All
+ * histograms are preallocated, so recording is cheap enough to leave on in production; the
+ * numbers are printed by {@code adb shell dumpsys activity service WTMWatchFaceService}.
+ */
+final class FrameStats {
+
+    /* A frame taking longer than this would be visible as a stutter of the second hand. */
+    static final long JANK_THRESHOLD_US = 16000;
+
+    private final LatencyHistogram mInteractiveDraw = new LatencyHistogram();
+    private final LatencyHistogram mAmbientDraw = new LatencyHistogram();
+    private final LatencyHistogram mInteractiveLateness = new LatencyHistogram();
+    private final LatencyHistogram mAmbientLateness = new LatencyHistogram();
+
+    private long mInteractiveJank;
+    private long mAmbientJank;
+
+    /* Pixels redrawn, by frames drawn whole or just where something changed, and frames skipped. */
+    private long mFilledPixels;
+    private long mFullFrames;
+    private long mPartialFrames;
+    private long mSkippedFrames;
+
+    /* Time from engine creation to the first frame, and to the first one showing the theme. */
+    private long mFirstFrameUs = -1;
+    private long mFirstCompleteFrameUs = -1;
+
+    /**
+     * Records the draw time of a frame on the render thread, in microseconds. Called for every
+     * frame drawn, whole or only where it changed, not just from onDraw.
+     */
+    void recordDraw(boolean ambient, long durationUs) {
+        if (ambient) {
+            mAmbientDraw.record(durationUs);
+            if (durationUs > JANK_THRESHOLD_US) {
+                mAmbientJank++;
+            }
+        } else {
+            mInteractiveDraw.record(durationUs);
+            if (durationUs > JANK_THRESHOLD_US) {
+                mInteractiveJank++;
+            }
+        }
+    }
+
+    /** Records how many pixels a frame redrew; {@code partial} if only its damage. */
+    void recordFill(long pixels, boolean partial) {
+        mFilledPixels += pixels;
+        if (partial) {
+            mPartialFrames++;
+        } else {
+            mFullFrames++;
+        }
+    }
+
+    /** Records a frame that wasn't drawn because it would have looked like the last one. */
+    void recordSkippedFrame() {
+        mSkippedFrames++;
+    }
+
+    long getPartialFrameCount() {
+        return mPartialFrames;
+    }
+
+    long getSkippedFrameCount() {
+        return mSkippedFrames;
+    }
+
+    /** Mean pixels redrawn per frame drawn, whole or partial. */
+    long getMeanFillPixels() {
+        long frames = mFullFrames + mPartialFrames;
+        return frames > 0 ? mFilledPixels / frames : 0;
+    }
+
+    /**
+     * Records how late a tick arrived compared to the time it was scheduled for, in
+     * milliseconds. Ambient ticks are targeted at the minute boundary.
+     */
+    void recordTickLateness(boolean ambient, long latenessMs) {
+        (ambient ? mAmbientLateness : mInteractiveLateness).record(latenessMs * 1000);
+    }
+
+    /**
+     * Records a frame drawn {@code sinceCreateUs} microseconds after the engine was created.
+     * {@code complete} is false while it still shows the startup placeholder. Only the first
+     * frame and the first complete frame are kept; later calls return right away.
+     */
+    void recordStartupFrame(long sinceCreateUs, boolean complete) {
+        if (mFirstCompleteFrameUs >= 0) {
+            return;
+        }
+        if (mFirstFrameUs < 0) {
+            mFirstFrameUs = sinceCreateUs;
+        }
+        if (complete) {
+            mFirstCompleteFrameUs = sinceCreateUs;
+        }
+    }
+
+    /** Microseconds from engine creation to the first frame, or -1 before it was drawn. */
+    long getFirstFrameUs() {
+        return mFirstFrameUs;
+    }
+
+    /** Microseconds from engine creation to the first complete frame, or -1 before that. */
+    long getFirstCompleteFrameUs() {
+        return mFirstCompleteFrameUs;
+    }
+
+    LatencyHistogram getDrawHistogram(boolean ambient) {
+        return ambient ? mAmbientDraw : mInteractiveDraw;
+    }
+
+    LatencyHistogram getLatenessHistogram(boolean ambient) {
+        return ambient ? mAmbientLateness : mInteractiveLateness;
+    }
+
+    long getJankCount(boolean ambient) {
+        return ambient ? mAmbientJank : mInteractiveJank;
+    }
+
+    /* Startup times happen once per engine and are kept. */
+    void reset() {
+        mInteractiveDraw.reset();
+        mAmbientDraw.reset();
+        mInteractiveLateness.reset();
+        mAmbientLateness.reset();
+        mInteractiveJank = 0;
+        mAmbientJank = 0;
+        mFilledPixels = 0;
+        mFullFrames = 0;
+        mPartialFrames = 0;
+        mSkippedFrames = 0;
+    }
+
+    void dump(PrintWriter writer, String prefix) {
+        writer.println(prefix + "startup: firstFrameMs=" + toMillis(mFirstFrameUs)
+                + " firstCompleteFrameMs=" + toMillis(mFirstCompleteFrameUs));
+        mInteractiveDraw.dump(writer, prefix + "interactive draw");
+        mAmbientDraw.dump(writer, prefix + "ambient draw");
+        writer.println(prefix + "jank (draw > " + JANK_THRESHOLD_US / 1000 + "ms): interactive="
+                + mInteractiveJank + " ambient=" + mAmbientJank);
+        writer.println(prefix + "fill: full=" + mFullFrames + " partial=" + mPartialFrames
+                + " skipped=" + mSkippedFrames + " meanPixels=" + getMeanFillPixels());
+        mInteractiveLateness.dump(writer, prefix + "interactive tick lateness");
+        mAmbientLateness.dump(writer, prefix + "ambient tick lateness");
+    }
+
+    private static String toMillis(long us) {
+        return us < 0 ? "-" : Long.toString(us / 1000);
+    }
+}
@@ -0,0 +1,104 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+/**
+ * Watch hands rendered once, shadow included, into small bitmaps that are then drawn rotated
+ * with a single matrix per frame. On a software canvas this replaces a blur of the shadow layer
+ * for every hand on every frame with a filtered bitmap blit.
+ *
+ * <p>Each sprite is a vertical hand pointing up, with the watch center at a known point below
+ * it, so the same rotation about the center that the vector hand used applies unchanged. The
+ * rotation is set from a precomputed sine and cosine rather than an angle.
+ */
+final class HandSprites {
+
+    static final int HAND_COUNT = 3;
+
+    private final Bitmap[] mSprites = new Bitmap[HAND_COUNT];
+    /* Distance from the sprite's edges to the hand, leaving room for cap and shadow. */
+    private final int[] mMargins = new int[HAND_COUNT];
+    private final float[] mStartRadii = new float[HAND_COUNT];
+    private final float[] mEndRadii = new float[HAND_COUNT];
+    /* The paint each sprite was built from; a sprite is stale once another paint is used. */
+    private final Paint[] mPaints = new Paint[HAND_COUNT];
+
+    private final int mShadowRadius;
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mSpritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    HandSprites(int shadowRadius) {
+        mShadowRadius = shadowRadius;
+    }
+
+    /**
+     * Draws a hand from {@code startRadius} to {@code endRadius} away from the center, rotated
+     * clockwise by the angle whose sine and cosine are given. {@code hand} is one of the
+     * {@link RenderTarget} hand paint ids. The sprite is (re)built from {@code paint} first if
+     * it was built from another paint or the hand length changed; paints are never modified
+     * once drawn with, see PaintSet.
+     */
+    void draw(Canvas canvas, int hand, Paint paint, float sin, float cos, float centerX,
+            float centerY, float startRadius, float endRadius) {
+        if (mPaints[hand] != paint || mStartRadii[hand] != startRadius
+                || mEndRadii[hand] != endRadius) {
+            build(hand, paint, startRadius, endRadius);
+        }
+        int margin = mMargins[hand];
+        mMatrix.setSinCos(sin, cos, centerX, centerY);
+        mMatrix.preTranslate(centerX - margin, centerY - endRadius - margin);
+        canvas.drawBitmap(mSprites[hand], mMatrix, mSpritePaint);
+    }
+
+    private void build(int hand, Paint paint, float startRadius, float endRadius) {
+        /* Round caps reach half the stroke past the ends; the blur reaches about 2x its radius. */
+        int margin = (int) Math.ceil(paint.getStrokeWidth() / 2 + 2 * mShadowRadius) + 1;
+        int width = 2 * margin;
+        int height = (int) Math.ceil(endRadius) + 2 * margin;
+
+        Bitmap sprite = mSprites[hand];
+        if (sprite == null || sprite.getWidth() != width || sprite.getHeight() != height) {
+            if (sprite != null) {
+                sprite.recycle();
+            }
+            sprite = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mSprites[hand] = sprite;
+        } else {
+            sprite.eraseColor(0);
+        }
+
+        /* The watch center maps to (margin, margin + endRadius) inside the sprite. */
+        new Canvas(sprite).drawLine(margin, margin + endRadius - startRadius, margin, margin,
+                paint);
+
+        mMargins[hand] = margin;
+        mStartRadii[hand] = startRadius;
+        mEndRadii[hand] = endRadius;
+        mPaints[hand] = paint;
+    }
+
+    /** Bytes held by the sprite bitmaps. */
+    int getByteCount() {
+        int bytes = 0;
+        for (Bitmap sprite : mSprites) {
+            if (sprite != null) {
+                bytes += sprite.getByteCount();
+            }
+        }
+        return bytes;
+    }
+
+    /** Frees the bitmaps; they are rebuilt on the next draw. */
+    void release() {
+        for (int hand = 0; hand < HAND_COUNT; hand++) {
+            if (mSprites[hand] != null) {
+                mSprites[hand].recycle();
+                mSprites[hand] = null;
+            }
+            mPaints[hand] = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.io.PrintWriter;
+
+/**
+ * Histogram over fixed, roughly logarithmic buckets, allocated up front so that recording a
+ * sample is a couple of comparisons and an increment. Percentiles are reported as the upper
+ * bound of the bucket they fall into.
+ */
+final class LatencyHistogram {
+
+    /* Upper bounds of each bucket, in microseconds; the last bucket is unbounded. */
+    private static final long[] BUCKET_BOUNDS_US = {
+            100, 250, 500, 1000, 2000, 4000, 8000, 16000, 33000, 50000, 100000, 250000, 500000,
+            1000000, 2000000
+    };
+
+    private final long[] mCounts = new long[BUCKET_BOUNDS_US.length + 1];
+    private long mCount;
+    private long mSumUs;
+    private long mMaxUs;
+
+    /** Records one sample. Negative values are counted in the first bucket. */
+    void record(long valueUs) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_US.length && valueUs > BUCKET_BOUNDS_US[bucket]) {
+            bucket++;
+        }
+        mCounts[bucket]++;
+        mCount++;
+        mSumUs += valueUs;
+        if (valueUs > mMaxUs) {
+            mMaxUs = valueUs;
+        }
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    long getMaxUs() {
+        return mMaxUs;
+    }
+
+    long getMeanUs() {
+        return mCount == 0 ? 0 : mSumUs / mCount;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile (0-100), or the
+     * largest recorded value for samples beyond the last bound. Returns 0 when empty.
+     */
+    long getPercentileUs(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * mCount);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_BOUNDS_US.length; bucket++) {
+            seen += mCounts[bucket];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_US[bucket], mMaxUs);
+            }
+        }
+        return mMaxUs;
+    }
+
+    void reset() {
+        for (int bucket = 0; bucket < mCounts.length; bucket++) {
+            mCounts[bucket] = 0;
+        }
+        mCount = 0;
+        mSumUs = 0;
+        mMaxUs = 0;
+    }
+
+    /** Prints a one line summary: count, mean, p50, p90, p99 and max, in milliseconds. */
+    void dump(PrintWriter writer, String label) {
+        writer.printf("%s: count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms%n",
+                label, mCount, getMeanUs() / 1000f, getPercentileUs(50) / 1000f,
+                getPercentileUs(90) / 1000f, getPercentileUs(99) / 1000f, mMaxUs / 1000f);
+    }
+}
@@ -0,0 +1,99 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.Manifest;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Process;
+import android.provider.CalendarContract;
+import android.support.wearable.provider.WearableCalendarContract;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Start time and title of the next calendar event in the coming day, from the calendar the
+ * phone syncs to the watch. Needs READ_CALENDAR, which is granted at runtime from M on; until it
+ * is, the field asks to be tapped, see {@link CalendarPermissionActivity}, and the calendar isn't
+ * queried.
+ */
+final class NextEventProvider implements DataProvider {
+
+    private static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+    private static final long LOOKAHEAD_MS = 24 * 60 * 60 * 1000;
+    private static final int MAX_TITLE_LENGTH = 14;
+
+    private static final String[] PROJECTION = {
+            CalendarContract.Instances.BEGIN,
+            CalendarContract.Instances.TITLE,
+    };
+    private static final String SELECTION = CalendarContract.Instances.ALL_DAY + " = 0 AND "
+            + CalendarContract.Instances.BEGIN + " >= ?";
+
+    private final Context mContext;
+    private final ContentResolver mContentResolver;
+    private final DateFormat mTimeFormat;
+    private final String mPermissionHint;
+
+    /* Whether the last fetch showed the hint instead of an event. */
+    private volatile boolean mShowingHint;
+
+    NextEventProvider(Context context, DateFormat timeFormat) {
+        mContext = context;
+        mContentResolver = context.getContentResolver();
+        mTimeFormat = timeFormat;
+        mPermissionHint = context.getString(R.string.calendar_permission_hint);
+    }
+
+    /** Safe to call from any thread. */
+    boolean hasPermission() {
+        return mContext.checkPermission(Manifest.permission.READ_CALENDAR, Process.myPid(),
+                Process.myUid()) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /** Whether the field asks for the permission; safe to call from any thread. */
+    boolean isShowingHint() {
+        return mShowingHint;
+    }
+
+    @Override
+    public long getRefreshIntervalMs() {
+        return REFRESH_INTERVAL_MS;
+    }
+
+    @Override
+    public String fetch(long timeMs) {
+        mShowingHint = !hasPermission();
+        if (mShowingHint) {
+            return mPermissionHint;
+        }
+        Uri.Builder builder = WearableCalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, timeMs);
+        ContentUris.appendId(builder, timeMs + LOOKAHEAD_MS);
+        Cursor cursor = mContentResolver.query(builder.build(), PROJECTION, SELECTION,
+                new String[] {Long.toString(timeMs)}, CalendarContract.Instances.BEGIN + " ASC");
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            String title = cursor.getString(1);
+            if (title == null) {
+                title = "";
+            } else if (title.length() > MAX_TITLE_LENGTH) {
+                title = title.substring(0, MAX_TITLE_LENGTH - 1) + "\u2026";
+            }
+            /* The format is only used on the worker thread; keep its zone current. */
+            mTimeFormat.setTimeZone(TimeZone.getDefault());
+            return mTimeFormat.format(new Date(cursor.getLong(0))) + " " + title;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Paint;
+
+/**
+ * The paints for one mode combination (ambient, low-bit, burn-in protection, mute), indexed by
+ * the {@link RenderTarget} paint ids and styled as {@link PaintStyle} describes them. A set is
+ * styled completely when it is built and its paints are never modified afterwards, so switching
+ * modes means picking another set from a {@link Table}, and anything cached from a paint (hand
+ * sprites, text atlases) stays valid for as long as the same paint object is in use.
+ */
+final class PaintSet {
+
+    static final int PAINT_COUNT = PaintStyle.PAINT_COUNT;
+
+    private final Paint[] mPaints = new Paint[PAINT_COUNT];
+
+    private PaintSet(Paint[] templates, PaintStyle style, int shadowColor, float shadowRadius) {
+        for (int paint = 0; paint < PAINT_COUNT; paint++) {
+            Paint styled = new Paint(templates[paint]);
+            styled.setColor(style.getColor(paint));
+            styled.setAntiAlias(style.isAntiAlias(paint));
+            if (style.hasShadow(paint)) {
+                styled.setShadowLayer(shadowRadius, 0, 0, shadowColor);
+            } else {
+                styled.clearShadowLayer();
+            }
+            mPaints[paint] = styled;
+        }
+    }
+
+    /**
+     * Unstyled paints with the geometry of each {@link RenderTarget} paint id, to be completed
+     * with text sizes and typefaces before building a {@link Table} from them.
+     */
+    static Paint[] newTemplates() {
+        Paint[] templates = new Paint[PAINT_COUNT];
+        for (int paint = 0; paint < PAINT_COUNT; paint++) {
+            Paint template = new Paint();
+            template.setStrokeWidth(PaintStyle.getStrokeWidth(paint));
+            template.setStrokeCap(PaintStyle.hasRoundCap(paint)
+                    ? Paint.Cap.ROUND : Paint.Cap.BUTT);
+            template.setStyle(PaintStyle.isFilled(paint)
+                    ? Paint.Style.FILL : Paint.Style.STROKE);
+            templates[paint] = template;
+        }
+        return templates;
+    }
+
+    /** The paint for a {@link RenderTarget} paint id; never modify it. */
+    Paint get(int paint) {
+        return mPaints[paint];
+    }
+
+    /**
+     * Every mode combination's paint set for one set of colors. Built once per palette, off the
+     * drawing path; combinations that look the same share one set, so burn-in protection, which
+     * shifts the frame rather than restyling it, and low-bit, which only matters in ambient,
+     * don't add sets of their own.
+     */
+    static final class Table {
+        private static final int AMBIENT = 1;
+        private static final int LOW_BIT_AMBIENT = 1 << 1;
+        private static final int BURN_IN_PROTECTION = 1 << 2;
+        private static final int MUTE = 1 << 3;
+        private static final int COMBINATION_COUNT = 1 << 4;
+
+        private final PaintSet[] mSets = new PaintSet[COMBINATION_COUNT];
+        private final int mHandColor;
+        private final int mHighlightColor;
+        private final int mShadowColor;
+        private int mDistinctCount;
+
+        /**
+         * Styles copies of {@code templates}, which give everything but the mode's look: stroke
+         * widths, caps, text sizes and typefaces, see {@link #newTemplates}. The templates are
+         * not kept.
+         */
+        Table(Paint[] templates, int handColor, int highlightColor, int shadowColor,
+                float shadowRadius) {
+            mHandColor = handColor;
+            mHighlightColor = highlightColor;
+            mShadowColor = shadowColor;
+            for (int combination = 0; combination < COMBINATION_COUNT; combination++) {
+                int key = canonical(combination);
+                if (key != combination) {
+                    /* canonical() only clears bits, so the shared set is built already. */
+                    mSets[combination] = mSets[key];
+                    continue;
+                }
+                PaintStyle style = new PaintStyle((key & AMBIENT) != 0,
+                        (key & LOW_BIT_AMBIENT) != 0, (key & MUTE) != 0, handColor,
+                        highlightColor);
+                mSets[combination] = new PaintSet(templates, style, shadowColor, shadowRadius);
+                mDistinctCount++;
+            }
+        }
+
+        /* The combination whose set looks the same as this one's, with irrelevant bits off. */
+        private static int canonical(int combination) {
+            int key = combination & ~BURN_IN_PROTECTION;
+            if ((key & AMBIENT) == 0) {
+                key &= ~LOW_BIT_AMBIENT;
+            }
+            return key;
+        }
+
+        PaintSet get(boolean ambient, boolean lowBitAmbient, boolean burnInProtection,
+                boolean mute) {
+            return mSets[(ambient ? AMBIENT : 0) | (lowBitAmbient ? LOW_BIT_AMBIENT : 0)
+                    | (burnInProtection ? BURN_IN_PROTECTION : 0) | (mute ? MUTE : 0)];
+        }
+
+        /** Whether this table was built for these colors. */
+        boolean hasColors(int handColor, int highlightColor, int shadowColor) {
+            return handColor == mHandColor && highlightColor == mHighlightColor
+                    && shadowColor == mShadowColor;
+        }
+
+        /** Paint sets actually built; the other combinations share one of them. */
+        int getDistinctCount() {
+            return mDistinctCount;
+        }
+    }
+}
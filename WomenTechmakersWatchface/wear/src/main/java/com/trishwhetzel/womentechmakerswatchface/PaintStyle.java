@@ -0,0 +1,130 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * How each {@link RenderTarget} paint looks in one mode combination, as plain values, so that
+ * {@link PaintSet} on the watch and the headless targets on a build host are styled from the
+ * same table. Geometry (stroke widths, caps, fill) is the same in every mode; color, alpha,
+ * anti-aliasing and shadows depend on the mode. Text sizes and typefaces come from resources
+ * and are left to the caller.
+ */
+final class PaintStyle {
+
+    static final int PAINT_COUNT = RenderTarget.PAINT_FIELD + 1;
+
+    /* The android.graphics.Color values the face uses, which this class can't depend on. */
+    static final int BLACK = 0xFF000000;
+    static final int GRAY = 0xFF888888;
+    static final int LTGRAY = 0xFFCCCCCC;
+    static final int WHITE = 0xFFFFFFFF;
+    static final int BLUE = 0xFF0000FF;
+    static final int TRANSPARENT = 0;
+
+    /* Colors when neither the phone nor the theme's palette picks any. */
+    static final int DEFAULT_HAND_COLOR = GRAY;
+    static final int DEFAULT_HIGHLIGHT_COLOR = BLUE;
+    static final int DEFAULT_SHADOW_COLOR = LTGRAY;
+
+    /* Alpha of the hands while notifications are muted. */
+    static final int MUTE_ALPHA = 100;
+    static final int MUTE_SECOND_ALPHA = 80;
+
+    static final float HOUR_STROKE_WIDTH = 9f;
+    static final float MINUTE_STROKE_WIDTH = 7f;
+    static final float SECOND_TICK_STROKE_WIDTH = 2f;
+    private static final float TEXT_STROKE_WIDTH = 2f;
+
+    /* Indexed by paint id. */
+    private static final float[] STROKE_WIDTHS = new float[PAINT_COUNT];
+    private static final boolean[] ROUND_CAPS = new boolean[PAINT_COUNT];
+    private static final boolean[] CASTS_SHADOW = new boolean[PAINT_COUNT];
+
+    static {
+        STROKE_WIDTHS[RenderTarget.PAINT_HOUR] = HOUR_STROKE_WIDTH;
+        STROKE_WIDTHS[RenderTarget.PAINT_MINUTE] = MINUTE_STROKE_WIDTH;
+        STROKE_WIDTHS[RenderTarget.PAINT_SECOND] = SECOND_TICK_STROKE_WIDTH;
+        STROKE_WIDTHS[RenderTarget.PAINT_TICK_AND_CIRCLE] = SECOND_TICK_STROKE_WIDTH;
+        STROKE_WIDTHS[RenderTarget.PAINT_DATE] = TEXT_STROKE_WIDTH;
+        STROKE_WIDTHS[RenderTarget.PAINT_BATTERY] = TEXT_STROKE_WIDTH;
+        ROUND_CAPS[RenderTarget.PAINT_HOUR] = true;
+        ROUND_CAPS[RenderTarget.PAINT_MINUTE] = true;
+        ROUND_CAPS[RenderTarget.PAINT_SECOND] = true;
+        CASTS_SHADOW[RenderTarget.PAINT_HOUR] = true;
+        CASTS_SHADOW[RenderTarget.PAINT_MINUTE] = true;
+        CASTS_SHADOW[RenderTarget.PAINT_SECOND] = true;
+        CASTS_SHADOW[RenderTarget.PAINT_TICK_AND_CIRCLE] = true;
+    }
+
+    private final int[] mColors = new int[PAINT_COUNT];
+    private final boolean mAntiAlias;
+    private final boolean mShadows;
+
+    PaintStyle(boolean ambient, boolean lowBitAmbient, boolean mute, int handColor,
+            int highlightColor) {
+        if (ambient) {
+            /* Low-bit screens only show black and white; gray would be dithered or lost. */
+            int ambientColor = lowBitAmbient ? WHITE : GRAY;
+            mColors[RenderTarget.PAINT_HOUR] = ambientColor;
+            mColors[RenderTarget.PAINT_MINUTE] = ambientColor;
+            mColors[RenderTarget.PAINT_SECOND] = ambientColor;
+            mColors[RenderTarget.PAINT_TICK_AND_CIRCLE] = ambientColor;
+            mColors[RenderTarget.PAINT_DATE_BOX] = TRANSPARENT;
+            mColors[RenderTarget.PAINT_DATE] = WHITE;
+            mColors[RenderTarget.PAINT_BATTERY] = WHITE;
+            mColors[RenderTarget.PAINT_FIELD] = WHITE;
+        } else {
+            mColors[RenderTarget.PAINT_HOUR] = handColor;
+            mColors[RenderTarget.PAINT_MINUTE] = handColor;
+            mColors[RenderTarget.PAINT_SECOND] = highlightColor;
+            mColors[RenderTarget.PAINT_TICK_AND_CIRCLE] = handColor;
+            mColors[RenderTarget.PAINT_DATE_BOX] = WHITE;
+            mColors[RenderTarget.PAINT_DATE] = highlightColor;
+            mColors[RenderTarget.PAINT_BATTERY] = highlightColor;
+            mColors[RenderTarget.PAINT_FIELD] = handColor;
+        }
+        /* Covers what reaches under the peek card in ambient. */
+        mColors[RenderTarget.PAINT_BACKGROUND] = BLACK;
+        if (mute) {
+            /* Dim the hands. */
+            mColors[RenderTarget.PAINT_HOUR] = withAlpha(mColors[RenderTarget.PAINT_HOUR],
+                    MUTE_ALPHA);
+            mColors[RenderTarget.PAINT_MINUTE] = withAlpha(mColors[RenderTarget.PAINT_MINUTE],
+                    MUTE_ALPHA);
+            mColors[RenderTarget.PAINT_SECOND] = withAlpha(mColors[RenderTarget.PAINT_SECOND],
+                    MUTE_SECOND_ALPHA);
+        }
+        /* Nothing is shaded or blended in ambient, and low-bit screens can't blend at all. */
+        mAntiAlias = !ambient || !lowBitAmbient;
+        mShadows = !ambient;
+    }
+
+    private static int withAlpha(int argb, int alpha) {
+        return (alpha << 24) | (argb & 0xFFFFFF);
+    }
+
+    /** ARGB color of {@code paint}, alpha included. */
+    int getColor(int paint) {
+        return mColors[paint];
+    }
+
+    boolean isAntiAlias(int paint) {
+        return mAntiAlias;
+    }
+
+    /** Whether {@code paint} casts the hand shadow; only the hands, ticks and circle do. */
+    boolean hasShadow(int paint) {
+        return mShadows && CASTS_SHADOW[paint];
+    }
+
+    static float getStrokeWidth(int paint) {
+        return STROKE_WIDTHS[paint];
+    }
+
+    static boolean hasRoundCap(int paint) {
+        return ROUND_CAPS[paint];
+    }
+
+    /** Whether shapes drawn with {@code paint} are filled rather than outlined. */
+    static boolean isFilled(int paint) {
+        return paint != RenderTarget.PAINT_TICK_AND_CIRCLE;
+    }
+}
@@ -0,0 +1,104 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.support.v7.graphics.Palette;
+
+/**
+ * Watch hand colors extracted from a background image, persisted in shared preferences so
+ * that later engine starts can apply them before the first frame instead of running Palette
+ * again. Extraction runs on a downsampled decode of the image, since Palette only looks at a
+ * couple hundred pixels across anyway.
+ */
+final class PaletteCache {
+    private static final String PREFS_NAME = "palette_cache";
+
+    /* Palette scales its input to about this size, so decoding any larger is wasted work. */
+    private static final int EXTRACTION_MAX_DIMENSION = 192;
+
+    /** Hand colors taken from one image. */
+    static final class Colors {
+        final int highlight;
+        final int hand;
+        final int shadow;
+
+        Colors(int highlight, int hand, int shadow) {
+            this.highlight = highlight;
+            this.hand = hand;
+            this.shadow = shadow;
+        }
+    }
+
+    private final SharedPreferences mPrefs;
+
+    PaletteCache(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Key for a drawable resource. It includes the app version, so colors are extracted again
+     * when an update ships a different image under the same name.
+     */
+    static String keyFor(Resources resources, int resId) {
+        return "res/" + resources.getResourceEntryName(resId) + "/" + BuildConfig.VERSION_CODE;
+    }
+
+    /** Returns the stored colors for {@code key}, or null if they were never extracted. */
+    Colors get(String key) {
+        if (!mPrefs.contains(key + ".highlight")) {
+            return null;
+        }
+        return new Colors(mPrefs.getInt(key + ".highlight", Color.BLUE),
+                mPrefs.getInt(key + ".hand", Color.WHITE),
+                mPrefs.getInt(key + ".shadow", Color.BLACK));
+    }
+
+    void put(String key, Colors colors) {
+        mPrefs.edit()
+                .putInt(key + ".highlight", colors.highlight)
+                .putInt(key + ".hand", colors.hand)
+                .putInt(key + ".shadow", colors.shadow)
+                .apply();
+    }
+
+    /**
+     * Extracts colors from a downsampled decode of the resource and stores them under
+     * {@link #keyFor}. This decodes and runs Palette on the calling thread, so call it from a
+     * background thread. Returns null if the image can't be decoded.
+     */
+    Colors extract(Resources resources, int resId) {
+        Bitmap sample = decodeSample(resources, resId);
+        if (sample == null) {
+            return null;
+        }
+        Palette palette = Palette.from(sample).generate();
+        sample.recycle();
+        Colors colors = new Colors(palette.getVibrantColor(Color.BLUE),
+                palette.getLightVibrantColor(Color.WHITE),
+                palette.getDarkMutedColor(Color.BLACK));
+        put(keyFor(resources, resId), colors);
+        return colors;
+    }
+
+    /** Decodes the resource at the largest power of two reduction that stays above the limit. */
+    private static Bitmap decodeSample(Resources resources, int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        int sampleSize = 1;
+        int largest = Math.max(options.outWidth, options.outHeight);
+        while (largest / (sampleSize * 2) >= EXTRACTION_MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = false;
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+}
@@ -0,0 +1,202 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refreshes {@link DataProvider}s on a worker thread and publishes their values as
+ * {@link ProviderSnapshot}s, which the render path reads without waiting on anything.
+ *
+ * <p>There is one timer for all providers. Each provider is due at the next multiple of its
+ * refresh interval, and a wakeup refreshes every provider due within
+ * {@link #COALESCE_WINDOW_MS}, so providers share wakeups instead of each waking the device
+ * on its own schedule. A failed fetch keeps the previous value until a later one succeeds.
+ */
+final class ProviderRegistry {
+
+    static final long COALESCE_WINDOW_MS = 1000;
+
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /** Runs refreshes off the main thread; a Handler on a HandlerThread on the watch. */
+    interface Worker {
+        void post(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    interface Listener {
+        /** Called on the worker thread after a snapshot with different values was published. */
+        void onSnapshotChanged(ProviderSnapshot snapshot);
+    }
+
+    private final Clock mClock;
+    private final Worker mWorker;
+    private final Listener mListener;
+    private final List<DataProvider> mProviders = new ArrayList<DataProvider>();
+
+    /* Only touched on the worker thread once started. */
+    private long[] mNextDueMs = new long[0];
+    private int mWakeups;
+    private int mFetches;
+    private int mFailures;
+
+    private volatile ProviderSnapshot mSnapshot = ProviderSnapshot.EMPTY;
+    private boolean mStarted;
+    /* Slots to fetch on the next wakeup whether they are due or not; guarded by this. */
+    private boolean[] mRefreshSoon = new boolean[0];
+
+    private final Runnable mRefresh = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    ProviderRegistry(Clock clock, Worker worker, Listener listener) {
+        mClock = clock;
+        mWorker = worker;
+        mListener = listener;
+    }
+
+    /** Adds a provider and returns its slot in the snapshots. Only valid before starting. */
+    synchronized int add(DataProvider provider) {
+        if (mStarted) {
+            throw new IllegalStateException("Providers must be added before start()");
+        }
+        if (provider.getRefreshIntervalMs() <= 0) {
+            throw new IllegalArgumentException("Refresh interval must be positive");
+        }
+        mProviders.add(provider);
+        long[] nextDueMs = new long[mProviders.size()];
+        System.arraycopy(mNextDueMs, 0, nextDueMs, 0, mNextDueMs.length);
+        mNextDueMs = nextDueMs;
+        mRefreshSoon = new boolean[mProviders.size()];
+        String[] texts = new String[mProviders.size()];
+        long[] fetchedAtMs = new long[mProviders.size()];
+        mSnapshot = new ProviderSnapshot(texts, fetchedAtMs);
+        return mProviders.size() - 1;
+    }
+
+    /** Starts refreshing, right away for any value that is due. */
+    synchronized void start() {
+        mStarted = true;
+        mWorker.cancel(mRefresh);
+        mWorker.post(mRefresh, 0);
+    }
+
+    /** Stops refreshing; the last snapshot stays readable. */
+    synchronized void stop() {
+        mStarted = false;
+        mWorker.cancel(mRefresh);
+    }
+
+    /**
+     * Fetches {@code slot} again right away instead of when it is next due, e.g. after the
+     * settings of its provider changed. The old value is shown until then.
+     */
+    synchronized void refreshSoon(int slot) {
+        mRefreshSoon[slot] = true;
+        if (mStarted) {
+            mWorker.cancel(mRefresh);
+            mWorker.post(mRefresh, 0);
+        }
+    }
+
+    /** The latest values. Never blocks, so it is safe to call while drawing. */
+    ProviderSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    private void refresh() {
+        long now = mClock.currentTimeMillis();
+        mWakeups++;
+
+        ProviderSnapshot previous = mSnapshot;
+        int count = previous.size();
+        String[] texts = null;
+        long[] fetchedAtMs = null;
+        for (int slot = 0; slot < count; slot++) {
+            long dueMs = mNextDueMs[slot];
+            if (dueMs > now + COALESCE_WINDOW_MS && !takeRefreshSoon(slot)) {
+                continue;
+            }
+            DataProvider provider = mProviders.get(slot);
+            long intervalMs = provider.getRefreshIntervalMs();
+            /* Refreshed early to share this wakeup, it still serves its own due time. */
+            long forMs = Math.max(now, dueMs);
+            mNextDueMs[slot] = (forMs / intervalMs + 1) * intervalMs;
+            mFetches++;
+            String text;
+            try {
+                text = provider.fetch(forMs);
+            } catch (Exception e) {
+                mFailures++;
+                continue;
+            }
+            if (texts == null) {
+                texts = new String[count];
+                fetchedAtMs = new long[count];
+                for (int i = 0; i < count; i++) {
+                    texts[i] = previous.getText(i);
+                    fetchedAtMs[i] = previous.getFetchedAtMs(i);
+                }
+            }
+            fetchedAtMs[slot] = now;
+            texts[slot] = text;
+        }
+
+        if (texts != null) {
+            ProviderSnapshot snapshot = new ProviderSnapshot(texts, fetchedAtMs);
+            mSnapshot = snapshot;
+            if (!sameTexts(previous, snapshot)) {
+                mListener.onSnapshotChanged(snapshot);
+            }
+        }
+        scheduleNext(now);
+    }
+
+    private synchronized boolean takeRefreshSoon(int slot) {
+        boolean refresh = mRefreshSoon[slot];
+        mRefreshSoon[slot] = false;
+        return refresh;
+    }
+
+    private synchronized void scheduleNext(long now) {
+        if (!mStarted || mNextDueMs.length == 0) {
+            return;
+        }
+        long nextMs = Long.MAX_VALUE;
+        for (long dueMs : mNextDueMs) {
+            nextMs = Math.min(nextMs, dueMs);
+        }
+        mWorker.cancel(mRefresh);
+        mWorker.post(mRefresh, Math.max(0, nextMs - now));
+    }
+
+    private static boolean sameTexts(ProviderSnapshot a, ProviderSnapshot b) {
+        for (int slot = 0; slot < a.size(); slot++) {
+            String textA = a.getText(slot);
+            String textB = b.getText(slot);
+            if (textA == null ? textB != null : !textA.equals(textB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Timer wakeups so far, for dump(). */
+    int getWakeupCount() {
+        return mWakeups;
+    }
+
+    int getFetchCount() {
+        return mFetches;
+    }
+
+    int getFailureCount() {
+        return mFailures;
+    }
+}
@@ -0,0 +1,33 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Immutable set of provider values, published by {@link ProviderRegistry} as a whole so that a
+ * frame never sees some fields from one refresh and some from another.
+ */
+final class ProviderSnapshot {
+
+    static final ProviderSnapshot EMPTY = new ProviderSnapshot(new String[0], new long[0]);
+
+    private final String[] mTexts;
+    private final long[] mFetchedAtMs;
+
+    /** Takes ownership of the arrays; callers must not modify them afterwards. */
+    ProviderSnapshot(String[] texts, long[] fetchedAtMs) {
+        mTexts = texts;
+        mFetchedAtMs = fetchedAtMs;
+    }
+
+    /** Text of the provider in {@code slot}, or null if it has none (yet). */
+    String getText(int slot) {
+        return slot >= 0 && slot < mTexts.length ? mTexts[slot] : null;
+    }
+
+    /** When the value in {@code slot} was last fetched successfully, 0 if never. */
+    long getFetchedAtMs(int slot) {
+        return slot >= 0 && slot < mFetchedAtMs.length ? mFetchedAtMs[slot] : 0;
+    }
+
+    int size() {
+        return mTexts.length;
+    }
+}
@@ -0,0 +1,50 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/**
+ * Surface that {@link FaceRenderer} draws on. Paints are referred to by id so the renderer has
+ * no Android dependencies: on the watch this wraps a {@link android.graphics.Canvas}, in JVM
+ * tests and benchmarks it can be a stub that just records or counts calls.
+ */
+interface RenderTarget {
+    int PAINT_HOUR = 0;
+    int PAINT_MINUTE = 1;
+    int PAINT_SECOND = 2;
+    int PAINT_TICK_AND_CIRCLE = 3;
+    int PAINT_DATE_BOX = 4;
+    int PAINT_DATE = 5;
+    int PAINT_BATTERY = 6;
+    int PAINT_BACKGROUND = 7;
+    /** Text fields filled in by data providers. */
+    int PAINT_FIELD = 8;
+
+    /**
+     * Fills the surface with the background image (or black) for the given mode. The image only
+     * has to be drawn inside the visible rectangle, the rest is under the peek card; ambient
+     * mode still fills that with black, since the card is see-through there.
+     */
+    void drawBackground(boolean ambient, int visibleLeft, int visibleTop, int visibleRight,
+            int visibleBottom);
+
+    /**
+     * Blits the pre-composited background, ticks and date box for the given mode, inside the
+     * visible rectangle only.
+     */
+    void drawStaticLayer(boolean ambient, int visibleLeft, int visibleTop, int visibleRight,
+            int visibleBottom);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, int paint);
+
+    void drawRect(float left, float top, float right, float bottom, int paint);
+
+    void drawCircle(float centerX, float centerY, float radius, int paint);
+
+    void drawText(String text, float x, float y, int paint);
+
+    /**
+     * Draws a watch hand: a line from {@code startRadius} to {@code endRadius} away from the
+     * center, pointing up and then rotated clockwise by {@code step} tenths of a degree. Use
+     * {@link DialGeometry#sin} and {@link DialGeometry#cos} to place it.
+     */
+    void drawHand(int paint, int step, float centerX, float centerY, float startRadius,
+            float endRadius);
+}
@@ -0,0 +1,225 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which bitmaps the engine keeps in memory. Everything the face holds on to is
+ * registered as a {@link Resident}, with the modes it is drawn in and whether it is derived,
+ * that is a cache that can be rebuilt from other state.
+ *
+ * <p>Nothing is released while memory is plentiful: a mode switch should cost nothing. Once the
+ * system reports memory pressure, residents the current mode doesn't draw are released, now
+ * and on every mode change until the pressure has not been reported for a while. At higher
+ * pressure derived residents go too, largest first. Released residents are rebuilt by their
+ * owners the next time they are needed.
+ *
+ * <p>Not thread safe; the engine calls it on its render thread.
+ */
+final class ResidencyManager {
+
+    /* Modes, as a mask of where a resident is drawn. Hidden is no mode at all. */
+    static final int MODE_HIDDEN = 0;
+    static final int MODE_INTERACTIVE = 1;
+    static final int MODE_AMBIENT = 1 << 1;
+    static final int MODE_ANY = MODE_INTERACTIVE | MODE_AMBIENT;
+
+    /* Memory pressure, from the trim levels the system reports. */
+    static final int PRESSURE_NONE = 0;
+    /** Release what the current mode doesn't draw. */
+    static final int PRESSURE_MODERATE = 1;
+    /** Also release derived residents, largest first, until half the bytes are gone. */
+    static final int PRESSURE_LOW = 2;
+    /** Also release every derived resident. */
+    static final int PRESSURE_CRITICAL = 3;
+
+    /** How long pressure is assumed to last after it was last reported. */
+    static final long PRESSURE_DECAY_MS = 10 * 60 * 1000;
+
+    /** Wall clock time source. */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /** Something held in memory that can be let go of. */
+    interface Resident {
+        int getByteCount();
+
+        /** Frees the memory; the owner rebuilds it lazily when it is needed again. */
+        void release();
+    }
+
+    private static final class Entry {
+        final String name;
+        final int modes;
+        final boolean derived;
+        final Resident resident;
+        int size;
+
+        Entry(String name, int modes, boolean derived, Resident resident) {
+            this.name = name;
+            this.modes = modes;
+            this.derived = derived;
+            this.resident = resident;
+        }
+    }
+
+    private final Clock mClock;
+    private final List<Entry> mEntries = new ArrayList<Entry>();
+    /* Scratch list for releasing in size order, so trimming doesn't allocate. */
+    private final List<Entry> mBySize = new ArrayList<Entry>();
+
+    private int mMode = MODE_HIDDEN;
+    private int mPressure = PRESSURE_NONE;
+    private long mPressureMs;
+
+    private int mTrimCount;
+    private int mReleaseCount;
+    private long mReleasedBytes;
+
+    ResidencyManager(Clock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Registers a resident. {@code modes} is a mask of the modes it is drawn in; {@code derived}
+     * residents are caches that may be released even in those modes.
+     */
+    void add(String name, int modes, boolean derived, Resident resident) {
+        mEntries.add(new Entry(name, modes, derived, resident));
+        mBySize.add(mEntries.get(mEntries.size() - 1));
+    }
+
+    /** Sets the mode on screen; under pressure, releases what it doesn't draw. */
+    void setMode(int mode) {
+        mMode = mode;
+        if (getPressure() > PRESSURE_NONE) {
+            releaseOffScreen();
+        }
+    }
+
+    /**
+     * Reacts to memory pressure reported by the system. Returns the bytes released, which may
+     * only be freed once the owners of the residents get to it.
+     */
+    long trim(int pressure) {
+        if (pressure <= PRESSURE_NONE) {
+            return 0;
+        }
+        mTrimCount++;
+        long residentBytes = getResidentBytes();
+        /* A lower level reported later doesn't mean memory was freed elsewhere. */
+        mPressure = Math.max(getPressure(), pressure);
+        mPressureMs = mClock.currentTimeMillis();
+
+        long released = releaseOffScreen();
+        if (pressure >= PRESSURE_LOW) {
+            released += releaseDerived(pressure >= PRESSURE_CRITICAL ? 0 : residentBytes / 2);
+        }
+        return released;
+    }
+
+    /* Releases every resident not drawn in the current mode. */
+    private long releaseOffScreen() {
+        long released = 0;
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            if ((entry.modes & mMode) == 0) {
+                released += release(entry, entry.resident.getByteCount());
+            }
+        }
+        return released;
+    }
+
+    /*
+     * Releases derived residents, largest first, until at most targetBytes are resident.
+     * Off-screen residents were just released; their owners may not have freed them yet.
+     */
+    private long releaseDerived(long targetBytes) {
+        long resident = 0;
+        for (int i = 0; i < mBySize.size(); i++) {
+            Entry entry = mBySize.get(i);
+            entry.size = (entry.modes & mMode) != 0 ? entry.resident.getByteCount() : 0;
+            resident += entry.size;
+        }
+        sortBySize();
+        long released = 0;
+        for (int i = 0; i < mBySize.size() && resident > targetBytes; i++) {
+            Entry entry = mBySize.get(i);
+            if (entry.derived && entry.size > 0) {
+                released += release(entry, entry.size);
+                resident -= entry.size;
+            }
+        }
+        return released;
+    }
+
+    /* Largest first; an insertion sort, since there are only a handful of residents. */
+    private void sortBySize() {
+        for (int i = 1; i < mBySize.size(); i++) {
+            Entry entry = mBySize.get(i);
+            int j = i - 1;
+            while (j >= 0 && mBySize.get(j).size < entry.size) {
+                mBySize.set(j + 1, mBySize.get(j));
+                j--;
+            }
+            mBySize.set(j + 1, entry);
+        }
+    }
+
+    private long release(Entry entry, int bytes) {
+        if (bytes <= 0) {
+            return 0;
+        }
+        entry.resident.release();
+        mReleaseCount++;
+        mReleasedBytes += bytes;
+        return bytes;
+    }
+
+    /** The current pressure, back to none once it hasn't been reported for a while. */
+    int getPressure() {
+        if (mPressure > PRESSURE_NONE
+                && mClock.currentTimeMillis() - mPressureMs >= PRESSURE_DECAY_MS) {
+            mPressure = PRESSURE_NONE;
+        }
+        return mPressure;
+    }
+
+    /** Bytes currently held by all residents. */
+    long getResidentBytes() {
+        long bytes = 0;
+        for (int i = 0; i < mEntries.size(); i++) {
+            bytes += mEntries.get(i).resident.getByteCount();
+        }
+        return bytes;
+    }
+
+    int getTrimCount() {
+        return mTrimCount;
+    }
+
+    int getReleaseCount() {
+        return mReleaseCount;
+    }
+
+    long getReleasedBytes() {
+        return mReleasedBytes;
+    }
+
+    void dump(PrintWriter writer, String prefix) {
+        StringBuilder line = new StringBuilder(prefix);
+        line.append("residency: bytes=").append(getResidentBytes())
+                .append(" pressure=").append(getPressure())
+                .append(" trims=").append(mTrimCount)
+                .append(" releases=").append(mReleaseCount)
+                .append(" releasedBytes=").append(mReleasedBytes);
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            line.append(' ').append(entry.name).append('=')
+                    .append(entry.resident.getByteCount());
+        }
+        writer.println(line);
+    }
+}
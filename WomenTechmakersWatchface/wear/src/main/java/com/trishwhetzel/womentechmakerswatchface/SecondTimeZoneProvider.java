@@ -0,0 +1,53 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Time in a second time zone, e.g. "UTC 14:05", refreshed on the minute. The zone is a setting
+ * and may be changed from any thread; the next fetch picks it up.
+ */
+final class SecondTimeZoneProvider implements DataProvider {
+
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private volatile TimeZone mTimeZone;
+    private final Locale mLocale;
+    /* Only used by fetch, on the worker thread, along with the zone it is set to. */
+    private final SimpleDateFormat mFormat;
+    private TimeZone mFormatTimeZone;
+
+    SecondTimeZoneProvider(TimeZone timeZone, Locale locale) {
+        mTimeZone = timeZone;
+        mLocale = locale;
+        mFormat = new SimpleDateFormat("HH:mm", locale);
+    }
+
+    /** Sets the zone shown; returns whether it differs from the one shown so far. */
+    boolean setTimeZone(TimeZone timeZone) {
+        if (timeZone.getID().equals(mTimeZone.getID())) {
+            return false;
+        }
+        mTimeZone = timeZone;
+        return true;
+    }
+
+    @Override
+    public long getRefreshIntervalMs() {
+        return MINUTE_MS;
+    }
+
+    @Override
+    public String fetch(long timeMs) {
+        TimeZone timeZone = mTimeZone;
+        if (timeZone != mFormatTimeZone) {
+            mFormat.setTimeZone(timeZone);
+            mFormatTimeZone = timeZone;
+        }
+        boolean daylight = timeZone.inDaylightTime(new Date(timeMs));
+        return timeZone.getDisplayName(daylight, TimeZone.SHORT, mLocale) + " "
+                + mFormat.format(new Date(timeMs));
+    }
+}
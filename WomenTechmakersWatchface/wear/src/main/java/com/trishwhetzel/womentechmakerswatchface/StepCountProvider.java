@@ -0,0 +1,142 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+
+import java.util.TimeZone;
+
+/**
+ * Steps taken today, from the step counter sensor. The sensor only counts steps since boot, so
+ * the first reading taken on each local day is that day's baseline; steps taken between
+ * midnight and that reading are not counted. The baseline and the last reading are kept in
+ * preferences, so restarting the face process doesn't start the day over, and a reboot, which
+ * resets the sensor, keeps the steps counted before it. Shows nothing on watches without the
+ * sensor, or until there is a reading from today.
+ *
+ * <p>The listener runs between {@link #start} and {@link #stop}, on the main thread, and only
+ * keeps the latest reading; {@link #fetch} turns that into text on the registry's worker.
+ */
+final class StepCountProvider implements DataProvider, SensorEventListener {
+    private static final String PREFS_NAME = "step_count";
+    private static final String KEY_BASELINE_DAY = "baselineDay";
+    private static final String KEY_BASELINE = "baseline";
+    private static final String KEY_COUNT = "count";
+    private static final String KEY_COUNT_TIME = "countTimeMs";
+
+    private static final long REFRESH_INTERVAL_MS = 60 * 1000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+
+    /* No reading yet, ever. */
+    private static final long NO_COUNT = -1;
+
+    private final SensorManager mSensorManager;
+    private final Sensor mSensor;
+    private final SharedPreferences mPrefs;
+    private final Resources mResources;
+
+    /* The latest reading and the wall clock time it was taken at; guarded by this. */
+    private long mCount;
+    private long mCountTimeMs;
+
+    /* Worker thread only, after the constructor. */
+    private long mBaselineDay;
+    private long mBaseline;
+    /* The count fetched last, as written to preferences. */
+    private long mLastCount;
+
+    StepCountProvider(Context context) {
+        mSensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        mSensor = mSensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mResources = context.getResources();
+
+        mBaselineDay = mPrefs.getLong(KEY_BASELINE_DAY, Long.MIN_VALUE);
+        mBaseline = mPrefs.getLong(KEY_BASELINE, 0);
+        mCount = mPrefs.getLong(KEY_COUNT, NO_COUNT);
+        mCountTimeMs = mPrefs.getLong(KEY_COUNT_TIME, 0);
+        mLastCount = mCount;
+    }
+
+    /**
+     * Starts listening for the step count. The sensor may batch steps for up to a refresh
+     * interval, since nothing shows them any sooner; that lets it leave the main processor
+     * asleep.
+     */
+    void start() {
+        if (mSensor != null) {
+            mSensorManager.registerListener(this, mSensor, SensorManager.SENSOR_DELAY_NORMAL,
+                    (int) (REFRESH_INTERVAL_MS * 1000));
+        }
+    }
+
+    void stop() {
+        if (mSensor != null) {
+            mSensorManager.unregisterListener(this);
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        /* Batched events arrive late; date each by its own timestamp, on the boot clock. */
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - event.timestamp) / 1000000;
+        long takenAtMs = System.currentTimeMillis() - Math.max(0, ageMs);
+        synchronized (this) {
+            mCount = (long) event.values[0];
+            mCountTimeMs = takenAtMs;
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+
+    @Override
+    public long getRefreshIntervalMs() {
+        return REFRESH_INTERVAL_MS;
+    }
+
+    @Override
+    public String fetch(long timeMs) {
+        long count;
+        long countTimeMs;
+        synchronized (this) {
+            count = mCount;
+            countTimeMs = mCountTimeMs;
+        }
+        long day = localDay(timeMs);
+        if (count == NO_COUNT || localDay(countTimeMs) != day) {
+            /* A reading from an earlier day says nothing about today's steps. */
+            return null;
+        }
+        boolean changed = count != mLastCount;
+        if (day != mBaselineDay) {
+            mBaselineDay = day;
+            mBaseline = count;
+            changed = true;
+        } else if (count < mLastCount) {
+            /* The watch rebooted, and the counter with it; keep the steps counted before. */
+            mBaseline -= mLastCount;
+        }
+        if (changed) {
+            mPrefs.edit()
+                    .putLong(KEY_BASELINE_DAY, mBaselineDay)
+                    .putLong(KEY_BASELINE, mBaseline)
+                    .putLong(KEY_COUNT, count)
+                    .putLong(KEY_COUNT_TIME, countTimeMs)
+                    .apply();
+            mLastCount = count;
+        }
+        int steps = (int) Math.min(count - mBaseline, Integer.MAX_VALUE);
+        return mResources.getQuantityString(R.plurals.step_count, steps, steps);
+    }
+
+    private static long localDay(long timeMs) {
+        return (timeMs + TimeZone.getDefault().getOffset(timeMs)) / DAY_MS;
+    }
+}
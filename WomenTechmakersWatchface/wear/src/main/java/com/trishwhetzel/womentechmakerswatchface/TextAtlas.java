@@ -0,0 +1,133 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * The few strings the face draws every frame or every day, pre-rasterized once for one text
+ * paint: the digits, "%" and a set of whole words (the day names). Text made of those is then
+ * drawn as bitmap blits instead of being shaped and rasterized again on every draw.
+ *
+ * <p>Glyphs are stored as an ALPHA_8 mask, so the paint's current color and alpha apply when
+ * blitting and color changes don't need a new atlas; size, typeface or anti-aliasing do, see
+ * {@link #matches}. Digits are placed on whole pixels, so a label can sit up to half a pixel
+ * from where drawText would put it.
+ */
+final class TextAtlas {
+
+    private static final String SYMBOLS = "0123456789%";
+
+    /* Room around each glyph for bearings that reach past its advance. */
+    private static final int PADDING = 2;
+
+    private final float mTextSize;
+    private final boolean mAntiAlias;
+    private final Typeface mTypeface;
+
+    private final Bitmap mBitmap;
+    private final int mAscent;
+    private final int mHeight;
+
+    private final String[] mWords;
+    private final int[] mWordLefts;
+    private final int[] mWordWidths;
+    private final int[] mSymbolLefts = new int[SYMBOLS.length()];
+    private final int[] mSymbolWidths = new int[SYMBOLS.length()];
+    private final float[] mSymbolAdvances = new float[SYMBOLS.length()];
+
+    private final Rect mSource = new Rect();
+    private final Rect mDestination = new Rect();
+
+    /** Rasterizes the symbols and {@code words} as {@code paint} would draw them. */
+    TextAtlas(Paint paint, String[] words) {
+        mTextSize = paint.getTextSize();
+        mAntiAlias = paint.isAntiAlias();
+        mTypeface = paint.getTypeface();
+
+        Paint glyphPaint = new Paint(paint);
+        glyphPaint.clearShadowLayer();
+        glyphPaint.setColor(0xFF000000);
+        glyphPaint.setTextAlign(Paint.Align.LEFT);
+        Paint.FontMetricsInt metrics = glyphPaint.getFontMetricsInt();
+        mAscent = metrics.ascent;
+        mHeight = metrics.descent - metrics.ascent;
+
+        mWords = words.clone();
+        mWordLefts = new int[words.length];
+        mWordWidths = new int[words.length];
+
+        int width = 0;
+        for (int i = 0; i < SYMBOLS.length(); i++) {
+            mSymbolAdvances[i] = glyphPaint.measureText(SYMBOLS, i, i + 1);
+            mSymbolLefts[i] = width;
+            mSymbolWidths[i] = (int) Math.ceil(mSymbolAdvances[i]) + 2 * PADDING;
+            width += mSymbolWidths[i];
+        }
+        for (int i = 0; i < words.length; i++) {
+            mWordLefts[i] = width;
+            mWordWidths[i] = (int) Math.ceil(glyphPaint.measureText(words[i])) + 2 * PADDING;
+            width += mWordWidths[i];
+        }
+
+        mBitmap = Bitmap.createBitmap(Math.max(1, width), Math.max(1, mHeight),
+                Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < SYMBOLS.length(); i++) {
+            canvas.drawText(SYMBOLS, i, i + 1, mSymbolLefts[i] + PADDING, -mAscent, glyphPaint);
+        }
+        for (int i = 0; i < words.length; i++) {
+            canvas.drawText(words[i], mWordLefts[i] + PADDING, -mAscent, glyphPaint);
+        }
+    }
+
+    /** Whether this atlas looks like text drawn with {@code paint}, ignoring its color. */
+    boolean matches(Paint paint) {
+        return paint.getTextSize() == mTextSize && paint.isAntiAlias() == mAntiAlias
+                && paint.getTypeface() == mTypeface;
+    }
+
+    /**
+     * Draws {@code text} with its baseline at {@code y}, colored by {@code paint}. Returns
+     * false, drawing nothing, if the text is neither one of the words nor made of symbols.
+     */
+    boolean draw(Canvas canvas, String text, float x, float y, Paint paint) {
+        int top = Math.round(y) + mAscent;
+        for (int i = 0; i < mWords.length; i++) {
+            if (mWords[i].equals(text)) {
+                blit(canvas, mWordLefts[i], mWordWidths[i], Math.round(x), top, paint);
+                return true;
+            }
+        }
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (SYMBOLS.indexOf(text.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        float left = x;
+        for (int i = 0; i < length; i++) {
+            int symbol = SYMBOLS.indexOf(text.charAt(i));
+            blit(canvas, mSymbolLefts[symbol], mSymbolWidths[symbol], Math.round(left), top,
+                    paint);
+            left += mSymbolAdvances[symbol];
+        }
+        return true;
+    }
+
+    private void blit(Canvas canvas, int sourceLeft, int width, int x, int top, Paint paint) {
+        mSource.set(sourceLeft, 0, sourceLeft + width, mHeight);
+        mDestination.set(x - PADDING, top, x - PADDING + width, top + mHeight);
+        canvas.drawBitmap(mBitmap, mSource, mDestination, paint);
+    }
+
+    int getByteCount() {
+        return mBitmap.getByteCount();
+    }
+
+    void release() {
+        mBitmap.recycle();
+    }
+}
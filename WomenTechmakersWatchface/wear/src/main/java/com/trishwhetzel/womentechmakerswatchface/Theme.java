@@ -0,0 +1,60 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.graphics.Color;
+
+/**
+ * A background the face can show, with the image its ambient luminance mask is made from and
+ * its backdrop color. Transparent parts of the background are flattened onto the backdrop, and
+ * it fills the screen while the background is still decoding. Themes are cycled by tapping the
+ * face.
+ *
+ * <p>The ambient image must be mostly dark: whatever is bright in it stays lit for as long as
+ * the watch is ambient. Themes whose only art is on a light background have none, and show
+ * black in ambient mode.
+ */
+final class Theme {
+    /** Ambient resource of themes without an ambient background. */
+    static final int NO_AMBIENT = 0;
+
+    static final Theme[] ALL = {
+            new Theme("wtm_logo", R.drawable.logo_v2, R.drawable.ambient_logo_2, Color.WHITE),
+            /* Opaque logos on white; as a luminance mask they would light most of the screen. */
+            new Theme("wtm", R.drawable.wtm, NO_AMBIENT, Color.WHITE),
+            new Theme("wt_logo", R.drawable.wt_logo, NO_AMBIENT, Color.WHITE),
+    };
+
+    final String name;
+    final int backgroundResId;
+    final int ambientResId;
+    final int backdropColor;
+
+    private Theme(String name, int backgroundResId, int ambientResId, int backdropColor) {
+        this.name = name;
+        this.backgroundResId = backgroundResId;
+        this.ambientResId = ambientResId;
+        this.backdropColor = backdropColor;
+    }
+
+    /** Returns the theme at {@code index}, falling back to the first for stale indices. */
+    static Theme get(int index) {
+        return index >= 0 && index < ALL.length ? ALL[index] : ALL[0];
+    }
+
+    boolean hasAmbientBackground() {
+        return ambientResId != NO_AMBIENT;
+    }
+
+    static int next(int index) {
+        return (index + 1) % ALL.length;
+    }
+
+    /** Cache key of this theme's background at the given size. */
+    String backgroundKey(int width, int height) {
+        return name + "/background/" + width + "x" + height;
+    }
+
+    /** Cache key of this theme's ambient mask at the given size. */
+    String ambientKey(int width, int height) {
+        return name + "/ambient/" + width + "x" + height;
+    }
+}
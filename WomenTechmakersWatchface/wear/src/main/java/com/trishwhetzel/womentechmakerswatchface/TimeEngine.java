@@ -0,0 +1,212 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Splits epoch millis into the local time fields the watch face draws, without the per-frame
+ * cost of {@link Calendar}. The zone offset is cached together with the instant of the next
+ * offset change, so it is only looked up again after a DST transition or {@link #setTimeZone}.
+ * Day name and day of month strings are taken from preallocated tables when the local day
+ * changes, so {@link #setTime(long)} never allocates.
+ */
+final class TimeEngine {
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /*
+     * How far ahead to look for the next offset change, and the step used to find it. Zones
+     * don't change offset twice within the step, and a year is always long enough to reach the
+     * next DST transition of zones that have one.
+     */
+    private static final long TRANSITION_SEARCH_WINDOW_MS = 400 * MILLIS_PER_DAY;
+    private static final long TRANSITION_SEARCH_STEP_MS = 6 * MILLIS_PER_HOUR;
+
+    /* Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar. */
+    private static final long DAYS_0000_TO_1970 = 719468L;
+
+    private static final String[] DAY_OF_MONTH_TEXT = new String[32];
+
+    static {
+        for (int day = 1; day < DAY_OF_MONTH_TEXT.length; day++) {
+            DAY_OF_MONTH_TEXT[day] = day < 10 ? "0" + day : String.valueOf(day);
+        }
+    }
+
+    /* Localized short day names, indexed by Calendar.SUNDAY..Calendar.SATURDAY. */
+    private final String[] mShortWeekdays;
+
+    private TimeZone mTimeZone;
+    private int mOffsetMs;
+    private long mOffsetValidFromMs;
+    private long mOffsetValidUntilMs;
+
+    private long mLocalDay = Long.MIN_VALUE;
+    private int mYear;
+    private int mMonth;
+    private int mDayOfMonth;
+    private int mDayOfWeek;
+    private int mHourOfDay;
+    private int mMinute;
+    private int mSecond;
+    private int mMillisecond;
+
+    TimeEngine(TimeZone timeZone, Locale locale) {
+        mShortWeekdays = DateFormatSymbols.getInstance(locale).getShortWeekdays();
+        setTimeZone(timeZone);
+    }
+
+    /** Switches to a new zone. The offset is looked up again on the next {@link #setTime}. */
+    void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mOffsetValidFromMs = Long.MAX_VALUE;
+        mOffsetValidUntilMs = Long.MIN_VALUE;
+        mLocalDay = Long.MIN_VALUE;
+    }
+
+    TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /** Updates all fields for the given wall clock time. */
+    void setTime(long timeMs) {
+        if (timeMs < mOffsetValidFromMs || timeMs >= mOffsetValidUntilMs) {
+            refreshOffset(timeMs);
+        }
+
+        long localMs = timeMs + mOffsetMs;
+        long localDay = floorDiv(localMs, MILLIS_PER_DAY);
+        int millisOfDay = (int) (localMs - localDay * MILLIS_PER_DAY);
+
+        mHourOfDay = (int) (millisOfDay / MILLIS_PER_HOUR);
+        mMinute = (int) (millisOfDay % MILLIS_PER_HOUR / MILLIS_PER_MINUTE);
+        mSecond = (int) (millisOfDay % MILLIS_PER_MINUTE / MILLIS_PER_SECOND);
+        mMillisecond = (int) (millisOfDay % MILLIS_PER_SECOND);
+
+        if (localDay != mLocalDay) {
+            mLocalDay = localDay;
+            updateDate(localDay);
+        }
+    }
+
+    /**
+     * Caches the zone offset at {@code timeMs} and finds the first instant after it where the
+     * offset is different, so {@link #setTime} can skip the lookup until then.
+     */
+    private void refreshOffset(long timeMs) {
+        int offset = mTimeZone.getOffset(timeMs);
+        long from = timeMs;
+        long limit = timeMs + TRANSITION_SEARCH_WINDOW_MS;
+        long until = limit;
+        while (from < limit) {
+            long to = from + TRANSITION_SEARCH_STEP_MS;
+            if (mTimeZone.getOffset(to) != offset) {
+                /* Narrow down to the first millisecond with the new offset. */
+                while (to - from > 1) {
+                    long mid = from + (to - from) / 2;
+                    if (mTimeZone.getOffset(mid) == offset) {
+                        from = mid;
+                    } else {
+                        to = mid;
+                    }
+                }
+                until = to;
+                break;
+            }
+            from = to;
+        }
+        mOffsetMs = offset;
+        mOffsetValidFromMs = timeMs;
+        mOffsetValidUntilMs = until;
+    }
+
+    /** Converts days since the epoch to a Gregorian date (algorithm from H. Hinnant). */
+    private void updateDate(long epochDay) {
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+
+        mDayOfMonth = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        mMonth = month - 1 + Calendar.JANUARY;
+        mYear = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        /* 1970-01-01 was a Thursday. */
+        mDayOfWeek = (int) floorMod(epochDay + 4, 7) + Calendar.SUNDAY;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    /** Days since 1970-01-01 in local time; changes exactly when the local date does. */
+    long getLocalDay() {
+        return mLocalDay;
+    }
+
+    int getYear() {
+        return mYear;
+    }
+
+    /** Month as {@link Calendar#JANUARY}..{@link Calendar#DECEMBER}. */
+    int getMonth() {
+        return mMonth;
+    }
+
+    int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    /** Day of week as {@link Calendar#SUNDAY}..{@link Calendar#SATURDAY}. */
+    int getDayOfWeek() {
+        return mDayOfWeek;
+    }
+
+    /** Hour of the day, 0-23, like {@link Calendar#HOUR_OF_DAY}. */
+    int getHourOfDay() {
+        return mHourOfDay;
+    }
+
+    /** Hour of the half day, 0-11, like {@link Calendar#HOUR}. */
+    int getHour() {
+        return mHourOfDay % 12;
+    }
+
+    int getMinute() {
+        return mMinute;
+    }
+
+    int getSecond() {
+        return mSecond;
+    }
+
+    int getMillisecond() {
+        return mMillisecond;
+    }
+
+    /** Localized short day name, same as formatting with {@code "EEE"}. */
+    String getDayName() {
+        return mShortWeekdays[mDayOfWeek];
+    }
+
+    /** Localized short name of a {@link Calendar} day of week, SUNDAY to SATURDAY. */
+    String getDayName(int dayOfWeek) {
+        return mShortWeekdays[dayOfWeek];
+    }
+
+    /** Two digit day of month, same as formatting with {@code "dd"}. */
+    String getDayOfMonthText() {
+        return DAY_OF_MONTH_TEXT[mDayOfMonth];
+    }
+}
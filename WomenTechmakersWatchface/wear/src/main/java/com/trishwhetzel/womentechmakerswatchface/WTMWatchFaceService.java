@@ -1,31 +1,44 @@
 package com.trishwhetzel.womentechmakerswatchface;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
-import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Message;
-import android.support.v7.graphics.Palette;
+import android.os.Process;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
+import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,19 +48,148 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
     private static final String TAG = "WTMWatchFaceService";
 
     /**
-     * Update rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
+     * Update rate in milliseconds for ambient mode, where the system ticks once a minute.
+     * The interactive rate is decided by {@link FrameScheduler}.
      */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long AMBIENT_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final String PREFS_NAME = "face_settings";
+    private static final String PREF_THEME = "theme";
+
+    /* The theme on screen plus the one prefetched for the next tap. */
+    private static final int CACHED_THEMES = 2;
+
     private static final Typeface BOLD_TYPEFACE =
             Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD);
 
+    /*
+     * Wakeups, frames and modes of every engine, in a file mapped into memory so that it
+     * survives restarts and can be pulled off the watch. About a day of records at one
+     * record per source and minute.
+     */
+    private static final String EVENT_LOG_FILE = "events.bin";
+    private static final int EVENT_LOG_RECORDS = 16384;
+
+    /* How long the main thread waits for the render thread when it has to. */
+    private static final long RENDER_WAIT_MS = 1000;
+
+    /* Live engines, so that dump() can report their frame stats. */
+    private final List<Engine> mEngines = new ArrayList<Engine>();
+
+    private ByteBuffer mEventLogBuffer;
+    private EventLog mEventLog;
+
+    /*
+     * Draws the frames of every engine, away from the main thread and its callbacks. The event
+     * log is only written on this thread.
+     */
+    private HandlerThread mRenderThread;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mEventLogBuffer = mapEventLog();
+        mEventLog = new EventLog(mEventLogBuffer);
+        mRenderThread = new HandlerThread("WTMRender", Process.THREAD_PRIORITY_DISPLAY);
+        mRenderThread.start();
+    }
+
+    @Override
+    public void onDestroy() {
+        new Handler(mRenderThread.getLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                mEventLog.flush(System.currentTimeMillis());
+            }
+        });
+        mRenderThread.quitSafely();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        trimMemory(pressureFor(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        trimMemory(ResidencyManager.PRESSURE_CRITICAL);
+    }
+
+    private void trimMemory(int pressure) {
+        for (int i = 0; i < mEngines.size(); i++) {
+            mEngines.get(i).trimMemory(pressure);
+        }
+    }
+
+    /** Maps a trim level, whether the process is running or cached, to memory pressure. */
+    private static int pressureFor(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return ResidencyManager.PRESSURE_CRITICAL;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return ResidencyManager.PRESSURE_LOW;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return ResidencyManager.PRESSURE_MODERATE;
+        }
+        /* TRIM_MEMORY_UI_HIDDEN: a watch face has no UI of its own to hide. */
+        return ResidencyManager.PRESSURE_NONE;
+    }
+
+    /** Maps an update mode synced from the phone to the FrameScheduler mode that runs it. */
+    private static int schedulerModeFor(int updateMode) {
+        switch (updateMode) {
+            case FaceConfig.UPDATE_MODE_SWEEP:
+                return FrameScheduler.MODE_SWEEP;
+            case FaceConfig.UPDATE_MODE_POWER_SAVER:
+                return FrameScheduler.MODE_POWER_SAVER;
+            case FaceConfig.UPDATE_MODE_TICK:
+            default:
+                return FrameScheduler.MODE_TICK;
+        }
+    }
+
     @Override
     public Engine onCreateEngine() {
         /* provide your watch face implementation */
         return new Engine();
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        for (int i = 0; i < mEngines.size(); i++) {
+            Engine engine = mEngines.get(i);
+            writer.println("Engine " + i + (engine.isPreview() ? " (preview)" : "") + ":");
+            engine.dump(writer, "  ");
+        }
+        writer.println("Event log:");
+        new EventLogReader(mEventLogBuffer.duplicate()).print(writer, "  ");
+    }
+
+    /** Maps the event log file, or falls back to memory if the file can't be mapped. */
+    private ByteBuffer mapEventLog() {
+        int size = EventLog.bytesFor(EVENT_LOG_RECORDS);
+        try {
+            RandomAccessFile file =
+                    new RandomAccessFile(new File(getFilesDir(), EVENT_LOG_FILE), "rw");
+            try {
+                /* The mapping stays valid after the file is closed. */
+                return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Event log not mapped, keeping it in memory", e);
+            return ByteBuffer.allocate(size);
+        }
+    }
+
     /* implement service callback methods */
     private class Engine extends CanvasWatchFaceService.Engine {
 
@@ -55,49 +197,137 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
          * Handler message id for updating the time periodically in interactive mode.
          */
         private static final int MSG_UPDATE_TIME = 0;
-
-        private static final float HOUR_STROKE_WIDTH = 9f;
-        private static final float MINUTE_STROKE_WIDTH = 7f;
-        private static final float SECOND_TICK_STROKE_WIDTH = 2f;
-
-        private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 4f;
+        /* Render thread messages: new state, a whole frame, the system tick, event log. */
+        private static final int MSG_STATE = 1;
+        private static final int MSG_FRAME = 2;
+        private static final int MSG_TIME_TICK = 3;
+        private static final int MSG_WAKEUP = 4;
+        private static final int MSG_MODE = 5;
+        private static final int MSG_TRIM = 6;
 
         private static final int SHADOW_RADIUS = 6;
 
-        private Calendar mCalendar;
+        /* Interactive hands with their shadows, pre-rendered; ambient hands stay vector. */
+        private final HandSprites mHandSprites = new HandSprites(SHADOW_RADIUS);
+
+        /*
+         * The engine is split across two threads. Callbacks, receivers, settings and theme
+         * loading run on the main thread, which keeps the fields describing what to show and
+         * publishes them as a FrameState snapshot after every change. Ticks and everything that
+         * draws (renderer, paints, layers, time) belong to the render thread, which only reads
+         * snapshots. Neither ever waits for the other, except for surface changes, where the
+         * main thread must know that the render thread is done.
+         */
+        private final Handler mMainHandler = new Handler();
+        private final FrameState.Builder mStateBuilder = new FrameState.Builder();
+        private final FrameStateHandoff mHandoff = new FrameStateHandoff(
+                new FrameStateHandoff.Waker() {
+                    @Override
+                    public void wake() {
+                        mUpdateTimeHandler.sendEmptyMessage(MSG_STATE);
+                    }
+                });
+        /* The snapshot frames are drawn from; render thread only. */
+        private FrameState mState;
+        /* Set on the render thread once the engine has released its drawing resources. */
+        private boolean mReleased;
+
+        private TimeEngine mTime;
+        private TimeZone mTimeZone;
         private boolean mRegisteredTimeZoneReceiver = false;
         private boolean mMuteMode;
-
-        private float mCenterX;
-        private float mCenterY;
-
-        private float mSecondHandLength;
-        private float mMinuteHandLength;
-        private float mHourHandLength;
+        private final Rect mPeekCardBounds = new Rect();
 
         /* Colors for all hands (hour, minute, seconds, ticks) based on photo loaded. */
         private int mWatchHandColor;
         private int mWatchHandHighlightColor;
         private int mWatchHandShadowColor;
+        private PaletteCache mPaletteCache;
+        private PaletteCache.Colors mPaletteColors;
+
+        /*
+         * Theme backgrounds are decoded on mBitmapThread into mBitmapCache. Until a theme's
+         * bitmaps arrive, the previous theme's stay on screen, or at startup a placeholder in
+         * the theme's backdrop color. A theme's bitmaps and colors wait in the pending fields
+         * until all of them are ready and are then swapped in together.
+         */
+        private SharedPreferences mSettings;
+        private int mThemeIndex;
+        private boolean mThemeRestored;
+        private boolean mThemeApplied;
+        private Bitmap mPendingBackground;
+        private Bitmap mPendingAmbientBackground;
+        private PaletteCache.Colors mPendingColors;
+        private HandlerThread mBitmapThread;
+        private Handler mBitmapHandler;
+        private BitmapCache mBitmapCache;
+
+        /* Settings synced from the phone; hand colors set there override the palette. */
+        private WatchConfig mConfig;
+        private WearableConfigListener mConfigListener;
+
+        /* Extra text fields, fetched on mProviderThread; onDraw only reads the snapshot. */
+        private HandlerThread mProviderThread;
+        private ProviderRegistry mProviders;
+        private SecondTimeZoneProvider mSecondTimeZone;
+        private int mSecondTimeZoneSlot;
+        private StepCountProvider mStepCount;
+        private NextEventProvider mNextEvent;
+        private int mNextEventSlot;
+        /* Field text size, for telling which field a tap hits. */
+        private float mFieldTextSize;
+
+        /* Posted from the provider thread to the render thread when new values are in. */
+        private final Runnable mProvidersChanged = new Runnable() {
+            @Override
+            public void run() {
+                updateFrame();
+            }
+        };
 
 
-        private Paint mHourPaint;
-        private Paint mMinutePaint;
-        private Paint mSecondPaint;
-        private Paint mTickAndCirclePaint;
+        /*
+         * The paints frames are drawn with, one immutable set per mode combination. A palette
+         * builds a new table; a mode change only picks another set from it. Render thread only.
+         */
+        private final Paint[] mPaintTemplates = PaintSet.newTemplates();
+        private PaintSet.Table mPaintTable;
+        private PaintSet mPaintSet;
 
         private Paint rectPaint;
-        private Paint rectBkgPaint;
-        private Paint datePaint;
 
-        private int batteryLevel;
+        /* Kept by battery broadcasts on the main thread and published with each snapshot. */
+        private BatteryState mBatteryState;
 
-        private Paint batteryPaint;
+        /* The battery as of the snapshot being drawn, for the renderer and the scheduler. */
+        private final BatteryStatus mFrameBattery = new BatteryStatus() {
+            @Override
+            public int getLevel() {
+                return mState != null ? mState.batteryLevel : BatteryState.UNKNOWN_LEVEL;
+            }
+
+            @Override
+            public boolean isCharging() {
+                return mState != null && mState.charging;
+            }
+        };
+
+        /* Runs on the main thread after every battery broadcast. */
+        private final Runnable mBatteryChanged = new Runnable() {
+            @Override
+            public void run() {
+                logWakeup(EventLog.SOURCE_BATTERY);
+                publishState();
+            }
+        };
 
         private Paint mBackgroundPaint;
         private Bitmap mBackgroundBitmap;
-        private Bitmap mGrayBackgroundBitmap;
+        /* Grayscale ambient background as an ALPHA_8 luminance mask, drawn in white over black. */
         private Bitmap mAmbientBackgroundBitmap;
+        private Paint mAmbientBackgroundPaint;
+        private int mSurfaceWidth;
+        private int mSurfaceHeight;
 
         private boolean mAmbient;
         private boolean mLowBitAmbient;
@@ -109,35 +339,181 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
         private float mTextSpacingHeight;
         private int mScreenTextColor = Color.DKGRAY;
 
-        private Rect mPeekCardBounds = new Rect();
+        private FaceRenderer mRenderer;
+        private final FrameStats mFrameStats = new FrameStats();
+        private FrameScheduler mScheduler;
+        private final CanvasTarget mCanvasTarget = new CanvasTarget();
+        /* Region of the surface locked for a partial frame. */
+        private final Rect mDirty = new Rect();
+
+        /*
+         * Pre-rasterized date and battery text, one atlas per paint and mode (interactive,
+         * ambient), each rebuilt only when its paint's size, typeface or anti-aliasing changes.
+         */
+        private final TextAtlas[] mTextAtlases = new TextAtlas[4];
+        private String[] mDayNames;
+
+        /*
+         * Background, hour ticks and date box pre-composited into one offscreen bitmap, so that
+         * an interactive frame is a single drawBitmap plus the hands. The layer is only redrawn
+         * when marked dirty (surface, palette, device properties or day changed).
+         */
+        private Bitmap mInteractiveStaticLayer;
+        private boolean mInteractiveStaticLayerDirty = true;
+        private long mStaticLayerDay = Long.MIN_VALUE;
+
+        /*
+         * Every bitmap above, registered in onCreate. Under memory pressure it releases what
+         * the mode on screen doesn't draw and then caches, largest first; each is rebuilt off
+         * the main thread when it is next drawn. Render thread only.
+         */
+        private final ResidencyManager mResidency = new ResidencyManager(
+                new ResidencyManager.Clock() {
+                    @Override
+                    public long currentTimeMillis() {
+                        return System.currentTimeMillis();
+                    }
+                });
+
+        /* Posted by residents owned by the main thread. */
+        private final Runnable mDropBackground = new Runnable() {
+            @Override
+            public void run() {
+                dropBackground(false);
+            }
+        };
+        private final Runnable mDropAmbientBackground = new Runnable() {
+            @Override
+            public void run() {
+                dropBackground(true);
+            }
+        };
+        private final Runnable mTrimThemeCache = new Runnable() {
+            @Override
+            public void run() {
+                Theme theme = Theme.get(mThemeIndex);
+                mBitmapCache.retain(theme.backgroundKey(mSurfaceWidth, mSurfaceHeight),
+                        theme.ambientKey(mSurfaceWidth, mSurfaceHeight));
+            }
+        };
+
+        /* Ambient frames are composed whole, once per minute, and then just blitted. */
+        private final AmbientFrameCache mAmbientFrame = new AmbientFrameCache(
+                new AmbientFrameCache.Composer() {
+                    @Override
+                    public void composeAmbientFrame(Canvas canvas) {
+                        mCanvasTarget.setCanvas(canvas);
+                        mRenderer.drawStaticLayer(mCanvasTarget);
+                        mRenderer.drawFrame(mCanvasTarget);
+                    }
+                });
 
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                logWakeup(EventLog.SOURCE_TIME_ZONE);
+                mTimeZone = TimeZone.getDefault();
+                publishState();
             }
         };
 
-        /* Handler to update the time once a second in interactive mode. */
-        private final Handler mUpdateTimeHandler = new Handler() {
+        /*
+         * Handler of the render thread: updates the time in interactive mode, at the rate
+         * mScheduler asks for, and draws whatever the main thread asks for.
+         */
+        private final Handler mUpdateTimeHandler = new Handler(mRenderThread.getLooper()) {
             @Override
             public void handleMessage(Message message) {
-
-                invalidate();
-                if (shouldTimerBeRunning()) {
-                    long timeMs = System.currentTimeMillis();
-                    long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                            - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                    mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                if (mReleased) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                switch (message.what) {
+                    case MSG_UPDATE_TIME:
+                        mEventLog.wakeup(EventLog.SOURCE_UPDATE_TIMER, now);
+                        applyFrameState();
+                        mScheduler.onTick();
+                        break;
+                    case MSG_TIME_TICK:
+                        mEventLog.wakeup(EventLog.SOURCE_TIME_TICK, now);
+                        applyFrameState();
+                        /* the time changed; ambient ticks are due on the minute */
+                        if (mState != null && mState.ambient) {
+                            mFrameStats.recordTickLateness(true, now % AMBIENT_UPDATE_RATE_MS);
+                        }
+                        updateFrame();
+                        break;
+                    case MSG_STATE:
+                        if (applyFrameState()) {
+                            updateFrame();
+                        }
+                        break;
+                    case MSG_FRAME:
+                        applyFrameState();
+                        drawFullFrame();
+                        break;
+                    case MSG_WAKEUP:
+                        mEventLog.wakeup(message.arg1, now);
+                        break;
+                    case MSG_MODE:
+                        mEventLog.setMode(message.arg1, now);
+                        break;
+                    case MSG_TRIM:
+                        mResidency.trim(message.arg1);
+                        break;
+                    default:
+                        break;
                 }
+            }
+        };
 
+        /* Tasks the main thread waits for, see runOnRenderThread. */
+        private final Runnable mDrawFullFrame = new Runnable() {
+            @Override
+            public void run() {
+                applyFrameState();
+                drawFullFrame();
+            }
+        };
+        private final Runnable mApplyFrameState = new Runnable() {
+            @Override
+            public void run() {
+                applyFrameState();
             }
         };
 
+        /* Connects mScheduler to the handler, the system clock and this engine. */
+        private final FrameScheduler.Host mSchedulerHost = new FrameScheduler.Host() {
+            @Override
+            public void scheduleTick(long delayMs) {
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+            }
+
+            @Override
+            public void cancelTick() {
+                mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            }
+
+            @Override
+            public void requestFrame() {
+                mRenderer.setShowSeconds(mScheduler.showsSeconds());
+                updateFrame();
+            }
+
+            @Override
+            public boolean shouldTimerBeRunning() {
+                return Engine.this.shouldTimerBeRunning();
+            }
+        };
+
+        /* When onCreate started, for time to first frame. */
+        private long mCreateNs;
+
         @Override
         public void onCreate(SurfaceHolder holder) {
             super.onCreate(holder);
+            mCreateNs = System.nanoTime();
+            mEngines.add(this);
 
             /* Initialize your watch face */
             setWatchFaceStyle(new WatchFaceStyle.Builder(WTMWatchFaceService.this)
@@ -150,52 +526,47 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
             mBackgroundPaint = new Paint();
             mBackgroundPaint.setColor(Color.BLACK);
 
-            mBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.logo_v2);
-            mAmbientBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.ambient_logo_2);
+            mAmbientBackgroundPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            mAmbientBackgroundPaint.setColor(Color.WHITE);
 
+            /*
+             * Background bitmaps are decoded at surface size once it is known, in
+             * onSurfaceChanged.
+             */
             Resources resources = WTMWatchFaceService.this.getResources();
+            mSettings = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            mBitmapThread = new HandlerThread("WTMBitmaps", Process.THREAD_PRIORITY_BACKGROUND);
+            mBitmapThread.start();
+            mBitmapHandler = new Handler(mBitmapThread.getLooper());
+            /* Sized for the display until the surface size is known. */
+            int displayPixels = resources.getDisplayMetrics().widthPixels
+                    * resources.getDisplayMetrics().heightPixels;
+            mBitmapCache = new BitmapCache(themeBudget(displayPixels), mBitmapHandler,
+                    mMainHandler);
 
             mTextPaint = new Paint();
             mTextPaint.setColor(mScreenTextColor);
             mTextPaint.setTypeface(BOLD_TYPEFACE);
             mTextPaint.setAntiAlias(true);
 
-            /* Set defaults for colors */
-            mWatchHandColor = Color.GRAY;
-            mWatchHandHighlightColor = Color.BLUE;
-            mWatchHandShadowColor = Color.LTGRAY;
-
-            /* Set parameters to draw Hour hand */
-            mHourPaint = new Paint();
-            mHourPaint.setColor(mWatchHandColor);
-            mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
-            mHourPaint.setAntiAlias(true);
-            mHourPaint.setStrokeCap(Paint.Cap.ROUND);
-            mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            /* Set parameters to draw Minute hand */
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(mWatchHandColor);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
-            mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            /* Set parameters to draw Second hand */
-            mSecondPaint = new Paint();
-            mSecondPaint.setColor(mWatchHandHighlightColor);
-            mSecondPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mSecondPaint.setAntiAlias(true);
-            mSecondPaint.setStrokeCap(Paint.Cap.ROUND);
-            mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            /* Set parameters to draw hour marks around watch face */
-            mTickAndCirclePaint = new Paint();
-            mTickAndCirclePaint.setColor(mWatchHandColor);
-            mTickAndCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mTickAndCirclePaint.setAntiAlias(true);
-            mTickAndCirclePaint.setStyle(Paint.Style.STROKE);
-            mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            mConfig = new WatchConfig(new WatchConfig.Listener() {
+                @Override
+                public void onConfigChanged(WatchConfig config, int changes) {
+                    applyConfig(config, changes);
+                }
+            });
+            mConfigListener = new WearableConfigListener(WTMWatchFaceService.this, mConfig);
+
+            /* Set defaults for colors; the theme's own arrive with its bitmaps. */
+            resolveWatchHandColors();
+            mPaletteCache = new PaletteCache(WTMWatchFaceService.this);
+
+            /*
+             * Paint templates: strokes and caps from PaintStyle, text sizes from resources.
+             * Colors, anti-aliasing, shadows and alpha are set per mode combination by
+             * PaintSet.Table, see updatePaintSet.
+             */
+            Paint[] templates = mPaintTemplates;
 
             /* Set parameters to draw rectangle */
             rectPaint = new Paint();
@@ -204,47 +575,214 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
             rectPaint.setStyle(Paint.Style.STROKE);
             //rectPaint.setShadowLayer(SHADOW_RADIUS, 2, 2, Color.GRAY);
 
-            /* Set parameters for background for rectangle */
-            rectBkgPaint = new Paint ();
-            rectBkgPaint.setColor(Color.WHITE);
-
             /* Set parameters to draw date */
-            datePaint = new Paint();
-            datePaint.setColor(mWatchHandHighlightColor);
+            Paint datePaint = templates[RenderTarget.PAINT_DATE];
             datePaint.setTextSize(resources.getDimension(R.dimen.date_size));
-            datePaint.setAntiAlias(true);
-            datePaint.setStyle(Paint.Style.FILL);
-            datePaint.setStrokeWidth(2);
 
             /* Set parameters to draw battery level */
-            batteryPaint = new Paint();
-            batteryPaint.setColor(mWatchHandHighlightColor);
+            Paint batteryPaint = templates[RenderTarget.PAINT_BATTERY];
             batteryPaint.setTextSize(resources.getDimensionPixelSize(R.dimen.battery_level));
-            batteryPaint.setAntiAlias(true);
-            batteryPaint.setStyle(Paint.Style.FILL);
-            batteryPaint.setStrokeWidth(2);
-
-            /* Extract colors from background image to improve watch face style. */
-            Palette.generateAsync(
-                    mBackgroundBitmap,
-                    new Palette.PaletteAsyncListener() {
+
+            /* Set parameters to draw the provider fields */
+            Paint fieldPaint = templates[RenderTarget.PAINT_FIELD];
+            fieldPaint.setTextSize(resources.getDimensionPixelSize(R.dimen.field_text_size));
+
+            restoreTheme();
+
+            mTimeZone = TimeZone.getDefault();
+            mTime = new TimeEngine(mTimeZone, Locale.getDefault());
+            mDayNames = new String[7];
+            for (int i = 0; i < mDayNames.length; i++) {
+                mDayNames[i] = mTime.getDayName(Calendar.SUNDAY + i);
+            }
+            mBatteryState = new BatteryState(new BatteryReceiverSource(WTMWatchFaceService.this,
+                    mBatteryChanged));
+            mRenderer = new FaceRenderer(mTime, mFrameBattery);
+            mFieldTextSize = fieldPaint.getTextSize();
+            mRenderer.setTextSizes(datePaint.getTextSize(), batteryPaint.getTextSize(),
+                    mFieldTextSize);
+            mScheduler = new FrameScheduler(new FrameScheduler.Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return System.currentTimeMillis();
+                }
+            }, mSchedulerHost, mFrameBattery, mFrameStats);
+
+            mProviderThread = new HandlerThread("WTMProviders",
+                    Process.THREAD_PRIORITY_BACKGROUND);
+            mProviderThread.start();
+            final Handler providerHandler = new Handler(mProviderThread.getLooper());
+            mProviders = new ProviderRegistry(new ProviderRegistry.Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return System.currentTimeMillis();
+                }
+            }, new ProviderRegistry.Worker() {
+                @Override
+                public void post(Runnable task, long delayMs) {
+                    providerHandler.postDelayed(task, delayMs);
+                }
+
+                @Override
+                public void cancel(Runnable task) {
+                    providerHandler.removeCallbacks(task);
+                }
+            }, new ProviderRegistry.Listener() {
+                @Override
+                public void onSnapshotChanged(ProviderSnapshot snapshot) {
+                    mUpdateTimeHandler.post(mProvidersChanged);
+                }
+            });
+            mSecondTimeZone = new SecondTimeZoneProvider(
+                    TimeZone.getTimeZone(mConfig.getSecondTimeZoneId()), Locale.getDefault());
+            mSecondTimeZoneSlot = mProviders.add(mSecondTimeZone);
+            mNextEvent = new NextEventProvider(WTMWatchFaceService.this,
+                    DateFormat.getTimeInstance(DateFormat.SHORT));
+            mNextEventSlot = mProviders.add(mNextEvent);
+            mStepCount = new StepCountProvider(WTMWatchFaceService.this);
+            int stepCountSlot = mProviders.add(mStepCount);
+            mRenderer.setProviders(mProviders);
+            mRenderer.setFieldSlot(FaceRenderer.FIELD_TOP, mSecondTimeZoneSlot);
+            mRenderer.setFieldSlot(FaceRenderer.FIELD_MIDDLE, stepCountSlot);
+            mRenderer.setFieldSlot(FaceRenderer.FIELD_BOTTOM, mNextEventSlot);
+            addResidents();
+            publishState();
+        }
+
+        /* Registers everything that holds bitmaps with mResidency. */
+        private void addResidents() {
+            mResidency.add("staticLayer", ResidencyManager.MODE_INTERACTIVE, true,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            Bitmap layer = mInteractiveStaticLayer;
+                            return layer != null ? layer.getByteCount() : 0;
+                        }
+
+                        @Override
+                        public void release() {
+                            if (mInteractiveStaticLayer != null) {
+                                mInteractiveStaticLayer.recycle();
+                                mInteractiveStaticLayer = null;
+                            }
+                        }
+                    });
+            mResidency.add("ambientFrame", ResidencyManager.MODE_AMBIENT, true,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            return mAmbientFrame.getByteCount();
+                        }
+
+                        @Override
+                        public void release() {
+                            mAmbientFrame.release();
+                        }
+                    });
+            mResidency.add("handSprites", ResidencyManager.MODE_INTERACTIVE, true,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            return mHandSprites.getByteCount();
+                        }
+
+                        @Override
+                        public void release() {
+                            mHandSprites.release();
+                        }
+                    });
+            mResidency.add("textAtlases", ResidencyManager.MODE_ANY, true,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            return getTextAtlasBytes();
+                        }
+
+                        @Override
+                        public void release() {
+                            releaseTextAtlases();
+                        }
+                    });
+            /* The theme bitmaps belong to the main thread, which is asked to drop them. */
+            mResidency.add("background", ResidencyManager.MODE_INTERACTIVE, false,
+                    new ResidencyManager.Resident() {
                         @Override
-                        public void onGenerated(Palette palette) {
-                            if (palette != null) {
-                                mWatchHandHighlightColor = palette.getVibrantColor(Color.BLUE);
-                                mWatchHandColor = palette.getLightVibrantColor(Color.WHITE);
-                                mWatchHandShadowColor = palette.getDarkMutedColor(Color.BLACK);
-                                updateWatchHandStyle();
+                        public int getByteCount() {
+                            return mState != null ? byteCount(mState.background) : 0;
+                        }
+
+                        @Override
+                        public void release() {
+                            mMainHandler.post(mDropBackground);
+                        }
+                    });
+            mResidency.add("ambientBackground", ResidencyManager.MODE_AMBIENT, false,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            return mState != null ? byteCount(mState.ambientBackground) : 0;
+                        }
+
+                        @Override
+                        public void release() {
+                            mMainHandler.post(mDropAmbientBackground);
+                        }
+                    });
+            mResidency.add("themeCache", ResidencyManager.MODE_ANY, true,
+                    new ResidencyManager.Resident() {
+                        @Override
+                        public int getByteCount() {
+                            /* Other themes; the cache also holds the ones counted above. */
+                            int bytes = mBitmapCache.getByteCount();
+                            if (mState != null) {
+                                bytes -= byteCount(mState.background)
+                                        + byteCount(mState.ambientBackground);
                             }
+                            return Math.max(0, bytes);
+                        }
+
+                        @Override
+                        public void release() {
+                            mMainHandler.post(mTrimThemeCache);
                         }
                     });
+        }
 
-            mCalendar = Calendar.getInstance();
+        private int byteCount(Bitmap bitmap) {
+            return bitmap != null ? bitmap.getByteCount() : 0;
+        }
+
+        /** Asks the render thread to release memory; {@code pressure} is a ResidencyManager one. */
+        void trimMemory(int pressure) {
+            if (pressure > ResidencyManager.PRESSURE_NONE) {
+                mUpdateTimeHandler.obtainMessage(MSG_TRIM, pressure, 0).sendToTarget();
+            }
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.removeCallbacksAndMessages(null);
+            logMode(EventLog.MODE_HIDDEN);
+            mBatteryState.stop();
+            mConfigListener.stop();
+            mProviders.stop();
+            mStepCount.stop();
+            mProviderThread.quit();
+            mMainHandler.removeCallbacksAndMessages(null);
+            mBitmapThread.quit();
+            mBitmapCache.clear();
+            /* After any frame in progress; whatever that frame scheduled is dropped too. */
+            mUpdateTimeHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mReleased = true;
+                    mUpdateTimeHandler.removeCallbacksAndMessages(null);
+                    mHandSprites.release();
+                    mAmbientFrame.release();
+                    releaseTextAtlases();
+                }
+            });
+            mEngines.remove(this);
             super.onDestroy();
         }
 
@@ -254,13 +792,16 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
             /* get device features (burn-in, low-bit ambient) */
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            if (mSurfaceWidth > 0) {
+                loadBackgrounds(mSurfaceWidth, mSurfaceHeight);
+            }
+            publishState();
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            /* the time changed */
-            invalidate();
+            mUpdateTimeHandler.sendEmptyMessage(MSG_TIME_TICK);
         }
 
         @Override
@@ -268,53 +809,164 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
             super.onAmbientModeChanged(inAmbientMode);
             /* the wearable switched between modes */
             mAmbient = inAmbientMode;
+            logMode(currentMode());
+            reloadBackground();
+            publishState();
+        }
 
-            updateWatchHandStyle();
-
-            /* Check and trigger whether or not timer should be running (only in active mode). */
-            updateTimer();
+        /**
+         * Publishes what the engine shows to the render thread as one snapshot. Called on the
+         * main thread after every change that can affect a frame.
+         */
+        private void publishState() {
+            mStateBuilder.setMode(isVisible(), mAmbient)
+                    .setDeviceProperties(mLowBitAmbient, mBurnInProtection)
+                    .setMuteMode(mMuteMode)
+                    .setColors(mWatchHandColor, mWatchHandHighlightColor, mWatchHandShadowColor)
+                    .setBattery(mBatteryState.getLevel(), mBatteryState.isCharging())
+                    .setTimeZone(mTimeZone)
+                    .setFields(mConfig.isBatteryShown(), mConfig.isDateShown())
+                    .setUpdateMode(mConfig.getUpdateMode(), mConfig.getSweepFps())
+                    .setSurfaceSize(mSurfaceWidth, mSurfaceHeight)
+                    .setPeekCardBounds(mPeekCardBounds.left, mPeekCardBounds.top,
+                            mPeekCardBounds.right, mPeekCardBounds.bottom)
+                    .setTheme(mThemeIndex, mThemeApplied, mBackgroundBitmap,
+                            mAmbientBackgroundBitmap);
+            mHandoff.publish(mStateBuilder.build());
         }
 
-        private void updateWatchHandStyle() {
-            if (mAmbient) {
-                mHourPaint.setColor(Color.GRAY);
-                mMinutePaint.setColor(Color.GRAY);
-                mSecondPaint.setColor(Color.GRAY);
-                mTickAndCirclePaint.setColor(Color.GRAY);
-                rectBkgPaint.setColor(Color.TRANSPARENT);
-                datePaint.setColor(Color.WHITE);
-                batteryPaint.setColor(Color.WHITE);
+        /**
+         * Takes the newest snapshot and brings time, renderer, paints and layers in line with
+         * whatever changed in it. Render thread only; returns whether there was a new snapshot.
+         */
+        private boolean applyFrameState() {
+            FrameState state = mHandoff.take();
+            if (state == null || state == mState) {
+                return false;
+            }
+            int changes = state.changesFrom(mState);
+            mState = state;
+
+            if ((changes & FrameState.CHANGED_TIME_ZONE) != 0) {
+                mTime.setTimeZone(state.timeZone);
+            }
+            /* Battery changes need nothing applied; mFrameBattery reads the snapshot. */
+            if ((changes & FrameState.CHANGED_LAYOUT) != 0) {
+                applyLayout(state);
+            }
+            if ((changes & FrameState.CHANGED_FIELDS) != 0) {
+                mRenderer.setShowBattery(state.showBattery);
+                mRenderer.setShowDate(state.showDate);
+            }
+            if ((changes & FrameState.CHANGED_MODE) != 0) {
+                mRenderer.setAmbient(state.ambient);
+                /* Whatever is on the surface may be from before it was hidden. */
+                mRenderer.invalidateFrame();
+                if (state.ambient) {
+                    /* Anything may have changed while interactive, battery level included. */
+                    mAmbientFrame.invalidate();
+                }
+            }
+            if ((changes & (FrameState.CHANGED_MODE | FrameState.CHANGED_STYLE)) != 0) {
+                updatePaintSet();
+            }
+            if ((changes & (FrameState.CHANGED_STYLE | FrameState.CHANGED_BACKGROUND
+                    | FrameState.CHANGED_LAYOUT | FrameState.CHANGED_FIELDS)) != 0) {
+                invalidateStaticLayers();
+            }
+            if ((changes & FrameState.CHANGED_UPDATE_MODE) != 0) {
+                mScheduler.setSweepFps(state.sweepFps);
+                mScheduler.setMode(schedulerModeFor(state.updateMode));
+            }
+            if ((changes & (FrameState.CHANGED_MODE | FrameState.CHANGED_UPDATE_MODE)) != 0) {
+                /* Check and trigger whether or not timer should be running (only when active). */
+                updateTimer();
+            }
+            if ((changes & FrameState.CHANGED_MODE) != 0) {
+                mResidency.setMode(!state.visible ? ResidencyManager.MODE_HIDDEN
+                        : state.ambient ? ResidencyManager.MODE_AMBIENT
+                        : ResidencyManager.MODE_INTERACTIVE);
+            }
+            return true;
+        }
 
-                mHourPaint.setAntiAlias(false);
-                mMinutePaint.setAntiAlias(false);
-                mSecondPaint.setAntiAlias(false);
-                datePaint.setAntiAlias(false);
+        /* Sizes the renderer and the layers for the surface, and places the peek card. */
+        private void applyLayout(FrameState state) {
+            if (state.hasSurface()) {
+                int width = state.surfaceWidth;
+                int height = state.surfaceHeight;
+                mRenderer.setSurfaceSize(width, height);
+                /* The static layer is sized to the surface, so drop it if the size changed. */
+                if (mInteractiveStaticLayer != null
+                        && !hasSize(mInteractiveStaticLayer, width, height)) {
+                    mInteractiveStaticLayer.recycle();
+                    mInteractiveStaticLayer = null;
+                }
+                mAmbientFrame.setSize(width, height);
+            }
+            mRenderer.setPeekCardBounds(state.peekCardLeft, state.peekCardTop,
+                    state.peekCardRight, state.peekCardBottom);
+        }
 
-                mHourPaint.clearShadowLayer();
-                mMinutePaint.clearShadowLayer();
-                mSecondPaint.clearShadowLayer();
-                datePaint.clearShadowLayer();
+        private void setWatchHandColors(PaletteCache.Colors colors) {
+            mPaletteColors = colors;
+            resolveWatchHandColors();
+        }
 
-            } else {
-                mHourPaint.setColor(mWatchHandColor);
-                mMinutePaint.setColor(mWatchHandColor);
-                mSecondPaint.setColor(mWatchHandHighlightColor);
-                mTickAndCirclePaint.setColor(mWatchHandColor);
-                rectBkgPaint.setColor(Color.WHITE);
-                datePaint.setColor(mWatchHandHighlightColor);
-                batteryPaint.setColor(mWatchHandHighlightColor);
+        /* Colors chosen on the phone win over the palette, which wins over the defaults. */
+        private void resolveWatchHandColors() {
+            PaletteCache.Colors palette = mPaletteColors;
+            int handColor = mConfig.getHandColor();
+            int highlightColor = mConfig.getHighlightColor();
+            if (handColor == FaceConfig.COLOR_FROM_PALETTE) {
+                handColor = palette != null ? palette.hand : PaintStyle.DEFAULT_HAND_COLOR;
+            }
+            if (highlightColor == FaceConfig.COLOR_FROM_PALETTE) {
+                highlightColor = palette != null
+                        ? palette.highlight : PaintStyle.DEFAULT_HIGHLIGHT_COLOR;
+            }
+            mWatchHandColor = handColor;
+            mWatchHandHighlightColor = highlightColor;
+            mWatchHandShadowColor = palette != null
+                    ? palette.shadow : PaintStyle.DEFAULT_SHADOW_COLOR;
+        }
 
-                mHourPaint.setAntiAlias(true);
-                mMinutePaint.setAntiAlias(true);
-                mSecondPaint.setAntiAlias(true);
-                mTickAndCirclePaint.setAntiAlias(true);
-                datePaint.setAntiAlias(true);
-                batteryPaint.setAntiAlias(true);
+        /**
+         * Applies a batch of settings from the phone. Only what a group of settings affects is
+         * touched: colors restyle the existing paints, the update mode only reschedules the
+         * timer, and backgrounds are never decoded again. Publishes once for the whole batch.
+         */
+        private void applyConfig(WatchConfig config, int changes) {
+            if ((changes & WatchConfig.CHANGED_COLORS) != 0) {
+                resolveWatchHandColors();
+            }
+            if ((changes & WatchConfig.CHANGED_FIELDS) != 0 && mSecondTimeZone.setTimeZone(
+                    TimeZone.getTimeZone(config.getSecondTimeZoneId()))) {
+                /* The field shows the old zone until the provider thread fetches it. */
+                mProviders.refreshSoon(mSecondTimeZoneSlot);
+            }
+            /* The update mode and fields are read from config when publishing. */
+            publishState();
+        }
 
-                mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+        /**
+         * Picks the paint set for the mode and colors of the current snapshot, building a new
+         * table first if the colors changed. Render thread only.
+         */
+        private void updatePaintSet() {
+            FrameState state = mState;
+            if (mPaintTable == null || !mPaintTable.hasColors(state.handColor,
+                    state.highlightColor, state.shadowColor)) {
+                mPaintTable = new PaintSet.Table(mPaintTemplates, state.handColor,
+                        state.highlightColor, state.shadowColor, SHADOW_RADIUS);
+            }
+            PaintSet paintSet = mPaintTable.get(state.ambient, state.lowBitAmbient,
+                    state.burnInProtection, state.muteMode);
+            if (paintSet != mPaintSet) {
+                mPaintSet = paintSet;
+                /* Hands and labels on screen were drawn with the old paints. */
+                mRenderer.invalidateFrame();
+                mAmbientFrame.invalidate();
             }
         }
 
@@ -322,14 +974,9 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
         public void onInterruptionFilterChanged(int interruptionFilter) {
             super.onInterruptionFilterChanged(interruptionFilter);
             boolean inMuteMode = (interruptionFilter == WatchFaceService.INTERRUPTION_FILTER_NONE);
-
-            /* Dim display in mute mode. */
             if (mMuteMode != inMuteMode) {
                 mMuteMode = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                mSecondPaint.setAlpha(inMuteMode ? 80 : 255);
-                invalidate();
+                publishState();
             }
         }
 
@@ -337,173 +984,515 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
 
-            /*
-             * Find the coordinates of the center point on the screen, and ignore the window
-             * insets, so that, on round watches with a "chin", the watch face is centered on the
-             * entire screen, not just the usable portion.
-             */
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+            mBitmapCache.setMaxBytes(themeBudget(width * height));
+            loadBackgrounds(width, height);
+            publishState();
+        }
 
-            /*
-             * Calculate lengths of different hands based on watch screen size.
-             */
-            mSecondHandLength = (float) (mCenterX * 0.825);
-            mMinuteHandLength = (float) (mCenterX * 0.75);
-            mHourHandLength = (float) (mCenterX * 0.52);
+        /**
+         * Not passed on: the base class would draw right here, on the main thread. The caller
+         * expects the surface to be drawn on return, so this waits for the render thread.
+         */
+        @Override
+        public void onSurfaceRedrawNeeded(SurfaceHolder holder) {
+            runOnRenderThread(mDrawFullFrame);
+        }
+
+        @Override
+        public void onSurfaceDestroyed(SurfaceHolder holder) {
+            mSurfaceWidth = 0;
+            mSurfaceHeight = 0;
+            publishState();
+            /* The render thread must be done with the surface before it goes away. */
+            runOnRenderThread(mApplyFrameState);
+            super.onSurfaceDestroyed(holder);
+        }
+
+        /**
+         * Frames are drawn on the render thread, so instead of drawing on the main thread this
+         * asks it for a whole frame. The base class calls this too, e.g. when the surface was
+         * created or changed, as does {@link #postInvalidate}.
+         */
+        @Override
+        public void invalidate() {
+            /* Null while the base class is being constructed. */
+            if (mUpdateTimeHandler != null && !mUpdateTimeHandler.hasMessages(MSG_FRAME)) {
+                mUpdateTimeHandler.sendEmptyMessage(MSG_FRAME);
+            }
+        }
 
+        /** Runs {@code task} on the render thread and waits for it, up to RENDER_WAIT_MS. */
+        private void runOnRenderThread(final Runnable task) {
+            final CountDownLatch done = new CountDownLatch(1);
+            mUpdateTimeHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mReleased) {
+                        task.run();
+                    }
+                    done.countDown();
+                }
+            });
+            try {
+                if (!done.await(RENDER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, "Render thread busy, not waiting for it any longer");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-            /* Scale loaded background image (more efficient) if surface dimensions change. */
-            float scaleWidth = ((float) width) / (float) mBackgroundBitmap.getWidth();
-            float scaleHeight = ((float) height) / (float) mBackgroundBitmap.getHeight();
+        /**
+         * Bytes for {@link #CACHED_THEMES} themes of {@code pixels} each: an RGB_565 background
+         * and an ALPHA_8 ambient mask. The heap stays bounded however many themes there are.
+         */
+        private int themeBudget(int pixels) {
+            return CACHED_THEMES * pixels * 3;
+        }
 
-            mBackgroundBitmap = Bitmap.createScaledBitmap(mBackgroundBitmap,
-                    (int) (mBackgroundBitmap.getWidth() * scaleWidth),
-                    (int) (mBackgroundBitmap.getHeight() * scaleHeight), true);
+        /**
+         * Reads the saved theme and its colors on the bitmap thread, since the first read of
+         * shared preferences waits for the file. Frames drawn until then show the placeholder.
+         */
+        private void restoreTheme() {
+            final Resources resources = WTMWatchFaceService.this.getResources();
+            mBitmapHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    final int themeIndex = mSettings.getInt(PREF_THEME, 0);
+                    final PaletteCache.Colors colors = mPaletteCache.get(
+                            PaletteCache.keyFor(resources, Theme.get(themeIndex).backgroundResId));
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            mThemeRestored = true;
+                            showTheme(themeIndex, colors);
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Starts showing a theme with its stored {@code colors}, if there are any; otherwise
+         * they are extracted and follow once Palette is done.
+         */
+        private void showTheme(int themeIndex, PaletteCache.Colors colors) {
+            mThemeIndex = themeIndex;
+            mThemeApplied = false;
+            mPendingColors = colors;
+            if (colors == null) {
+                extractPalette(themeIndex);
+            }
+            if (mSurfaceWidth > 0) {
+                loadBackgrounds(mSurfaceWidth, mSurfaceHeight);
+            }
+            /* Until its bitmaps arrive, the placeholder has the new theme's color. */
+            publishState();
+        }
+
+        /**
+         * Shows the current theme's backgrounds at surface size, from the cache or, if they
+         * aren't decoded yet, once the bitmap thread delivers them. The bitmaps on screen stay
+         * until then. Never decodes on this thread.
+         */
+        private void loadBackgrounds(final int width, final int height) {
+            if (!mThemeRestored) {
+                /* restoreTheme() calls back once it knows which theme to load. */
+                return;
+            }
+            final int themeIndex = mThemeIndex;
+            mPendingBackground = null;
+            mPendingAmbientBackground = null;
+            loadTheme(themeIndex, width, height, new BitmapCache.Callback() {
+                @Override
+                public void onBitmapLoaded(String key, Bitmap bitmap) {
+                    /* Skip bitmaps for a theme or size that was replaced while decoding. */
+                    if (themeIndex != mThemeIndex
+                            || !hasSize(bitmap, mSurfaceWidth, mSurfaceHeight)) {
+                        return;
+                    }
+                    if (bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+                        mPendingAmbientBackground = bitmap;
+                    } else {
+                        mPendingBackground = bitmap;
+                    }
+                    if (mPendingBackground != null && (mPendingAmbientBackground != null
+                            || !needsAmbientBackground(themeIndex))) {
+                        applyPendingTheme();
+                    }
+                }
+            });
 
             /*
              * Create a gray version of the image only if it will look nice on the device in
              * ambient mode. That means we don't want devices that support burn-in
              * protection (slight movements in pixels, not great for images going all the way to
              * edges) and low ambient mode (degrades image quality).
-             *
-             * Also, if your watch face will know about all images ahead of time (users aren't
-             * selecting their own photos for the watch face), it will be more
-             * efficient to create a black/white version (png, etc.) and load that when you need it.
              */
-            if (!mBurnInProtection && !mLowBitAmbient) {
-                mAmbientBackgroundBitmap = Bitmap.createScaledBitmap(mAmbientBackgroundBitmap,
-                        (int) (mAmbientBackgroundBitmap.getWidth() * scaleWidth),
-                        (int) (mAmbientBackgroundBitmap.getHeight() * scaleHeight), true);
+            if (!needsAmbientBackground(themeIndex)) {
+                mAmbientBackgroundBitmap = null;
             }
         }
 
-        @Override
-        public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
+        /** Swaps in the pending bitmaps and colors of the current theme in one go. */
+        private void applyPendingTheme() {
+            mBackgroundBitmap = mPendingBackground;
+            mAmbientBackgroundBitmap = mPendingAmbientBackground;
+            mPendingBackground = null;
+            mPendingAmbientBackground = null;
+            if (mPendingColors != null) {
+                setWatchHandColors(mPendingColors);
+                mPendingColors = null;
+            }
+            mThemeApplied = true;
+            publishState();
+        }
 
-            /* draw your watch face */
-            if (mAmbient && (mLowBitAmbient || mBurnInProtection)) {
-                canvas.drawColor(Color.BLACK);
-            } else if (mAmbient) {
-                canvas.drawBitmap(mAmbientBackgroundBitmap, 0, 0, mBackgroundPaint);
+        /** Starts decoding a theme's backgrounds at surface size; {@code callback} may be null. */
+        private void loadTheme(int themeIndex, int width, int height,
+                BitmapCache.Callback callback) {
+            loadBackground(themeIndex, width, height, callback);
+            if (needsAmbientBackground(themeIndex)) {
+                loadAmbientBackground(themeIndex, width, height, callback);
+            }
+        }
+
+        private void loadBackground(int themeIndex, final int width, final int height,
+                BitmapCache.Callback callback) {
+            final Resources resources = WTMWatchFaceService.this.getResources();
+            final Theme theme = Theme.get(themeIndex);
+            mBitmapCache.load(theme.backgroundKey(width, height), new BitmapCache.Decoder() {
+                @Override
+                public Bitmap decode() {
+                    /* Backgrounds are flattened to RGB_565, half the memory of ARGB_8888. */
+                    return BitmapLoader.decodeOpaque(resources, theme.backgroundResId,
+                            width, height, theme.backdropColor);
+                }
+            }, callback);
+        }
+
+        private void loadAmbientBackground(int themeIndex, final int width, final int height,
+                BitmapCache.Callback callback) {
+            final Resources resources = WTMWatchFaceService.this.getResources();
+            final Theme theme = Theme.get(themeIndex);
+            mBitmapCache.load(theme.ambientKey(width, height), new BitmapCache.Decoder() {
+                @Override
+                public Bitmap decode() {
+                    return BitmapLoader.decodeLuminanceMask(resources, theme.ambientResId,
+                            width, height);
+                }
+            }, callback);
+        }
+
+        /**
+         * Drops the current theme's background for a mode that is not on screen, from the
+         * fields and the cache, so that it can be collected. Asked for by mResidency under
+         * memory pressure; reloadBackground brings it back.
+         */
+        private void dropBackground(boolean ambientVariant) {
+            boolean onScreen = isVisible() && mAmbient == ambientVariant;
+            if (onScreen || !mThemeApplied) {
+                /* Back on screen meanwhile, or a theme is being swapped in. */
+                return;
+            }
+            Theme theme = Theme.get(mThemeIndex);
+            if (ambientVariant) {
+                mBitmapCache.remove(theme.ambientKey(mSurfaceWidth, mSurfaceHeight));
+                mAmbientBackgroundBitmap = null;
             } else {
-                canvas.drawBitmap(mBackgroundBitmap, 0, 0, mBackgroundPaint);
+                mBitmapCache.remove(theme.backgroundKey(mSurfaceWidth, mSurfaceHeight));
+                mBackgroundBitmap = null;
             }
+            publishState();
+        }
 
-            /*
-             * Draw ticks. Usually you will want to bake this directly into the photo, but in
-             * cases where you want to allow users to select their own photos, this dynamically
-             * creates them on top of the photo.
-             */
-            float innerTickRadius = mCenterX - 10;
-            float outerTickRadius = mCenterX;
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 12);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
+        /**
+         * Decodes the background of the mode now on screen again if it was dropped; until it
+         * is back, frames show the theme's backdrop color.
+         */
+        private void reloadBackground() {
+            if (!mThemeApplied || mSurfaceWidth == 0 || !isVisible()) {
+                return;
             }
+            final int themeIndex = mThemeIndex;
+            BitmapCache.Callback callback = new BitmapCache.Callback() {
+                @Override
+                public void onBitmapLoaded(String key, Bitmap bitmap) {
+                    if (themeIndex != mThemeIndex || !mThemeApplied
+                            || !hasSize(bitmap, mSurfaceWidth, mSurfaceHeight)) {
+                        return;
+                    }
+                    if (bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+                        mAmbientBackgroundBitmap = bitmap;
+                    } else {
+                        mBackgroundBitmap = bitmap;
+                    }
+                    publishState();
+                }
+            };
+            if (!mAmbient && mBackgroundBitmap == null) {
+                loadBackground(themeIndex, mSurfaceWidth, mSurfaceHeight, callback);
+            } else if (mAmbient && mAmbientBackgroundBitmap == null
+                    && needsAmbientBackground(themeIndex)) {
+                loadAmbientBackground(themeIndex, mSurfaceWidth, mSurfaceHeight, callback);
+            }
+        }
 
-            /*
-             * These calculations reflect the rotation in degrees per unit of time, e.g.,
-             * 360 / 60 = 6 and 360 / 12 = 30.
-             */
-            final float seconds =
-                    (mCalendar.get(Calendar.SECOND) + mCalendar.get(Calendar.MILLISECOND) / 1000f);
-            final float secondsRotation = seconds * 6f;
+        private boolean needsAmbientBackground(int themeIndex) {
+            return Theme.get(themeIndex).hasAmbientBackground() && !mBurnInProtection
+                    && !mLowBitAmbient;
+        }
 
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
+        /**
+         * Extracts the hand colors of a theme on the bitmap thread and applies them if that
+         * theme is still shown when they are ready.
+         */
+        private void extractPalette(final int themeIndex) {
+            final Resources resources = WTMWatchFaceService.this.getResources();
+            final int resId = Theme.get(themeIndex).backgroundResId;
+            mBitmapHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    final PaletteCache.Colors colors = mPaletteCache.extract(resources, resId);
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (colors == null || themeIndex != mThemeIndex) {
+                                return;
+                            }
+                            if (!mThemeApplied) {
+                                /* Swapped in along with the bitmaps. */
+                                mPendingColors = colors;
+                                return;
+                            }
+                            setWatchHandColors(colors);
+                            publishState();
+                        }
+                    });
+                }
+            });
+        }
 
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
+        /**
+         * Switches to another theme and saves the choice. The theme after it is prefetched, so
+         * cycling through themes usually finds the next one ready.
+         */
+        private void setTheme(int themeIndex) {
+            mSettings.edit().putInt(PREF_THEME, themeIndex).apply();
 
-            /* Display Date */
-            String formattedDayOfMonth = new SimpleDateFormat("EEE").format(mCalendar.getTime());
-            String dayText = String.valueOf(formattedDayOfMonth);
-            float dateXOffset = computeXOffset(dayText, datePaint, bounds);
+            Resources resources = WTMWatchFaceService.this.getResources();
+            showTheme(themeIndex, mPaletteCache.get(
+                    PaletteCache.keyFor(resources, Theme.get(themeIndex).backgroundResId)));
+
+            if (mSurfaceWidth > 0) {
+                int next = Theme.next(themeIndex);
+                loadTheme(next, mSurfaceWidth, mSurfaceHeight, null);
+                if (mPaletteCache.get(PaletteCache.keyFor(resources,
+                        Theme.get(next).backgroundResId)) == null) {
+                    extractPalette(next);
+                }
+            }
+        }
 
-            String formattedDateOfMonth = new SimpleDateFormat("dd").format(mCalendar.getTime());
-            String dateText = String.valueOf(formattedDateOfMonth);
+        @Override
+        public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            super.onTapCommand(tapType, x, y, eventTime);
+            if (tapType != TAP_TYPE_TAP || mAmbient) {
+                return;
+            }
+            if (mNextEvent.isShowingHint() && FaceRenderer.isInField(FaceRenderer.FIELD_BOTTOM,
+                    x, y, mSurfaceWidth, mSurfaceHeight, mFieldTextSize)) {
+                startActivity(new Intent(WTMWatchFaceService.this,
+                        CalendarPermissionActivity.class)
+                        .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+            } else if (mThemeRestored) {
+                setTheme(Theme.next(mThemeIndex));
+            }
+        }
 
-            /* display rectangle to hold day and date */
-            canvas.drawRect(dateXOffset - 21f, mCenterY + 4f, dateXOffset + 28f, mCenterY - 23f, rectBkgPaint);
-            canvas.drawText(dayText, dateXOffset - 15f, mCenterY - 2f, datePaint);
-            canvas.drawText(dateText, dateXOffset - 12f, mCenterY + 19f, datePaint);
+        private boolean hasSize(Bitmap bitmap, int width, int height) {
+            return bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height;
+        }
 
+        /**
+         * Marks the static layer and the cached ambient frame as stale. Both are redrawn lazily
+         * the next time their mode is on screen, since the paints only hold one mode's style.
+         */
+        private void invalidateStaticLayers() {
+            mInteractiveStaticLayerDirty = true;
+            mAmbientFrame.invalidate();
+        }
 
-            /* Get battery status level */
-            IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-            Intent batteryStatus = WTMWatchFaceService.this.registerReceiver(null, ifilter);
-            batteryLevel = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        /**
+         * Redraws the interactive static layer if it is stale and interactive mode is on,
+         * allocating it first for a new surface size or after it was released.
+         */
+        private void updateStaticLayer() {
+            if (mState.ambient) {
+                return;
+            }
+            if (mInteractiveStaticLayer == null) {
+                mInteractiveStaticLayer = Bitmap.createBitmap(mState.surfaceWidth,
+                        mState.surfaceHeight, Bitmap.Config.ARGB_8888);
+                mInteractiveStaticLayerDirty = true;
+            }
+            if (mInteractiveStaticLayerDirty) {
+                drawStaticLayer(new Canvas(mInteractiveStaticLayer));
+                mInteractiveStaticLayerDirty = false;
+            }
+        }
 
-            /* Display Battery Level */
-            String batteryLevelPercentage = String.valueOf(batteryLevel)+"%";
-            float batteryXOffset = computeBatteryXOffset(batteryLevelPercentage, batteryPaint, bounds);
-            canvas.drawText(batteryLevelPercentage, batteryXOffset, mCenterY, batteryPaint);
+        /** Draws everything that doesn't change during the day: background, ticks and date box. */
+        private void drawStaticLayer(Canvas canvas) {
+            mTime.setTime(System.currentTimeMillis());
+            mStaticLayerDay = mTime.getLocalDay();
 
+            mCanvasTarget.setCanvas(canvas);
+            mRenderer.drawStaticLayer(mCanvasTarget);
+        }
 
-            /*
-             * Save the canvas state before we can begin to rotate it.
-             */
-            canvas.save();
-
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - mHourHandLength,
-                    mHourPaint);
-
-            canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(
-                    mCenterX,
-                    mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mCenterX,
-                    mCenterY - mMinuteHandLength,
-                    mMinutePaint);
+        /**
+         * Brings the screen up to date with the current time, doing as little as possible:
+         * nothing if the frame would look like the one showing, a redraw of just the damaged
+         * region if only hands or labels changed, and a whole frame otherwise.
+         */
+        private void updateFrame() {
+            if (mState == null || !mState.hasSurface()) {
+                return;
+            }
+            if (!mState.visible) {
+                drawFullFrame();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            mTime.setTime(now);
+
+            if (mState.ambient) {
+                /* Ambient frames are composed whole; damage only tells whether to recompose. */
+                if (mRenderer.computeDamage() != FaceRenderer.DAMAGE_NONE) {
+                    mAmbientFrame.invalidate();
+                } else if (mAmbientFrame.isShowing(now, burnInShiftX(now), burnInShiftY(now))) {
+                    mFrameStats.recordSkippedFrame();
+                    return;
+                }
+                drawFullFrame();
+                return;
+            }
 
-            /*
-             * Ensure the "seconds" hand is drawn only when we are in interactive mode.
-             * Otherwise, we only update the watch face once a minute.
-             */
-            if (!mAmbient) {
-                canvas.rotate(secondsRotation - minutesRotation, mCenterX, mCenterY);
-                canvas.drawLine(
-                        mCenterX,
-                        mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS,
-                        mCenterX,
-                        mCenterY - mSecondHandLength,
-                        mSecondPaint);
+            /* Date box is in the static layer, so it has to be redrawn when the day changes. */
+            if (mStaticLayerDay != mTime.getLocalDay()) {
+                invalidateStaticLayers();
+            }
+            updateStaticLayer();
+            switch (mRenderer.computeDamage()) {
+                case FaceRenderer.DAMAGE_NONE:
+                    mFrameStats.recordSkippedFrame();
+                    break;
+                case FaceRenderer.DAMAGE_PARTIAL:
+                    drawDamage(now);
+                    break;
+                default:
+                    drawFullFrame();
+                    break;
             }
-            canvas.drawCircle(
-                    mCenterX,
-                    mCenterY,
-                    CENTER_GAP_AND_CIRCLE_RADIUS,
-                    mTickAndCirclePaint);
+        }
 
-            /* Restore the canvas' original orientation. */
-            canvas.restore();
+        /**
+         * Draws the damage found by the renderer straight to the surface, locked for just that
+         * region. The rest of the surface keeps the previous frame.
+         */
+        private void drawDamage(long now) {
+            long startNs = System.nanoTime();
+            mDirty.set(mRenderer.getDamageLeft(), mRenderer.getDamageTop(),
+                    mRenderer.getDamageRight(), mRenderer.getDamageBottom());
+            SurfaceHolder holder = getSurfaceHolder();
+            /* The surface may grow the region, e.g. if it can't copy the rest back. */
+            Canvas canvas = holder.lockCanvas(mDirty);
+            if (canvas == null) {
+                return;
+            }
+            try {
+                mCanvasTarget.setCanvas(canvas);
+                mRenderer.drawDamage(mCanvasTarget, mDirty.left, mDirty.top, mDirty.right,
+                        mDirty.bottom);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            mFrameStats.recordFill((long) mDirty.width() * mDirty.height(), true);
+            recordFrame(startNs, now);
+        }
+
+        /**
+         * Draws a whole frame for the current snapshot to the surface, black while the face is
+         * hidden, the way the base class would on the main thread. Render thread only.
+         */
+        private void drawFullFrame() {
+            if (mState == null || !mState.hasSurface()) {
+                return;
+            }
+            SurfaceHolder holder = getSurfaceHolder();
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            long startNs = System.nanoTime();
+            long now = System.currentTimeMillis();
+            try {
+                if (!mState.visible) {
+                    canvas.drawColor(Color.BLACK);
+                    return;
+                }
+                drawFrame(canvas, now);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            mFrameStats.recordFill((long) canvas.getWidth() * canvas.getHeight(), false);
+            mFrameStats.recordStartupFrame((System.nanoTime() - mCreateNs) / 1000,
+                    mState.themeApplied);
+            recordFrame(startNs, now);
+        }
+
+        private void drawFrame(Canvas canvas, long now) {
+            mTime.setTime(now);
 
-            /* Draw rectangle behind peek card in ambient mode to improve readability. */
-            if (mAmbient) {
-                canvas.drawRect(mPeekCardBounds, mBackgroundPaint);
+            if (mState.ambient) {
+                /* Composed on the first wake of each minute; every other wake is one blit. */
+                mAmbientFrame.draw(canvas, now, burnInShiftX(now), burnInShiftY(now));
+            } else {
+                /* Date box is in the static layer, so it has to be redrawn when the day changes. */
+                if (mStaticLayerDay != mTime.getLocalDay()) {
+                    invalidateStaticLayers();
+                }
+                updateStaticLayer();
+
+                /* draw your watch face: nothing on this path may allocate */
+                mCanvasTarget.setCanvas(canvas);
+                mRenderer.drawFrame(mCanvasTarget);
+            }
+        }
+
+        /* Draw time for the stats, the event log and the scheduler's frame budget. */
+        private void recordFrame(long startNs, long now) {
+            long durationNs = System.nanoTime() - startNs;
+            boolean ambient = mState.ambient;
+            mFrameStats.recordDraw(ambient, durationNs / 1000);
+            mEventLog.draw(ambient, now, durationNs / 1000);
+            if (!ambient) {
+                mScheduler.onFrameDrawn(durationNs);
             }
         }
 
-        private float computeXOffset(String text, Paint paint, Rect watchBounds) {
-            float centerX = watchBounds.exactCenterX();
-            return centerX + (mCenterX * 0.75f);
+        private int burnInShiftX(long now) {
+            return mState.burnInProtection
+                    ? BurnInShift.getOffsetX(now / AMBIENT_UPDATE_RATE_MS) : 0;
         }
 
-        private float computeBatteryXOffset(String text, Paint paint, Rect watchBounds) {
-            float centerX = watchBounds.exactCenterX();
-            return centerX - (mCenterX * 0.9f);
+        private int burnInShiftY(long now) {
+            return mState.burnInProtection
+                    ? BurnInShift.getOffsetY(now / AMBIENT_UPDATE_RATE_MS) : 0;
         }
 
         @Override
@@ -512,15 +1501,30 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
             /* the watch face became visible or invisible */
             if (visible) {
                 registerReceiver();
+                mBatteryState.start();
+                mConfigListener.start();
+                mProviders.start();
+                mStepCount.start();
+                if (mNextEvent.isShowingHint() && mNextEvent.hasPermission()) {
+                    /* Granted while the permission activity covered the face. */
+                    mProviders.refreshSoon(mNextEventSlot);
+                }
                 /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                TimeZone timeZone = TimeZone.getDefault();
+                if (!timeZone.getID().equals(mTimeZone.getID())) {
+                    mTimeZone = timeZone;
+                }
             } else {
                 unregisterReceiver();
+                mBatteryState.stop();
+                mConfigListener.stop();
+                mProviders.stop();
+                mStepCount.stop();
             }
 
-            /* Check and trigger whether or not timer should be running (only in active mode). */
-            updateTimer();
+            logMode(currentMode());
+            reloadBackground();
+            publishState();
         }
 
         @Override
@@ -544,7 +1548,9 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
         @Override
         public void onPeekCardPositionUpdate(Rect rect) {
             super.onPeekCardPositionUpdate(rect);
+            /* What is culled under the card is baked into both static layers. */
             mPeekCardBounds.set(rect);
+            publishState();
         }
 
         private void registerReceiver() {
@@ -566,18 +1572,183 @@ public class WTMWatchFaceService extends CanvasWatchFaceService {
          * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
          */
         private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
-            }
+            mScheduler.update();
         }
 
         /**
          * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer
-         * should only run in active mode.
+         * should only run in active mode. Asked on the render thread, so it goes by the snapshot.
          */
         private boolean shouldTimerBeRunning() {
-            return isVisible() && !mAmbient;
+            return mState != null && mState.visible && !mState.ambient;
+        }
+
+        private int currentMode() {
+            if (!isVisible()) {
+                return EventLog.MODE_HIDDEN;
+            }
+            return mAmbient ? EventLog.MODE_AMBIENT : EventLog.MODE_INTERACTIVE;
+        }
+
+        /* Only the real face logs modes; the picker preview would interleave its own. */
+        private void logMode(int mode) {
+            if (!isPreview()) {
+                mUpdateTimeHandler.obtainMessage(MSG_MODE, mode, 0).sendToTarget();
+            }
+        }
+
+        /* The event log is written on the render thread, so main thread wakeups go there. */
+        private void logWakeup(int source) {
+            mUpdateTimeHandler.obtainMessage(MSG_WAKEUP, source, 0).sendToTarget();
+        }
+
+        private void releaseTextAtlases() {
+            for (int i = 0; i < mTextAtlases.length; i++) {
+                if (mTextAtlases[i] != null) {
+                    mTextAtlases[i].release();
+                    mTextAtlases[i] = null;
+                }
+            }
+        }
+
+        private int getTextAtlasBytes() {
+            int bytes = 0;
+            for (TextAtlas atlas : mTextAtlases) {
+                if (atlas != null) {
+                    bytes += atlas.getByteCount();
+                }
+            }
+            return bytes;
+        }
+
+        void dump(PrintWriter writer, String prefix) {
+            writer.println(prefix + "ambient=" + mAmbient + " lowBit=" + mLowBitAmbient
+                    + " burnIn=" + mBurnInProtection + " mute=" + mMuteMode);
+            writer.println(prefix + "scheduler: mode=" + mScheduler.getMode()
+                    + " fps=" + mScheduler.getEffectiveFps()
+                    + " intervalMs=" + mScheduler.getIntervalMs()
+                    + " stepDowns=" + mScheduler.getStepDownCount());
+            writer.println(prefix + "providers: wakeups=" + mProviders.getWakeupCount()
+                    + " fetches=" + mProviders.getFetchCount()
+                    + " failures=" + mProviders.getFailureCount());
+            writer.println(prefix + "ambientFrame: composes=" + mAmbientFrame.getComposeCount()
+                    + " bytes=" + mAmbientFrame.getByteCount());
+            writer.println(prefix + "textAtlases: bytes=" + getTextAtlasBytes());
+            mResidency.dump(writer, prefix);
+            writer.println(prefix + "frameState: published=" + mHandoff.getPublishCount()
+                    + " wakes=" + mHandoff.getWakeCount());
+            writer.println(prefix + "theme: " + Theme.get(mThemeIndex).name
+                    + " bitmapCache: bytes=" + mBitmapCache.getByteCount()
+                    + "/" + mBitmapCache.getMaxBytes()
+                    + " hits=" + mBitmapCache.getHitCount()
+                    + " misses=" + mBitmapCache.getMissCount()
+                    + " decodes=" + mBitmapCache.getDecodeCount()
+                    + " evictions=" + mBitmapCache.getEvictionCount());
+            mFrameStats.dump(writer, prefix);
+        }
+
+        /** {@link RenderTarget} that draws with this engine's paints and bitmaps. */
+        private class CanvasTarget implements RenderTarget {
+            private Canvas mCanvas;
+            /* Part of the surface not under the peek card, as source and destination of blits. */
+            private final Rect mVisible = new Rect();
+
+            void setCanvas(Canvas canvas) {
+                mCanvas = canvas;
+            }
+
+            private Paint paint(int paint) {
+                return mPaintSet.get(paint);
+            }
+
+            @Override
+            public void drawBackground(boolean ambient, int visibleLeft, int visibleTop,
+                    int visibleRight, int visibleBottom) {
+                mVisible.set(visibleLeft, visibleTop, visibleRight, visibleBottom);
+                FrameState state = mState;
+                if (ambient) {
+                    mCanvas.drawColor(Color.BLACK);
+                    if (!state.burnInProtection && !state.lowBitAmbient
+                            && state.ambientBackground != null) {
+                        mCanvas.drawBitmap(state.ambientBackground, mVisible, mVisible,
+                                mAmbientBackgroundPaint);
+                    }
+                } else if (state.background != null) {
+                    mCanvas.drawBitmap(state.background, mVisible, mVisible, mBackgroundPaint);
+                } else {
+                    /* Placeholder while the first background decodes. */
+                    mCanvas.save();
+                    mCanvas.clipRect(mVisible);
+                    mCanvas.drawColor(Theme.get(state.themeIndex).backdropColor);
+                    mCanvas.restore();
+                }
+            }
+
+            @Override
+            public void drawStaticLayer(boolean ambient, int visibleLeft, int visibleTop,
+                    int visibleRight, int visibleBottom) {
+                /* Ambient frames are composed whole, static layer first; see mAmbientFrame. */
+                if (!ambient) {
+                    mVisible.set(visibleLeft, visibleTop, visibleRight, visibleBottom);
+                    mCanvas.drawBitmap(mInteractiveStaticLayer, mVisible, mVisible, null);
+                }
+            }
+
+            @Override
+            public void drawLine(float startX, float startY, float stopX, float stopY, int paint) {
+                mCanvas.drawLine(startX, startY, stopX, stopY, paint(paint));
+            }
+
+            @Override
+            public void drawRect(float left, float top, float right, float bottom, int paint) {
+                mCanvas.drawRect(left, top, right, bottom, paint(paint));
+            }
+
+            @Override
+            public void drawCircle(float centerX, float centerY, float radius, int paint) {
+                mCanvas.drawCircle(centerX, centerY, radius, paint(paint));
+            }
+
+            @Override
+            public void drawText(String text, float x, float y, int paint) {
+                if (paint == PAINT_DATE || paint == PAINT_BATTERY) {
+                    if (textAtlas(paint).draw(mCanvas, text, x, y, paint(paint))) {
+                        return;
+                    }
+                }
+                /* Anything else, like provider fields, is drawn as plain text. */
+                mCanvas.drawText(text, x, y, paint(paint));
+            }
+
+            private TextAtlas textAtlas(int paint) {
+                int index = (paint == PAINT_DATE ? 0 : 2) + (mState.ambient ? 1 : 0);
+                TextAtlas atlas = mTextAtlases[index];
+                Paint textPaint = paint(paint);
+                if (atlas == null || !atlas.matches(textPaint)) {
+                    if (atlas != null) {
+                        atlas.release();
+                    }
+                    /* Only the date shows day names; the battery label is digits and "%". */
+                    atlas = new TextAtlas(textPaint,
+                            paint == PAINT_DATE ? mDayNames : new String[0]);
+                    mTextAtlases[index] = atlas;
+                }
+                return atlas;
+            }
+
+            @Override
+            public void drawHand(int paint, int step, float centerX, float centerY,
+                    float startRadius, float endRadius) {
+                float sin = DialGeometry.sin(step);
+                float cos = DialGeometry.cos(step);
+                if (!mState.ambient) {
+                    mHandSprites.draw(mCanvas, paint, paint(paint), sin, cos, centerX, centerY,
+                            startRadius, endRadius);
+                    return;
+                }
+                mCanvas.drawLine(centerX + sin * startRadius, centerY - cos * startRadius,
+                        centerX + sin * endRadius, centerY - cos * endRadius, paint(paint));
+            }
         }
     }
 }
\ No newline at end of file
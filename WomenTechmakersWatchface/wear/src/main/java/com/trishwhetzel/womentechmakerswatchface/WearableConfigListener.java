@@ -0,0 +1,92 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * Feeds {@link WatchConfig} from the Wearable Data Layer while the face is visible: the items
+ * already there when connecting, then changes as the phone writes them, with one
+ * {@link WatchConfig#commit} per batch. Callbacks arrive on the main thread, like the engine's.
+ */
+final class WearableConfigListener implements DataApi.DataListener,
+        GoogleApiClient.ConnectionCallbacks {
+
+    private final GoogleApiClient mClient;
+    private final WatchConfig mConfig;
+    private boolean mStarted;
+
+    WearableConfigListener(Context context, WatchConfig config) {
+        mConfig = config;
+        mClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .addConnectionCallbacks(this)
+                .build();
+    }
+
+    void start() {
+        if (!mStarted) {
+            mStarted = true;
+            mClient.connect();
+        }
+    }
+
+    void stop() {
+        if (mStarted) {
+            mStarted = false;
+            if (mClient.isConnected()) {
+                Wearable.DataApi.removeListener(mClient, this);
+            }
+            mClient.disconnect();
+        }
+    }
+
+    @Override
+    public void onConnected(Bundle connectionHint) {
+        Wearable.DataApi.addListener(mClient, this);
+        /* Catch up on anything written while we weren't listening. */
+        Wearable.DataApi.getDataItems(mClient).setResultCallback(
+                new ResultCallback<DataItemBuffer>() {
+                    @Override
+                    public void onResult(DataItemBuffer items) {
+                        try {
+                            if (items.getStatus().isSuccess()) {
+                                for (DataItem item : items) {
+                                    mConfig.update(item.getUri().getPath(), item.getData());
+                                }
+                                mConfig.commit();
+                            }
+                        } finally {
+                            items.release();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        /* The client reconnects by itself; items missed meanwhile come with onConnected. */
+    }
+
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        for (DataEvent event : dataEvents) {
+            DataItem item = event.getDataItem();
+            String path = item.getUri().getPath();
+            if (event.getType() == DataEvent.TYPE_DELETED) {
+                mConfig.remove(path);
+            } else {
+                mConfig.update(path, item.getData());
+            }
+        }
+        mConfig.commit();
+    }
+}
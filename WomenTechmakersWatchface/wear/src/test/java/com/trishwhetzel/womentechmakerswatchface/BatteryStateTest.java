@@ -0,0 +1,107 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BatteryStateTest {
+
+    private FakeSource mSource;
+    private BatteryState mState;
+
+    @Before
+    public void setUp() {
+        mSource = new FakeSource();
+        mState = new BatteryState(mSource);
+    }
+
+    @Test
+    public void levelIsUnknownUntilFirstBroadcast() {
+        mState.start();
+        assertEquals(BatteryState.UNKNOWN_LEVEL, mState.getLevel());
+        assertEquals(0, mState.getLastUpdateMs());
+    }
+
+    @Test
+    public void broadcastUpdatesCachedFields() {
+        mState.start();
+        mSource.send(57, 100, true, 1000L);
+
+        assertEquals(57, mState.getLevel());
+        assertTrue(mState.isCharging());
+        assertEquals(1000L, mState.getLastUpdateMs());
+
+        mSource.send(56, 100, false, 2000L);
+        assertEquals(56, mState.getLevel());
+        assertFalse(mState.isCharging());
+        assertEquals(2000L, mState.getLastUpdateMs());
+    }
+
+    @Test
+    public void levelIsScaledToPercent() {
+        mState.start();
+        mSource.send(3, 4, false, 1L);
+        assertEquals(75, mState.getLevel());
+    }
+
+    @Test
+    public void broadcastWithoutLevelIsIgnored() {
+        mState.start();
+        mSource.send(40, 100, false, 1L);
+        mSource.send(-1, -1, false, 2L);
+
+        assertEquals(40, mState.getLevel());
+        assertEquals(1L, mState.getLastUpdateMs());
+    }
+
+    @Test
+    public void startAndStopRegisterOnce() {
+        mState.start();
+        mState.start();
+        assertEquals(1, mSource.mStartCount);
+
+        mState.stop();
+        mState.stop();
+        assertEquals(1, mSource.mStopCount);
+        assertFalse(mSource.isRegistered());
+    }
+
+    @Test
+    public void valuesAreKeptWhileStopped() {
+        mState.start();
+        mSource.send(80, 100, false, 1L);
+        mState.stop();
+
+        assertEquals(80, mState.getLevel());
+    }
+
+    /** Stand-in for the battery broadcast, delivering only while registered. */
+    private static class FakeSource implements BatteryState.Source {
+        int mStartCount;
+        int mStopCount;
+        private BatteryState mTarget;
+
+        @Override
+        public void start(BatteryState state) {
+            mStartCount++;
+            mTarget = state;
+        }
+
+        @Override
+        public void stop() {
+            mStopCount++;
+            mTarget = null;
+        }
+
+        boolean isRegistered() {
+            return mTarget != null;
+        }
+
+        void send(int level, int scale, boolean charging, long timeMs) {
+            if (mTarget != null) {
+                mTarget.update(level, scale, charging, timeMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitmapLoaderTest {
+
+    @Test
+    public void noSamplingWhenSourceIsSmallerThanTarget() {
+        assertEquals(1, BitmapLoader.computeSampleSize(320, 320, 454, 454));
+    }
+
+    @Test
+    public void noSamplingWhenHalfWouldBeTooSmall() {
+        assertEquals(1, BitmapLoader.computeSampleSize(640, 640, 321, 321));
+    }
+
+    @Test
+    public void samplesByLargestPowerOfTwoAboveTarget() {
+        assertEquals(2, BitmapLoader.computeSampleSize(640, 640, 320, 320));
+        assertEquals(4, BitmapLoader.computeSampleSize(2000, 2000, 454, 454));
+    }
+
+    @Test
+    public void bothAxesMustStayAboveTarget() {
+        assertEquals(2, BitmapLoader.computeSampleSize(1066, 950, 320, 290));
+        assertEquals(1, BitmapLoader.computeSampleSize(1600, 400, 320, 320));
+    }
+
+    @Test
+    public void fitKeepsAspectRatio() {
+        /* The wtm logo on a round 320 screen: full width, shorter height. */
+        assertEquals(320, BitmapLoader.computeFitSize(802, 704, 320, 320));
+        assertEquals(280, BitmapLoader.computeFitSize(704, 802, 320, 320));
+        /* Tall targets limit the width instead. */
+        assertEquals(320, BitmapLoader.computeFitSize(1066, 950, 320, 400));
+        assertEquals(285, BitmapLoader.computeFitSize(950, 1066, 400, 320));
+    }
+
+    @Test
+    public void fitFillsTargetsOfTheSameShape() {
+        assertEquals(454, BitmapLoader.computeFitSize(320, 320, 454, 454));
+        assertEquals(400, BitmapLoader.computeFitSize(800, 400, 400, 200));
+        assertEquals(200, BitmapLoader.computeFitSize(400, 800, 200, 400));
+    }
+}
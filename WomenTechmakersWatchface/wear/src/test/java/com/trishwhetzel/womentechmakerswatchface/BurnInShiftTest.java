@@ -0,0 +1,40 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BurnInShiftTest {
+
+    @Test
+    public void offsetsStayWithinRange() {
+        for (long minute = -200; minute < 200; minute++) {
+            assertTrue(Math.abs(BurnInShift.getOffsetX(minute)) <= BurnInShift.MAX_SHIFT);
+            assertTrue(Math.abs(BurnInShift.getOffsetY(minute)) <= BurnInShift.MAX_SHIFT);
+        }
+    }
+
+    @Test
+    public void movesAtMostOnePixelPerMinute() {
+        int cycle = BurnInShift.getCycleLength();
+        for (long minute = 0; minute <= cycle; minute++) {
+            int dx = BurnInShift.getOffsetX(minute + 1) - BurnInShift.getOffsetX(minute);
+            int dy = BurnInShift.getOffsetY(minute + 1) - BurnInShift.getOffsetY(minute);
+            assertEquals("minute " + minute, 1, Math.abs(dx) + Math.abs(dy));
+        }
+    }
+
+    @Test
+    public void visitsEveryOffsetEachCycle() {
+        Set<Integer> seen = new HashSet<Integer>();
+        long start = 12345678L;
+        for (long minute = start; minute < start + BurnInShift.getCycleLength(); minute++) {
+            seen.add(BurnInShift.getOffsetX(minute) * 100 + BurnInShift.getOffsetY(minute));
+        }
+        int side = 2 * BurnInShift.MAX_SHIFT + 1;
+        assertEquals(side * side, seen.size());
+    }
+}
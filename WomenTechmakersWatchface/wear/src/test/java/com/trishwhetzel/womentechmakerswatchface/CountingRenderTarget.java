@@ -0,0 +1,57 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+/** {@link RenderTarget} that only counts calls, so it never allocates itself. */
+class CountingRenderTarget implements RenderTarget {
+    int mBackgrounds;
+    int mStaticLayers;
+    int mLines;
+    int mRects;
+    int mCircles;
+    int mTexts;
+    int mHands;
+    /* Visible band passed with the last background or static layer. */
+    int mVisibleTop;
+    int mVisibleBottom;
+
+    @Override
+    public void drawBackground(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        mBackgrounds++;
+        mVisibleTop = visibleTop;
+        mVisibleBottom = visibleBottom;
+    }
+
+    @Override
+    public void drawStaticLayer(boolean ambient, int visibleLeft, int visibleTop,
+            int visibleRight, int visibleBottom) {
+        mStaticLayers++;
+        mVisibleTop = visibleTop;
+        mVisibleBottom = visibleBottom;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int paint) {
+        mLines++;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int paint) {
+        mRects++;
+    }
+
+    @Override
+    public void drawCircle(float centerX, float centerY, float radius, int paint) {
+        mCircles++;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, int paint) {
+        mTexts++;
+    }
+
+    @Override
+    public void drawHand(int paint, int step, float centerX, float centerY,
+            float startRadius, float endRadius) {
+        mHands++;
+    }
+}
@@ -0,0 +1,51 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DialGeometryTest {
+    private static final float EPSILON = 1e-5f;
+
+    @Test
+    public void tablesMatchTrig() {
+        for (int step = 0; step < DialGeometry.HAND_STEPS; step += 7) {
+            double angle = Math.toRadians(step / 10.0);
+            assertEquals(Math.sin(angle), DialGeometry.sin(step), EPSILON);
+            assertEquals(Math.cos(angle), DialGeometry.cos(step), EPSILON);
+        }
+    }
+
+    @Test
+    public void stepsMatchRotationDegrees() {
+        for (int minute = 0; minute < 60; minute++) {
+            assertEquals(minute * 6f, DialGeometry.minuteStep(minute) / 10f, EPSILON);
+            for (int hour = 0; hour < 24; hour++) {
+                float degrees = (hour % 12) * 30 + minute / 2f;
+                assertEquals(degrees, DialGeometry.hourStep(hour, minute) / 10f, EPSILON);
+            }
+        }
+        for (int second = 0; second < 60; second++) {
+            for (int millis = 0; millis < 1000; millis += 50) {
+                float degrees = (second + millis / 1000f) * 6f;
+                int step = DialGeometry.secondStep(second, millis);
+                assertTrue(step < DialGeometry.HAND_STEPS);
+                assertEquals(degrees, step / 10f, 0.1f);
+            }
+        }
+    }
+
+    @Test
+    public void ticksAreScaledToSurface() {
+        DialGeometry geometry = new DialGeometry();
+        geometry.setSize(160f, 150f, 150f, 160f);
+
+        /* 12 o'clock points straight up, 3 o'clock to the right. */
+        assertEquals(160f, geometry.getTickStartX(0), EPSILON);
+        assertEquals(0f, geometry.getTickStartY(0), EPSILON);
+        assertEquals(-10f, geometry.getTickEndY(0), EPSILON);
+        assertEquals(320f, geometry.getTickEndX(15), EPSILON);
+        assertEquals(150f, geometry.getTickEndY(15), EPSILON);
+        assertEquals(10f, geometry.getTickStartX(45), EPSILON);
+    }
+}
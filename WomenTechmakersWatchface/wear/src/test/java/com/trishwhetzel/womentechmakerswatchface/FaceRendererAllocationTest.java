@@ -0,0 +1,147 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Regression gate for the zero-allocation render contract: once warmed up, simulated frames
+ * through {@link FaceRenderer} must not allocate a single byte on the drawing thread.
+ */
+public class FaceRendererAllocationTest {
+    private static final int WARM_UP_FRAMES = 5000;
+    private static final int MEASURED_FRAMES = 50000;
+
+    /* 2016-11-05 20:00 EDT, so the run crosses midnight and the end of DST. */
+    private static final long START_MS = 1478390400000L;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mThreadId;
+
+    private TimeEngine mTime;
+    private BatteryState mBatteryState;
+    private FaceRenderer mRenderer;
+    private CountingRenderTarget mTarget;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+
+        mTime = new TimeEngine(TimeZone.getTimeZone("America/New_York"), Locale.US);
+        mBatteryState = new BatteryState(new BatteryState.Source() {
+            @Override
+            public void start(BatteryState state) {
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        mBatteryState.update(100, 100, false, START_MS);
+        mRenderer = new FaceRenderer(mTime, mBatteryState);
+        mRenderer.setSurfaceSize(320, 320);
+        mRenderer.setPeekCardBounds(0, 250, 320, 320);
+        mTarget = new CountingRenderTarget();
+
+        mTime.setTime(START_MS);
+        mRenderer.drawStaticLayer(mTarget);
+    }
+
+    @Test
+    public void interactiveFramesDoNotAllocate() {
+        runFrames(0, WARM_UP_FRAMES, false, false);
+        long allocated = allocatedBytes();
+        runFrames(WARM_UP_FRAMES, MEASURED_FRAMES, false, false);
+        assertNoAllocation(allocated);
+    }
+
+    @Test
+    public void ambientFramesDoNotAllocate() {
+        runFrames(0, WARM_UP_FRAMES, true, false);
+        long allocated = allocatedBytes();
+        runFrames(WARM_UP_FRAMES, MEASURED_FRAMES, true, false);
+        assertNoAllocation(allocated);
+    }
+
+    @Test
+    public void damagedFramesDoNotAllocate() {
+        runFrames(0, WARM_UP_FRAMES, false, true);
+        long allocated = allocatedBytes();
+        runFrames(WARM_UP_FRAMES, MEASURED_FRAMES, false, true);
+        assertNoAllocation(allocated);
+    }
+
+    @Test
+    public void framesDrawExpectedPrimitives() {
+        /* Interactive peek cards may be see-through, so all 12 ticks are drawn. */
+        assertEquals(1, mTarget.mBackgrounds);
+        assertEquals(12, mTarget.mLines);
+        assertEquals(2, mTarget.mTexts);
+
+        runFrames(0, 1, false, false);
+        assertEquals(1, mTarget.mStaticLayers);
+        assertEquals(3, mTarget.mHands);
+        assertEquals(12, mTarget.mLines);
+        assertEquals(2 + 1, mTarget.mTexts);
+    }
+
+    /**
+     * Simulates one frame per second, with battery updates and static layer rebuilds at the
+     * day boundary as the engine would do them. {@code partial} frames only redraw their
+     * damage.
+     */
+    private void runFrames(int first, int count, boolean ambient, boolean partial) {
+        mRenderer.setAmbient(ambient);
+        long day = mTime.getLocalDay();
+        for (int frame = first; frame < first + count; frame++) {
+            long timeMs = START_MS + frame * 1000L + (frame % 7);
+            if (frame % 60 == 0) {
+                mBatteryState.update(100 - (frame / 60) % 100, 100, false, timeMs);
+            }
+            mTime.setTime(timeMs);
+            if (mTime.getLocalDay() != day) {
+                day = mTime.getLocalDay();
+                mRenderer.drawStaticLayer(mTarget);
+            }
+            if (!partial) {
+                mRenderer.drawFrame(mTarget);
+                continue;
+            }
+            switch (mRenderer.computeDamage()) {
+                case FaceRenderer.DAMAGE_NONE:
+                    break;
+                case FaceRenderer.DAMAGE_PARTIAL:
+                    mRenderer.drawDamage(mTarget, mRenderer.getDamageLeft(),
+                            mRenderer.getDamageTop(), mRenderer.getDamageRight(),
+                            mRenderer.getDamageBottom());
+                    break;
+                default:
+                    mRenderer.drawFrame(mTarget);
+                    break;
+            }
+        }
+    }
+
+    private long allocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(mThreadId);
+    }
+
+    private void assertNoAllocation(long before) {
+        /* Reading the counter may itself allocate; measure that and allow exactly that much. */
+        long probe = allocatedBytes();
+        long overhead = allocatedBytes() - probe;
+        long allocated = allocatedBytes() - before - 2 * overhead;
+        assertTrue("render path allocated " + allocated + " bytes after warm-up", allocated <= 0);
+    }
+}
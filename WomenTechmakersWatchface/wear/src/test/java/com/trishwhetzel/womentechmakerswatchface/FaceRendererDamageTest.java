@@ -0,0 +1,160 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class FaceRendererDamageTest {
+    private static final int SIZE = 320;
+    private static final float TEXT_SIZE = 20f;
+
+    /* 2016-01-01 03:00:00 UTC, all hands clear of the battery label on the left. */
+    private static final long THREE_O_CLOCK_MS = 1451617200000L;
+
+    private TimeEngine mTime;
+    private BatteryState mBatteryState;
+    private FaceRenderer mRenderer;
+    private CountingRenderTarget mTarget;
+
+    @Before
+    public void setUp() {
+        mTime = new TimeEngine(TimeZone.getTimeZone("UTC"), Locale.US);
+        mBatteryState = new BatteryState(new BatteryState.Source() {
+            @Override
+            public void start(BatteryState state) {
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        mBatteryState.update(80, 100, false, 0);
+        mRenderer = new FaceRenderer(mTime, mBatteryState);
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        mRenderer.setTextSizes(TEXT_SIZE, TEXT_SIZE, TEXT_SIZE);
+        mTarget = new CountingRenderTarget();
+        mRenderer.drawStaticLayer(mTarget);
+    }
+
+    @Test
+    public void firstFrameIsFullDamage() {
+        assertEquals(FaceRenderer.DAMAGE_FULL, damageAt(THREE_O_CLOCK_MS));
+        assertEquals(SIZE * SIZE, damagedPixels());
+    }
+
+    @Test
+    public void sameFrameAgainIsNoDamage() {
+        drawAt(THREE_O_CLOCK_MS);
+        assertEquals(FaceRenderer.DAMAGE_NONE, damageAt(THREE_O_CLOCK_MS));
+    }
+
+    @Test
+    public void secondTickRedrawsAroundTheSecondHandOnly() {
+        drawAt(THREE_O_CLOCK_MS);
+        assertEquals(FaceRenderer.DAMAGE_PARTIAL, damageAt(THREE_O_CLOCK_MS + 1000));
+        assertTrue(damagedPixels() < SIZE * SIZE / 8);
+        assertTrue(mRenderer.getDamageBottom() <= SIZE / 2 + 20);
+
+        mTarget = new CountingRenderTarget();
+        drawDamage();
+        assertEquals(1, mTarget.mStaticLayers);
+        /* Every hand reaches into the center, the battery label is left alone. */
+        assertEquals(3, mTarget.mHands);
+        assertEquals(0, mTarget.mTexts);
+        assertEquals(FaceRenderer.DAMAGE_NONE, damageAt(THREE_O_CLOCK_MS + 1000));
+    }
+
+    @Test
+    public void minuteRolloverAddsTheMinuteHand() {
+        drawAt(THREE_O_CLOCK_MS + 58000);
+        damageAt(THREE_O_CLOCK_MS + 59000);
+        int secondOnly = damagedPixels();
+        drawDamage();
+        assertEquals(FaceRenderer.DAMAGE_PARTIAL, damageAt(THREE_O_CLOCK_MS + 60000));
+        assertTrue(damagedPixels() > secondOnly);
+    }
+
+    @Test
+    public void hiddenSecondHandLeavesNothingToRedrawWithinAMinute() {
+        drawAt(THREE_O_CLOCK_MS);
+        mRenderer.setShowSeconds(false);
+        assertEquals(FaceRenderer.DAMAGE_PARTIAL, damageAt(THREE_O_CLOCK_MS + 1000));
+        drawDamage();
+        assertEquals(FaceRenderer.DAMAGE_NONE, damageAt(THREE_O_CLOCK_MS + 2000));
+    }
+
+    @Test
+    public void batteryChangeDamagesTheLabel() {
+        mRenderer.setShowSeconds(false);
+        drawAt(THREE_O_CLOCK_MS);
+        mBatteryState.update(79, 100, false, 0);
+        assertEquals(FaceRenderer.DAMAGE_PARTIAL, damageAt(THREE_O_CLOCK_MS + 1000));
+        assertTrue(mRenderer.getDamageLeft() < SIZE / 4);
+
+        mTarget = new CountingRenderTarget();
+        drawDamage();
+        assertEquals(1, mTarget.mTexts);
+        assertEquals(0, mTarget.mHands);
+    }
+
+    @Test
+    public void damageUnderInteractivePeekCardStillCounts() {
+        /* Interactive cards may be see-through, so what moves under them must be redrawn. */
+        mRenderer.setPeekCardBounds(0, SIZE / 2 - 10, SIZE, SIZE);
+        mRenderer.drawStaticLayer(mTarget);
+        /* The second hand moves from 30 to 31 seconds, under the card. */
+        drawAt(THREE_O_CLOCK_MS + 30000);
+        assertEquals(FaceRenderer.DAMAGE_PARTIAL, damageAt(THREE_O_CLOCK_MS + 31000));
+        assertTrue(mRenderer.getDamageBottom() > SIZE / 2);
+    }
+
+    @Test
+    public void anythingElseForcesFullDamage() {
+        drawAt(THREE_O_CLOCK_MS);
+        mRenderer.setAmbient(true);
+        assertEquals(FaceRenderer.DAMAGE_FULL, damageAt(THREE_O_CLOCK_MS));
+
+        drawAt(THREE_O_CLOCK_MS);
+        mRenderer.drawStaticLayer(mTarget);
+        assertEquals(FaceRenderer.DAMAGE_FULL, damageAt(THREE_O_CLOCK_MS));
+
+        drawAt(THREE_O_CLOCK_MS);
+        mRenderer.invalidateFrame();
+        assertEquals(FaceRenderer.DAMAGE_FULL, damageAt(THREE_O_CLOCK_MS));
+    }
+
+    @Test
+    public void tapsHitOnlyTheFieldRowTheyLandOn() {
+        /* On 320x320 with 24px text, the bottom field's baseline is at y 248 from x 112. */
+        assertTrue(FaceRenderer.isInField(FaceRenderer.FIELD_BOTTOM, 200, 240, 320, 320, 24));
+        assertTrue(FaceRenderer.isInField(FaceRenderer.FIELD_BOTTOM, 100, 260, 320, 320, 24));
+        assertFalse(FaceRenderer.isInField(FaceRenderer.FIELD_BOTTOM, 200, 205, 320, 320, 24));
+        assertFalse(FaceRenderer.isInField(FaceRenderer.FIELD_BOTTOM, 20, 248, 320, 320, 24));
+        assertTrue(FaceRenderer.isInField(FaceRenderer.FIELD_MIDDLE, 200, 205, 320, 320, 24));
+        assertFalse(FaceRenderer.isInField(FaceRenderer.FIELD_TOP, 200, 240, 320, 320, 24));
+    }
+
+    private void drawAt(long timeMs) {
+        mTime.setTime(timeMs);
+        mRenderer.drawFrame(mTarget);
+    }
+
+    private int damageAt(long timeMs) {
+        mTime.setTime(timeMs);
+        return mRenderer.computeDamage();
+    }
+
+    private void drawDamage() {
+        mRenderer.drawDamage(mTarget, mRenderer.getDamageLeft(), mRenderer.getDamageTop(),
+                mRenderer.getDamageRight(), mRenderer.getDamageBottom());
+    }
+
+    private int damagedPixels() {
+        return (mRenderer.getDamageRight() - mRenderer.getDamageLeft())
+                * (mRenderer.getDamageBottom() - mRenderer.getDamageTop());
+    }
+}
@@ -0,0 +1,133 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class FaceRendererOcclusionTest {
+    private static final int SIZE = 320;
+    private static final float TEXT_SIZE = 20f;
+
+    /* 2016-01-01 03:00 and 06:30 UTC. */
+    private static final long THREE_O_CLOCK_MS = 1451617200000L;
+    private static final long HALF_PAST_SIX_MS = 1451629800000L;
+
+    private TimeEngine mTime;
+    private FaceRenderer mRenderer;
+    private CountingRenderTarget mTarget;
+
+    @Before
+    public void setUp() {
+        mTime = new TimeEngine(TimeZone.getTimeZone("UTC"), Locale.US);
+        BatteryState batteryState = new BatteryState(new BatteryState.Source() {
+            @Override
+            public void start(BatteryState state) {
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        batteryState.update(80, 100, false, 0);
+        mRenderer = new FaceRenderer(mTime, batteryState);
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        mRenderer.setTextSizes(TEXT_SIZE, TEXT_SIZE, TEXT_SIZE);
+        mTarget = new CountingRenderTarget();
+    }
+
+    @Test
+    public void withoutCardEverythingIsDrawnAndNothingOverdrawn() {
+        drawAmbient(THREE_O_CLOCK_MS);
+        assertEquals(12, mTarget.mLines);
+        assertEquals(3, mTarget.mTexts);
+        assertEquals(2, mTarget.mHands);
+        /* Just the date box. */
+        assertEquals(1, mTarget.mRects);
+        assertEquals(0, mTarget.mVisibleTop);
+        assertEquals(SIZE, mTarget.mVisibleBottom);
+    }
+
+    @Test
+    public void ambientCardCullsCoveredTicksAndClipsBlits() {
+        mRenderer.setPeekCardBounds(0, 270, SIZE, SIZE);
+        mRenderer.setAmbient(true);
+        mRenderer.drawStaticLayer(mTarget);
+        assertEquals(0, mTarget.mVisibleTop);
+        assertEquals(270, mTarget.mVisibleBottom);
+        /* The ticks at 5, 6 and 7 o'clock are under the card. */
+        assertEquals(9, mTarget.mLines);
+
+        mRenderer.drawFrame(mTarget);
+        assertEquals(270, mTarget.mVisibleBottom);
+    }
+
+    @Test
+    public void interactiveCardIsSeeThroughSoNothingIsCulled() {
+        mRenderer.setPeekCardBounds(0, 270, SIZE, SIZE);
+        mRenderer.drawStaticLayer(mTarget);
+        assertEquals(SIZE, mTarget.mVisibleBottom);
+        assertEquals(12, mTarget.mLines);
+
+        /* Culling starts and stops with ambient mode. */
+        mRenderer.setAmbient(true);
+        mRenderer.drawFrame(mTarget);
+        assertEquals(270, mTarget.mVisibleBottom);
+        mRenderer.setAmbient(false);
+        mRenderer.drawFrame(mTarget);
+        assertEquals(SIZE, mTarget.mVisibleBottom);
+    }
+
+    @Test
+    public void cardAtTheTopLeavesTheBottomVisible() {
+        mRenderer.setPeekCardBounds(0, 0, SIZE, 40);
+        mRenderer.setAmbient(true);
+        mRenderer.drawFrame(mTarget);
+        assertEquals(40, mTarget.mVisibleTop);
+        assertEquals(SIZE, mTarget.mVisibleBottom);
+    }
+
+    @Test
+    public void ambientOverdrawOnlyWhenSomethingReachesUnderCard() {
+        mRenderer.setPeekCardBounds(0, 270, SIZE, SIZE);
+        drawAmbient(THREE_O_CLOCK_MS);
+        assertEquals(1, mTarget.mRects);
+
+        /* The minute hand now points down into the card. */
+        mTarget = new CountingRenderTarget();
+        drawAmbient(HALF_PAST_SIX_MS);
+        assertEquals(2, mTarget.mRects);
+    }
+
+    @Test
+    public void fullScreenCardCullsEverything() {
+        mRenderer.setPeekCardBounds(0, 0, SIZE, SIZE);
+        drawAmbient(THREE_O_CLOCK_MS);
+        assertEquals(0, mTarget.mLines);
+        assertEquals(0, mTarget.mTexts);
+        assertEquals(0, mTarget.mHands);
+        assertEquals(0, mTarget.mCircles);
+        assertEquals(0, mTarget.mRects);
+        assertEquals(0, mTarget.mVisibleBottom);
+    }
+
+    @Test
+    public void textOfUnknownSizeIsNeverCulled() {
+        mRenderer.setTextSizes(0, 0, 0);
+        mRenderer.setPeekCardBounds(0, 0, SIZE, SIZE);
+        drawAmbient(THREE_O_CLOCK_MS);
+        assertEquals(3, mTarget.mTexts);
+        /* The text may reach under the card, so it is still covered up. */
+        assertEquals(2, mTarget.mRects);
+    }
+
+    private void drawAmbient(long timeMs) {
+        mRenderer.setAmbient(true);
+        mTime.setTime(timeMs);
+        mRenderer.drawStaticLayer(mTarget);
+        mRenderer.drawFrame(mTarget);
+    }
+}
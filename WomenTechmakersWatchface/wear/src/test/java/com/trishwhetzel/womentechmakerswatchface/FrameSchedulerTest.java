@@ -0,0 +1,190 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+    private static final long START_MS = 1460000000250L;
+
+    private FakeLooper mLooper;
+    private BatteryState mBatteryState;
+    private FrameStats mFrameStats;
+    private FrameScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mLooper = new FakeLooper(START_MS);
+        mBatteryState = new BatteryState(new BatteryState.Source() {
+            @Override
+            public void start(BatteryState state) {
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        mBatteryState.update(80, 100, false, START_MS);
+        mFrameStats = new FrameStats();
+        mScheduler = new FrameScheduler(mLooper, mLooper, mBatteryState, mFrameStats);
+    }
+
+    @Test
+    public void tickModeAlignsToSecondBoundary() {
+        mScheduler.update();
+        mLooper.runNext();
+
+        assertEquals(1, mLooper.mFrames);
+        assertEquals(START_MS - 250 + 1000, mLooper.mPendingAtMs);
+
+        mLooper.runNext();
+        assertEquals(START_MS - 250 + 2000, mLooper.mPendingAtMs);
+    }
+
+    @Test
+    public void sweepModeTicksAtConfiguredRate() {
+        mScheduler.setMode(FrameScheduler.MODE_SWEEP);
+        mScheduler.setSweepFps(30);
+
+        assertEquals(33, mScheduler.getIntervalMs());
+        assertEquals(30, mScheduler.getEffectiveFps());
+        assertTrue(mScheduler.showsSeconds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedSweepRateIsRejected() {
+        mScheduler.setSweepFps(24);
+    }
+
+    @Test
+    public void overrunsStepSweepDown() {
+        mScheduler.setMode(FrameScheduler.MODE_SWEEP);
+        mScheduler.setSweepFps(60);
+
+        /* 12ms is over half of a 16ms frame but fits into half of a 33ms frame. */
+        for (int i = 0; i < FrameScheduler.OVERRUN_LIMIT; i++) {
+            mScheduler.onFrameDrawn(12000000L);
+        }
+        assertEquals(30, mScheduler.getEffectiveFps());
+
+        for (int i = 0; i < 100; i++) {
+            mScheduler.onFrameDrawn(12000000L);
+        }
+        assertEquals(30, mScheduler.getEffectiveFps());
+        assertEquals(1, mScheduler.getStepDownCount());
+    }
+
+    @Test
+    public void occasionalOverrunDoesNotStepDown() {
+        mScheduler.setMode(FrameScheduler.MODE_SWEEP);
+        mScheduler.setSweepFps(60);
+        for (int i = 0; i < 20; i++) {
+            mScheduler.onFrameDrawn(i % 2 == 0 ? 12000000L : 1000000L);
+        }
+        assertEquals(60, mScheduler.getEffectiveFps());
+    }
+
+    @Test
+    public void stepDownsAreResetWhenTimerStops() {
+        mScheduler.setMode(FrameScheduler.MODE_SWEEP);
+        mScheduler.setSweepFps(60);
+        for (int i = 0; i < FrameScheduler.OVERRUN_LIMIT; i++) {
+            mScheduler.onFrameDrawn(100000000L);
+        }
+        assertEquals(30, mScheduler.getEffectiveFps());
+
+        mLooper.mShouldRun = false;
+        mScheduler.update();
+        assertEquals(60, mScheduler.getEffectiveFps());
+    }
+
+    @Test
+    public void powerSaverDropsToMinuteTicksOnLowBattery() {
+        mScheduler.setMode(FrameScheduler.MODE_POWER_SAVER);
+        assertEquals(1000, mScheduler.getIntervalMs());
+
+        mBatteryState.update(FrameScheduler.LOW_BATTERY_LEVEL, 100, false, START_MS);
+        assertEquals(60000, mScheduler.getIntervalMs());
+        assertFalse(mScheduler.showsSeconds());
+
+        mScheduler.update();
+        mLooper.runNext();
+        assertEquals(1460000040000L, mLooper.mPendingAtMs);
+
+        mBatteryState.update(FrameScheduler.LOW_BATTERY_LEVEL, 100, true, START_MS);
+        assertEquals(1000, mScheduler.getIntervalMs());
+    }
+
+    @Test
+    public void stopsSchedulingWhenTimerShouldNotRun() {
+        mScheduler.update();
+        mLooper.runNext();
+        mLooper.mShouldRun = false;
+        mLooper.runNext();
+
+        assertEquals(2, mLooper.mFrames);
+        assertFalse(mLooper.hasPending());
+    }
+
+    @Test
+    public void recordsTickLateness() {
+        mScheduler.update();
+        mLooper.runNext();
+        mLooper.mLagMs = 7;
+        mLooper.runNext();
+
+        LatencyHistogram lateness = mFrameStats.getLatenessHistogram(false);
+        assertEquals(1, lateness.getCount());
+        assertEquals(7000, lateness.getMaxUs());
+    }
+
+    /** Single-message looper with a manual clock; running a tick advances the clock to it. */
+    private class FakeLooper implements FrameScheduler.Clock, FrameScheduler.Host {
+        long mNowMs;
+        long mPendingAtMs = -1;
+        long mLagMs;
+        int mFrames;
+        boolean mShouldRun = true;
+
+        FakeLooper(long nowMs) {
+            mNowMs = nowMs;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mNowMs;
+        }
+
+        @Override
+        public void scheduleTick(long delayMs) {
+            mPendingAtMs = mNowMs + delayMs;
+        }
+
+        @Override
+        public void cancelTick() {
+            mPendingAtMs = -1;
+        }
+
+        @Override
+        public void requestFrame() {
+            mFrames++;
+        }
+
+        @Override
+        public boolean shouldTimerBeRunning() {
+            return mShouldRun;
+        }
+
+        boolean hasPending() {
+            return mPendingAtMs >= 0;
+        }
+
+        void runNext() {
+            assertTrue(hasPending());
+            mNowMs = mPendingAtMs + mLagMs;
+            mPendingAtMs = -1;
+            mScheduler.onTick();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrameStateHandoffTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private AtomicInteger mWakes;
+    private FrameStateHandoff mHandoff;
+    private FrameState.Builder mBuilder;
+
+    @Before
+    public void setUp() {
+        mWakes = new AtomicInteger();
+        mHandoff = new FrameStateHandoff(new FrameStateHandoff.Waker() {
+            @Override
+            public void wake() {
+                mWakes.incrementAndGet();
+            }
+        });
+        mBuilder = new FrameState.Builder()
+                .setMode(true, false)
+                .setTimeZone(UTC)
+                .setSurfaceSize(320, 320);
+    }
+
+    @Test
+    public void firstSnapshotChangesEverything() {
+        FrameState state = mBuilder.build();
+        assertEquals(FrameState.CHANGED_ALL, state.changesFrom(null));
+        assertEquals(0, mBuilder.build().changesFrom(state));
+    }
+
+    @Test
+    public void changesAreGroupedByWhatTheyInvalidate() {
+        FrameState interactive = mBuilder.build();
+        FrameState ambient = mBuilder.setMode(true, true).build();
+        /* The layers outlive a mode switch; only the paints are restyled. */
+        assertEquals(FrameState.CHANGED_MODE, ambient.changesFrom(interactive));
+
+        FrameState muted = mBuilder.setMuteMode(true).build();
+        assertEquals(FrameState.CHANGED_STYLE, muted.changesFrom(ambient));
+
+        FrameState carded = mBuilder.setPeekCardBounds(0, 270, 320, 320).build();
+        assertEquals(FrameState.CHANGED_LAYOUT, carded.changesFrom(muted));
+
+        FrameState charging = mBuilder.setBattery(50, true).build();
+        assertEquals(FrameState.CHANGED_BATTERY, charging.changesFrom(carded));
+
+        FrameState moved = mBuilder.setTimeZone(TimeZone.getTimeZone("GMT+2"))
+                .setFields(false, true).build();
+        assertEquals(FrameState.CHANGED_TIME_ZONE | FrameState.CHANGED_FIELDS,
+                moved.changesFrom(charging));
+    }
+
+    @Test
+    public void takeReturnsNewestSnapshot() {
+        assertNull(mHandoff.take());
+        FrameState first = mBuilder.build();
+        FrameState second = mBuilder.setMuteMode(true).build();
+        mHandoff.publish(first);
+        mHandoff.publish(second);
+        assertSame(second, mHandoff.take());
+        /* Still there for whoever asks again. */
+        assertSame(second, mHandoff.take());
+        assertTrue(second.sequence > first.sequence);
+    }
+
+    @Test
+    public void wakesOncePerBatchOfPublishes() {
+        mHandoff.publish(mBuilder.build());
+        mHandoff.publish(mBuilder.build());
+        mHandoff.publish(mBuilder.build());
+        assertEquals(1, mWakes.get());
+
+        mHandoff.take();
+        mHandoff.publish(mBuilder.build());
+        assertEquals(2, mWakes.get());
+        assertEquals(4, mHandoff.getPublishCount());
+        assertEquals(2, mHandoff.getWakeCount());
+    }
+
+    @Test
+    public void renderThreadNeverSeesTornState() throws InterruptedException {
+        final int count = 20000;
+        final Throwable[] failure = new Throwable[1];
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                FrameState.Builder builder = new FrameState.Builder();
+                for (int i = 1; i <= count; i++) {
+                    /* Every field follows from i, so a mix of two updates shows. */
+                    builder.setColors(i, -i, i * 3)
+                            .setBattery(i % 101, i % 2 == 0)
+                            .setSurfaceSize(i, i + 1)
+                            .setPeekCardBounds(0, i, i, i + 1);
+                    mHandoff.publish(builder.build());
+                }
+            }
+        });
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long lastSequence = 0;
+                try {
+                    while (lastSequence < count) {
+                        FrameState state = mHandoff.take();
+                        if (state == null) {
+                            continue;
+                        }
+                        int i = state.handColor;
+                        assertTrue(state.sequence >= lastSequence);
+                        assertEquals(i, state.sequence);
+                        assertEquals(-i, state.highlightColor);
+                        assertEquals(i * 3, state.shadowColor);
+                        assertEquals(i % 101, state.batteryLevel);
+                        assertEquals(i % 2 == 0, state.charging);
+                        assertEquals(i + 1, state.surfaceHeight);
+                        assertEquals(i, state.peekCardTop);
+                        lastSequence = state.sequence;
+                    }
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        });
+        consumer.start();
+        producer.start();
+        producer.join();
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileUs(50));
+        assertEquals(0, histogram.getMeanUs());
+    }
+
+    @Test
+    public void percentilesReportBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(700);
+        }
+        histogram.record(3000);
+        histogram.record(20000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000, histogram.getPercentileUs(50));
+        assertEquals(4000, histogram.getPercentileUs(99));
+        assertEquals(20000, histogram.getPercentileUs(100));
+        assertEquals(20000, histogram.getMaxUs());
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(120);
+        assertEquals(120, histogram.getPercentileUs(50));
+    }
+
+    @Test
+    public void valuesBeyondLastBucketReportMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000000);
+        assertEquals(5000000, histogram.getPercentileUs(99));
+    }
+
+    @Test
+    public void frameStatsSeparatesModesAndCountsJank() {
+        FrameStats stats = new FrameStats();
+        stats.recordDraw(false, 2000);
+        stats.recordDraw(false, FrameStats.JANK_THRESHOLD_US + 1);
+        stats.recordDraw(true, 3000);
+        stats.recordTickLateness(true, 40);
+
+        assertEquals(2, stats.getDrawHistogram(false).getCount());
+        assertEquals(1, stats.getDrawHistogram(true).getCount());
+        assertEquals(1, stats.getJankCount(false));
+        assertEquals(0, stats.getJankCount(true));
+        assertEquals(40000, stats.getLatenessHistogram(true).getMaxUs());
+        assertEquals(0, stats.getLatenessHistogram(false).getCount());
+    }
+
+    @Test
+    public void frameStatsKeepFirstAndFirstCompleteStartupFrame() {
+        FrameStats stats = new FrameStats();
+        assertEquals(-1, stats.getFirstFrameUs());
+
+        stats.recordStartupFrame(12000, false);
+        stats.recordStartupFrame(20000, false);
+        assertEquals(12000, stats.getFirstFrameUs());
+        assertEquals(-1, stats.getFirstCompleteFrameUs());
+
+        stats.recordStartupFrame(95000, true);
+        stats.recordStartupFrame(120000, true);
+        stats.reset();
+        assertEquals(12000, stats.getFirstFrameUs());
+        assertEquals(95000, stats.getFirstCompleteFrameUs());
+    }
+}
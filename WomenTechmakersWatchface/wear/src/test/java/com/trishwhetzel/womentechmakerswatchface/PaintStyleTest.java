@@ -0,0 +1,63 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PaintStyleTest {
+    private static final int HAND = 0xFFFF0000;
+    private static final int HIGHLIGHT = 0xFF00FF00;
+
+    @Test
+    public void interactiveUsesPaletteColorsAndShadows() {
+        PaintStyle style = new PaintStyle(false, true, false, HAND, HIGHLIGHT);
+        assertEquals(HAND, style.getColor(RenderTarget.PAINT_HOUR));
+        assertEquals(HIGHLIGHT, style.getColor(RenderTarget.PAINT_SECOND));
+        assertEquals(HAND, style.getColor(RenderTarget.PAINT_FIELD));
+        for (int paint = 0; paint < PaintStyle.PAINT_COUNT; paint++) {
+            assertTrue(style.isAntiAlias(paint));
+        }
+        assertTrue(style.hasShadow(RenderTarget.PAINT_MINUTE));
+        assertTrue(style.hasShadow(RenderTarget.PAINT_TICK_AND_CIRCLE));
+        assertFalse(style.hasShadow(RenderTarget.PAINT_DATE));
+    }
+
+    @Test
+    public void ambientAntiAliasesEverythingUnlessLowBit() {
+        for (int i = 0; i < 2; i++) {
+            boolean lowBit = i != 0;
+            PaintStyle style = new PaintStyle(true, lowBit, false, HAND, HIGHLIGHT);
+            int handColor = lowBit ? PaintStyle.WHITE : PaintStyle.GRAY;
+            assertEquals(handColor, style.getColor(RenderTarget.PAINT_HOUR));
+            assertEquals(handColor, style.getColor(RenderTarget.PAINT_TICK_AND_CIRCLE));
+            assertEquals(PaintStyle.WHITE, style.getColor(RenderTarget.PAINT_FIELD));
+            for (int paint = 0; paint < PaintStyle.PAINT_COUNT; paint++) {
+                assertEquals(!lowBit, style.isAntiAlias(paint));
+                assertFalse(style.hasShadow(paint));
+            }
+        }
+    }
+
+    @Test
+    public void muteDimsOnlyTheHands() {
+        for (int i = 0; i < 4; i++) {
+            PaintStyle style = new PaintStyle((i & 1) != 0, (i & 2) != 0, true, HAND, HIGHLIGHT);
+            assertEquals(PaintStyle.MUTE_ALPHA, style.getColor(RenderTarget.PAINT_HOUR) >>> 24);
+            assertEquals(PaintStyle.MUTE_ALPHA, style.getColor(RenderTarget.PAINT_MINUTE) >>> 24);
+            assertEquals(PaintStyle.MUTE_SECOND_ALPHA,
+                    style.getColor(RenderTarget.PAINT_SECOND) >>> 24);
+            assertEquals(255, style.getColor(RenderTarget.PAINT_TICK_AND_CIRCLE) >>> 24);
+        }
+    }
+
+    @Test
+    public void onlyTheTicksAndCircleAreOutlined() {
+        for (int paint = 0; paint < PaintStyle.PAINT_COUNT; paint++) {
+            assertEquals(paint != RenderTarget.PAINT_TICK_AND_CIRCLE, PaintStyle.isFilled(paint));
+        }
+        assertEquals(PaintStyle.HOUR_STROKE_WIDTH,
+                PaintStyle.getStrokeWidth(RenderTarget.PAINT_HOUR), 0f);
+        assertTrue(PaintStyle.hasRoundCap(RenderTarget.PAINT_SECOND));
+        assertFalse(PaintStyle.hasRoundCap(RenderTarget.PAINT_TICK_AND_CIRCLE));
+    }
+}
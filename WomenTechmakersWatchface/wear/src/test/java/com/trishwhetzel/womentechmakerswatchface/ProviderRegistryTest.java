@@ -0,0 +1,288 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProviderRegistryTest {
+    private static final long MINUTE_MS = 60 * 1000;
+
+    /** Worker and clock in one, where time only moves in {@link #advance}. */
+    private static final class FakeWorker implements ProviderRegistry.Worker,
+            ProviderRegistry.Clock {
+        long mNow;
+        Runnable mTask;
+        long mDueMs;
+
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+
+        @Override
+        public void post(Runnable task, long delayMs) {
+            assertNull("only one pending refresh", mTask);
+            mTask = task;
+            mDueMs = mNow + delayMs;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            if (mTask == task) {
+                mTask = null;
+            }
+        }
+
+        void advance(long ms) {
+            long end = mNow + ms;
+            while (mTask != null && mDueMs <= end) {
+                mNow = mDueMs;
+                Runnable task = mTask;
+                mTask = null;
+                task.run();
+            }
+            mNow = end;
+        }
+    }
+
+    /** Returns "<name> <n>" on the n-th fetch, or throws while failing is set. */
+    private static final class FakeProvider implements DataProvider {
+        final String mName;
+        final long mIntervalMs;
+        final List<Long> mFetchTimes = new ArrayList<Long>();
+        boolean mFailing;
+
+        FakeProvider(String name, long intervalMs) {
+            mName = name;
+            mIntervalMs = intervalMs;
+        }
+
+        @Override
+        public long getRefreshIntervalMs() {
+            return mIntervalMs;
+        }
+
+        @Override
+        public String fetch(long timeMs) throws Exception {
+            mFetchTimes.add(timeMs);
+            if (mFailing) {
+                throw new Exception("unavailable");
+            }
+            return mName + " " + mFetchTimes.size();
+        }
+    }
+
+    private FakeWorker mWorker;
+    private int mChanges;
+    private ProviderRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mWorker = new FakeWorker();
+        /* Start a little after a minute boundary, like a face becoming visible. */
+        mWorker.mNow = 1000 * MINUTE_MS + 12345;
+        mRegistry = new ProviderRegistry(mWorker, mWorker, new ProviderRegistry.Listener() {
+            @Override
+            public void onSnapshotChanged(ProviderSnapshot snapshot) {
+                mChanges++;
+            }
+        });
+    }
+
+    @Test
+    public void providersShareAlignedWakeups() {
+        FakeProvider minute = new FakeProvider("minute", MINUTE_MS);
+        FakeProvider quarter = new FakeProvider("quarter", 15 * MINUTE_MS);
+        FakeProvider hour = new FakeProvider("hour", 60 * MINUTE_MS);
+        mRegistry.add(minute);
+        mRegistry.add(quarter);
+        mRegistry.add(hour);
+        mRegistry.start();
+
+        mWorker.advance(60 * MINUTE_MS);
+
+        /* One wakeup at start and one per minute; the others ride along. */
+        assertEquals(61, mRegistry.getWakeupCount());
+        assertEquals(61, minute.mFetchTimes.size());
+        assertEquals(5, quarter.mFetchTimes.size());
+        assertEquals(2, hour.mFetchTimes.size());
+        for (long timeMs : quarter.mFetchTimes.subList(1, quarter.mFetchTimes.size())) {
+            assertEquals(0, timeMs % (15 * MINUTE_MS));
+        }
+    }
+
+    @Test
+    public void nearlyDueProvidersAreRefreshedEarly() {
+        FakeProvider minute = new FakeProvider("minute", MINUTE_MS);
+        /* Due 500 ms before each minute boundary now and then; refreshed with it instead. */
+        FakeProvider odd = new FakeProvider("odd", MINUTE_MS - 500);
+        mRegistry.add(minute);
+        mRegistry.add(odd);
+        mRegistry.start();
+        mWorker.advance(10 * MINUTE_MS);
+
+        int separate = minute.mFetchTimes.size() + odd.mFetchTimes.size();
+        assertTrue(mRegistry.getWakeupCount() < separate);
+    }
+
+    @Test
+    public void refreshSoonFetchesOnlyThatSlotBeforeItIsDue() {
+        FakeProvider hourly = new FakeProvider("hourly", 60 * MINUTE_MS);
+        FakeProvider other = new FakeProvider("other", 60 * MINUTE_MS);
+        int slot = mRegistry.add(hourly);
+        mRegistry.add(other);
+        mRegistry.start();
+        mWorker.advance(MINUTE_MS);
+        assertEquals("hourly 1", mRegistry.getSnapshot().getText(slot));
+
+        mRegistry.refreshSoon(slot);
+        mWorker.advance(0);
+        assertEquals("hourly 2", mRegistry.getSnapshot().getText(slot));
+        assertEquals(1, other.mFetchTimes.size());
+
+        /* Back on its own schedule afterwards. */
+        mWorker.advance(MINUTE_MS);
+        assertEquals(2, hourly.mFetchTimes.size());
+    }
+
+    @Test
+    public void snapshotKeepsStaleValueWhileFetchFails() {
+        FakeProvider provider = new FakeProvider("value", MINUTE_MS);
+        int slot = mRegistry.add(provider);
+        mRegistry.start();
+        mWorker.advance(0);
+        assertEquals("value 1", mRegistry.getSnapshot().getText(slot));
+        long fetchedAt = mRegistry.getSnapshot().getFetchedAtMs(slot);
+
+        provider.mFailing = true;
+        mWorker.advance(3 * MINUTE_MS);
+        assertEquals("value 1", mRegistry.getSnapshot().getText(slot));
+        assertEquals(fetchedAt, mRegistry.getSnapshot().getFetchedAtMs(slot));
+        assertEquals(3, mRegistry.getFailureCount());
+        assertEquals(1, mChanges);
+
+        provider.mFailing = false;
+        mWorker.advance(MINUTE_MS);
+        assertEquals("value 5", mRegistry.getSnapshot().getText(slot));
+        assertEquals(2, mChanges);
+    }
+
+    @Test
+    public void unchangedValuesDontNotify() {
+        mRegistry.add(new DataProvider() {
+            @Override
+            public long getRefreshIntervalMs() {
+                return MINUTE_MS;
+            }
+
+            @Override
+            public String fetch(long timeMs) {
+                return "constant";
+            }
+        });
+        mRegistry.start();
+        mWorker.advance(30 * MINUTE_MS);
+        assertEquals(1, mChanges);
+    }
+
+    @Test
+    public void stoppedRegistryDoesNotWake() {
+        FakeProvider provider = new FakeProvider("value", MINUTE_MS);
+        mRegistry.add(provider);
+        mRegistry.start();
+        mWorker.advance(0);
+        mRegistry.stop();
+        mWorker.advance(60 * MINUTE_MS);
+        assertEquals(1, mRegistry.getWakeupCount());
+        assertNull(mWorker.mTask);
+
+        /* Restarting only refreshes what is due. */
+        mRegistry.start();
+        mWorker.advance(0);
+        assertEquals(2, provider.mFetchTimes.size());
+    }
+
+    @Test
+    public void snapshotsAreImmutable() {
+        FakeProvider provider = new FakeProvider("value", MINUTE_MS);
+        int slot = mRegistry.add(provider);
+        mRegistry.start();
+        mWorker.advance(0);
+        ProviderSnapshot first = mRegistry.getSnapshot();
+        mWorker.advance(MINUTE_MS);
+        assertNotSame(first, mRegistry.getSnapshot());
+        assertEquals("value 1", first.getText(slot));
+        assertEquals("value 2", mRegistry.getSnapshot().getText(slot));
+        assertNull(first.getText(slot + 1));
+    }
+
+    @Test(timeout = 5000)
+    public void blockedProviderNeverBlocksReaders() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        ProviderRegistry registry = new ProviderRegistry(new ProviderRegistry.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        }, new ProviderRegistry.Worker() {
+            private ScheduledFuture<?> mFuture;
+
+            @Override
+            public synchronized void post(Runnable task, long delayMs) {
+                mFuture = executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public synchronized void cancel(Runnable task) {
+                if (mFuture != null) {
+                    mFuture.cancel(false);
+                }
+            }
+        }, new ProviderRegistry.Listener() {
+            @Override
+            public void onSnapshotChanged(ProviderSnapshot snapshot) {
+            }
+        });
+        int slot = registry.add(new DataProvider() {
+            @Override
+            public long getRefreshIntervalMs() {
+                return MINUTE_MS;
+            }
+
+            @Override
+            public String fetch(long timeMs) throws InterruptedException {
+                fetching.countDown();
+                release.await();
+                return "late";
+            }
+        });
+        registry.start();
+        fetching.await();
+
+        /* The render path reads while the fetch is stuck, and gets the empty value at once. */
+        long startNs = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertNull(registry.getSnapshot().getText(slot));
+        }
+        assertTrue(System.nanoTime() - startNs < TimeUnit.MILLISECONDS.toNanos(500));
+
+        release.countDown();
+        while (registry.getSnapshot().getText(slot) == null) {
+            Thread.sleep(1);
+        }
+        assertEquals("late", registry.getSnapshot().getText(slot));
+        registry.stop();
+        executor.shutdownNow();
+    }
+}
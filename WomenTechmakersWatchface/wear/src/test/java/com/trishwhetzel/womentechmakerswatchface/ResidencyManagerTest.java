@@ -0,0 +1,151 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResidencyManagerTest {
+    private static final long START_MS = 1460000000000L;
+
+    private long mNowMs;
+    private ResidencyManager mResidency;
+    /* Names of released residents, in order. */
+    private final List<String> mReleased = new ArrayList<String>();
+
+    private FakeResident mStaticLayer;
+    private FakeResident mAmbientFrame;
+    private FakeResident mSprites;
+    private FakeResident mAtlases;
+    private FakeResident mBackground;
+    private FakeResident mAmbientBackground;
+
+    private class FakeResident implements ResidencyManager.Resident {
+        final String mName;
+        int mBytes;
+
+        FakeResident(String name, int bytes) {
+            mName = name;
+            mBytes = bytes;
+        }
+
+        @Override
+        public int getByteCount() {
+            return mBytes;
+        }
+
+        @Override
+        public void release() {
+            mBytes = 0;
+            mReleased.add(mName);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mNowMs = START_MS;
+        mResidency = new ResidencyManager(new ResidencyManager.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNowMs;
+            }
+        });
+        mStaticLayer = add("staticLayer", ResidencyManager.MODE_INTERACTIVE, true, 400);
+        mAmbientFrame = add("ambientFrame", ResidencyManager.MODE_AMBIENT, true, 200);
+        mSprites = add("handSprites", ResidencyManager.MODE_INTERACTIVE, true, 30);
+        mAtlases = add("textAtlases", ResidencyManager.MODE_ANY, true, 10);
+        mBackground = add("background", ResidencyManager.MODE_INTERACTIVE, false, 200);
+        mAmbientBackground = add("ambientBackground", ResidencyManager.MODE_AMBIENT, false, 100);
+        mResidency.setMode(ResidencyManager.MODE_INTERACTIVE);
+    }
+
+    private FakeResident add(String name, int modes, boolean derived, int bytes) {
+        FakeResident resident = new FakeResident(name, bytes);
+        mResidency.add(name, modes, derived, resident);
+        return resident;
+    }
+
+    @Test
+    public void modeSwitchesReleaseNothingWithoutPressure() {
+        mResidency.setMode(ResidencyManager.MODE_AMBIENT);
+        mResidency.setMode(ResidencyManager.MODE_INTERACTIVE);
+        mResidency.setMode(ResidencyManager.MODE_HIDDEN);
+        assertTrue(mReleased.isEmpty());
+        assertEquals(940, mResidency.getResidentBytes());
+    }
+
+    @Test
+    public void moderatePressureReleasesWhatIsOffScreen() {
+        assertEquals(300, mResidency.trim(ResidencyManager.PRESSURE_MODERATE));
+        assertEquals(0, mAmbientFrame.mBytes);
+        assertEquals(0, mAmbientBackground.mBytes);
+        assertEquals(640, mResidency.getResidentBytes());
+        assertEquals(400, mStaticLayer.mBytes);
+    }
+
+    @Test
+    public void pressureKeepsReleasingOnModeChangesUntilItDecays() {
+        mResidency.trim(ResidencyManager.PRESSURE_MODERATE);
+        /* Rebuilt by the owners on the next ambient frame. */
+        mResidency.setMode(ResidencyManager.MODE_AMBIENT);
+        mAmbientFrame.mBytes = 200;
+        mAmbientBackground.mBytes = 100;
+        assertEquals(0, mStaticLayer.mBytes);
+        assertEquals(0, mBackground.mBytes);
+
+        mNowMs += ResidencyManager.PRESSURE_DECAY_MS;
+        assertEquals(ResidencyManager.PRESSURE_NONE, mResidency.getPressure());
+        mReleased.clear();
+        mResidency.setMode(ResidencyManager.MODE_INTERACTIVE);
+        assertTrue(mReleased.isEmpty());
+    }
+
+    @Test
+    public void lowPressureReleasesDerivedLargestFirstUntilHalfIsGone() {
+        mResidency.trim(ResidencyManager.PRESSURE_LOW);
+        /* 940 resident: the off-screen 300 go first, then the 400 byte layer is enough. */
+        assertEquals("ambientFrame", mReleased.get(0));
+        assertEquals("ambientBackground", mReleased.get(1));
+        assertEquals("staticLayer", mReleased.get(2));
+        assertEquals(3, mReleased.size());
+        assertEquals(240, mResidency.getResidentBytes());
+    }
+
+    @Test
+    public void criticalPressureKeepsOnlyWhatIsOnScreenAndNotDerived() {
+        mResidency.trim(ResidencyManager.PRESSURE_CRITICAL);
+        assertEquals(200, mResidency.getResidentBytes());
+        assertEquals(200, mBackground.mBytes);
+        assertEquals(5, mResidency.getReleaseCount());
+        assertEquals(740, mResidency.getReleasedBytes());
+    }
+
+    @Test
+    public void hiddenFaceReleasesEverything() {
+        mResidency.setMode(ResidencyManager.MODE_HIDDEN);
+        mResidency.trim(ResidencyManager.PRESSURE_MODERATE);
+        assertEquals(0, mResidency.getResidentBytes());
+        assertEquals(1, mResidency.getTrimCount());
+    }
+
+    @Test
+    public void lowerPressureLaterDoesNotLowerIt() {
+        mResidency.trim(ResidencyManager.PRESSURE_CRITICAL);
+        mResidency.trim(ResidencyManager.PRESSURE_MODERATE);
+        assertEquals(ResidencyManager.PRESSURE_CRITICAL, mResidency.getPressure());
+        assertEquals(0, mResidency.trim(ResidencyManager.PRESSURE_NONE));
+    }
+
+    @Test
+    public void dumpListsResidentBytes() {
+        StringWriter out = new StringWriter();
+        mResidency.dump(new PrintWriter(out, true), "");
+        assertTrue(out.toString().startsWith("residency: bytes=940 pressure=0"));
+        assertTrue(out.toString().contains(" staticLayer=400 "));
+    }
+}
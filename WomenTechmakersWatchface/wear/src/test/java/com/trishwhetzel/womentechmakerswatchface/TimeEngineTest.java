@@ -0,0 +1,138 @@
+package com.trishwhetzel.womentechmakerswatchface;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimeEngineTest {
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+
+    @Test
+    public void matchesCalendarAroundSpringForward() {
+        /* 2016-03-13 02:00 EST jumps to 03:00 EDT at 07:00 UTC. */
+        assertMatchesAround("America/New_York", 1457852400000L);
+    }
+
+    @Test
+    public void matchesCalendarAroundFallBack() {
+        /* 2016-11-06 02:00 EDT falls back to 01:00 EST at 06:00 UTC. */
+        assertMatchesAround("America/New_York", 1478412000000L);
+    }
+
+    @Test
+    public void matchesCalendarAroundHalfHourTransition() {
+        /* Lord Howe Island moves by 30 minutes: 2016-04-03 02:00 LHDT becomes 01:30 LHST. */
+        assertMatchesAround("Australia/Lord_Howe", 1459605600000L);
+    }
+
+    @Test
+    public void matchesCalendarAcrossSkippedDay() {
+        /* Samoa skipped 2011-12-30 entirely when moving across the date line. */
+        assertMatchesAround("Pacific/Apia", 1325239200000L);
+    }
+
+    @Test
+    public void matchesCalendarForRandomTimes() {
+        String[] zones = {"UTC", "Asia/Kathmandu", "Europe/London", "America/St_Johns",
+                "Pacific/Chatham", "America/Los_Angeles"};
+        Random random = new Random(42);
+        for (String zone : zones) {
+            TimeEngine time = new TimeEngine(TimeZone.getTimeZone(zone), Locale.US);
+            for (int i = 0; i < 2000; i++) {
+                /* Anywhere between 1950 and 2050, including times before the epoch. */
+                long timeMs = -631152000000L + (long) (random.nextDouble() * 3155760000000L);
+                time.setTime(timeMs);
+                assertMatchesCalendar(zone, timeMs, time);
+            }
+        }
+    }
+
+    @Test
+    public void followsZoneChange() {
+        long timeMs = 1460000000000L;
+        TimeEngine time = new TimeEngine(TimeZone.getTimeZone("Europe/Berlin"), Locale.US);
+        time.setTime(timeMs);
+        assertMatchesCalendar("Europe/Berlin", timeMs, time);
+
+        time.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        for (long t = timeMs; t < timeMs + 2 * HOUR_MS; t += MINUTE_MS) {
+            time.setTime(t);
+            assertMatchesCalendar("Asia/Tokyo", t, time);
+        }
+    }
+
+    @Test
+    public void handlesClockGoingBackwards() {
+        TimeEngine time = new TimeEngine(TimeZone.getTimeZone("America/New_York"), Locale.US);
+        long summer = 1468000000000L;
+        long winter = 1452000000000L;
+        time.setTime(summer);
+        time.setTime(winter);
+        assertMatchesCalendar("America/New_York", winter, time);
+    }
+
+    @Test
+    public void dayTextMatchesDateFormat() {
+        TimeZone zone = TimeZone.getTimeZone("Europe/Paris");
+        for (Locale locale : new Locale[] {Locale.US, Locale.FRANCE, Locale.JAPAN}) {
+            TimeEngine time = new TimeEngine(zone, locale);
+            SimpleDateFormat dayFormat = new SimpleDateFormat("EEE", locale);
+            SimpleDateFormat dateFormat = new SimpleDateFormat("dd", locale);
+            dayFormat.setTimeZone(zone);
+            dateFormat.setTimeZone(zone);
+            long end = 1456000000000L + 40 * 24 * HOUR_MS;
+            for (long t = 1456000000000L; t < end; t += 7 * HOUR_MS) {
+                time.setTime(t);
+                assertEquals(dayFormat.format(new Date(t)), time.getDayName());
+                assertEquals(dateFormat.format(new Date(t)), time.getDayOfMonthText());
+            }
+        }
+    }
+
+    @Test
+    public void localDayChangesAtLocalMidnight() {
+        TimeEngine time = new TimeEngine(TimeZone.getTimeZone("Asia/Kolkata"), Locale.US);
+        /* 2016-04-01 00:00 IST is 2016-03-31 18:30 UTC. */
+        long midnight = 1459449000000L;
+        time.setTime(midnight - 1);
+        long before = time.getLocalDay();
+        time.setTime(midnight);
+        assertEquals(before + 1, time.getLocalDay());
+        assertEquals(1, time.getDayOfMonth());
+        assertEquals(0, time.getHourOfDay());
+    }
+
+    /** Steps a fake clock minute by minute through the six hours around {@code instantMs}. */
+    private static void assertMatchesAround(String zone, long instantMs) {
+        TimeEngine time = new TimeEngine(TimeZone.getTimeZone(zone), Locale.US);
+        for (long t = instantMs - 3 * HOUR_MS; t <= instantMs + 3 * HOUR_MS; t += MINUTE_MS) {
+            time.setTime(t);
+            assertMatchesCalendar(zone, t, time);
+            time.setTime(t + 999);
+            assertMatchesCalendar(zone, t + 999, time);
+        }
+    }
+
+    private static void assertMatchesCalendar(String zone, long timeMs, TimeEngine time) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(zone), Locale.US);
+        calendar.setTimeInMillis(timeMs);
+        String at = zone + " @ " + timeMs;
+        assertEquals(at, calendar.get(Calendar.YEAR), time.getYear());
+        assertEquals(at, calendar.get(Calendar.MONTH), time.getMonth());
+        assertEquals(at, calendar.get(Calendar.DAY_OF_MONTH), time.getDayOfMonth());
+        assertEquals(at, calendar.get(Calendar.DAY_OF_WEEK), time.getDayOfWeek());
+        assertEquals(at, calendar.get(Calendar.HOUR_OF_DAY), time.getHourOfDay());
+        assertEquals(at, calendar.get(Calendar.HOUR), time.getHour());
+        assertEquals(at, calendar.get(Calendar.MINUTE), time.getMinute());
+        assertEquals(at, calendar.get(Calendar.SECOND), time.getSecond());
+        assertEquals(at, calendar.get(Calendar.MILLISECOND), time.getMillisecond());
+    }
+}